@@ -1,3 +1,5 @@
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.*;
 
 abstract class Person{
@@ -134,8 +136,22 @@ public class Task3 {
         }
     }
 
+    // Ukrainian alphabet order, case ignored; one collation key per person instead of two per comparison
     private static void sortByName(List<Person> people){
-        people.sort(Comparator.comparing(Person::getName, String.CASE_INSENSITIVE_ORDER));
+        Collator collator = Collator.getInstance(Locale.forLanguageTag("uk-UA"));
+        collator.setStrength(Collator.SECONDARY);
+        CollationKey[] keys = new CollationKey[people.size()];
+        Integer[] order = new Integer[keys.length];
+        for(int i = 0; i < keys.length; i++){
+            keys[i] = collator.getCollationKey(people.get(i).getName());
+            order[i] = i;
+        }
+        Arrays.parallelSort(order, Comparator.comparing(i -> keys[i]));
+
+        List<Person> sorted = new ArrayList<>(people.size());
+        for(int i : order) sorted.add(people.get(i));
+        people.clear();
+        people.addAll(sorted);
         System.out.println("\n\tSorted by name\n");
     }
 
@@ -1,5 +1,6 @@
 import javax.swing.*;
 import javax.swing.event.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
@@ -7,6 +8,10 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 public class AddressBook {
 
@@ -20,156 +25,38 @@ public class AddressBook {
     }
 }
 
-/* --- Data model: Contact --- */
-class Contact {
-    String firstName;
-    String lastName;
-    String phone;
-    String email;
-    String gender;
-    List<String> tags;
-    boolean favorite;
-
-    Contact(String firstName, String lastName, String phone, String email,
-            String gender, List<String> tags, boolean favorite) {
-        this.firstName = firstName;
-        this.lastName = lastName;
-        this.phone = phone;
-        this.email = email;
-        this.gender = gender;
-        this.tags = new ArrayList<>(tags);
-        this.favorite = favorite;
-    }
-
-
-    String toCSVLine() {
-        return csvEscape(firstName) + "," + csvEscape(lastName) + "," + csvEscape(phone) + "," +
-                csvEscape(email) + "," + csvEscape(gender) + "," + csvEscape(String.join(";", tags)) + "," +
-                (favorite ? "1" : "0");
-    }
-
-    static Contact fromCSVLine(String line) {
-        List<String> parts = csvSplit(line);
-        if (parts.size() < 7) return null;
-        List<String> tags = parts.get(5).isEmpty() ? Collections.emptyList() :
-                Arrays.asList(parts.get(5).split(";"));
-        boolean fav = "1".equals(parts.get(6));
-        return new Contact(parts.get(0), parts.get(1), parts.get(2), parts.get(3), parts.get(4), tags, fav);
-    }
-
-    private static String csvEscape(String s) {
-        if (s == null) return "";
-        if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
-            return "\"" + s.replace("\"", "\"\"") + "\"";
-        }
-        return s;
-    }
-
-    private static List<String> csvSplit(String line) {
-        List<String> out = new ArrayList<>();
-        StringBuilder cur = new StringBuilder();
-        boolean inQuotes = false;
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (inQuotes) {
-                if (c == '"') {
-                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                        cur.append('"');
-                        i++;
-                    } else {
-                        inQuotes = false;
-                    }
-                } else {
-                    cur.append(c);
-                }
-            } else {
-                if (c == '"') {
-                    inQuotes = true;
-                } else if (c == ',') {
-                    out.add(cur.toString());
-                    cur.setLength(0);
-                } else {
-                    cur.append(c);
-                }
-            }
-        }
-        out.add(cur.toString());
-        return out;
-    }
-}
-
-/* --- Table model backed by List<Contact> --- */
-class ContactsTableModel extends AbstractTableModel {
-    private final String[] columns = {"First Name", "Last Name", "Phone", "Email", "Gender", "Tags", "Favorite"};
-    private final List<Contact> contacts;
-
-    ContactsTableModel(List<Contact> contacts) {
-        this.contacts = contacts;
-    }
-
-    public int getRowCount() { return contacts.size(); }
-    public int getColumnCount() { return columns.length; }
-    public String getColumnName(int col) { return columns[col]; }
-
-    public Object getValueAt(int row, int col) {
-        Contact c = contacts.get(row);
-        switch (col) {
-            case 0: return c.firstName;
-            case 1: return c.lastName;
-            case 2: return c.phone;
-            case 3: return c.email;
-            case 4: return c.gender;
-            case 5: return String.join(", ", c.tags);
-            case 6: return c.favorite ? "★" : "";
-        }
-        return "";
-    }
-
-    public Class<?> getColumnClass(int col) {
-        if (col == 6) return String.class;
-        return String.class;
-    }
-
-    public boolean isCellEditable(int r, int c) { return false; }
-
-    public Contact getContactAt(int row) { return contacts.get(row); }
-
-    public void addContact(Contact c) {
-        contacts.add(c);
-        int r = contacts.size()-1;
-        fireTableRowsInserted(r, r);
-    }
-
-    public void updateContact(int row, Contact c) {
-        contacts.set(row, c);
-        fireTableRowsUpdated(row, row);
-    }
-
-    public void removeContact(int row) {
-        contacts.remove(row);
-        fireTableRowsDeleted(row, row);
-    }
-
-    public List<Contact> getAll() { return Collections.unmodifiableList(contacts); }
-
-    public void clear() {
-        int n = contacts.size();
-        if (n>0) {
-            contacts.clear();
-            fireTableRowsDeleted(0, n-1);
-        }
-    }
-}
-
 /* --- Main application frame --- */
 class AddressBookFrame extends JFrame {
-    private final List<Contact> contacts = new ArrayList<>();
-    private final ContactsTableModel tableModel = new ContactsTableModel(contacts);
-    private final JTable table = new JTable(tableModel);
-    private final TableRowSorter<ContactsTableModel> sorter = new TableRowSorter<>(tableModel);
+    private final ContactsTableModel tableModel = new ContactsTableModel();
+    // declared before the table, which records its paint time
+    private final LatencyMonitor monitor = new LatencyMonitor();
+    private final JTable table = new JTable(tableModel) {
+        @Override
+        protected void paintComponent(Graphics g) {
+            long start = monitor.start();
+            super.paintComponent(g);
+            monitor.record("table.paint", start);
+        }
+    };
+    private final ContactRowSorter sorter = new ContactRowSorter(tableModel);
+    private final ContactFacets facets = new ContactFacets(tableModel, ContactDialog.TAGS);
+    private final ContactLookup lookup = new ContactLookup(tableModel);
+    // autosave target when the book was opened from or saved as a .abk snapshot
+    private ContactStore store;
+    // live reload when the book was loaded from or saved as CSV
+    private ContactFileWatcher watcher;
+    // local HTTP/JSON access to the book, see ContactHttpServer; off until enabled in Tools
+    private ContactService service;
+    private ContactHttpServer httpServer;
     private final JLabel statusBar = new JLabel("Ready");
+    private String statusMessage;
     private final JTextField searchField = new JTextField(20);
-    private final JCheckBox showFavoritesCheckbox = new JCheckBox("Show Favorites Only");
+    private final JCheckBox showFavoritesCheckbox = new JCheckBox("Favorites only");
+    private final Map<String, JCheckBox> tagBoxes = new LinkedHashMap<>();
+    private final JPanel tagPanel = new JPanel();
+    private final JRadioButton matchAnyRb = new JRadioButton("Any selected tag", true);
+    private final JRadioButton matchAllRb = new JRadioButton("All selected tags");
+    private boolean facetRefreshQueued = false;
     private final JButton addBtn = new JButton("Add");
     private final JButton editBtn = new JButton("Edit");
     private final JButton deleteBtn = new JButton("Delete");
@@ -183,9 +70,14 @@ class AddressBookFrame extends JFrame {
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
 
+        monitor.watchRecordings();
+        sorter.setMonitor(monitor);
+        setGlassPane(monitor.overlay());
+
         initMenuBar();
         initToolBar();
         initTable();
+        initFacetPanel();
         initStatusBar();
         initContextMenu();
 
@@ -199,6 +91,9 @@ class AddressBookFrame extends JFrame {
                 int r = JOptionPane.showConfirmDialog(AddressBookFrame.this,
                         "Are you sure you want to exit?", "Confirm Exit", JOptionPane.YES_NO_OPTION);
                 if (r == JOptionPane.YES_OPTION) {
+                    stopWatching();
+                    stopHttpServer();
+                    closeStore();
                     System.exit(0);
                 }
             }
@@ -212,21 +107,66 @@ class AddressBookFrame extends JFrame {
         JMenuItem newItem = new JMenuItem("New");
         JMenuItem saveItem = new JMenuItem("Save");
         JMenuItem loadItem = new JMenuItem("Load");
+        JMenuItem convertItem = new JMenuItem("Convert CSV ↔ Snapshot...");
+        JMenuItem importVcfItem = new JMenuItem("Import vCard...");
+        JMenuItem exportVcfItem = new JMenuItem("Export vCard...");
         JMenuItem exitItem = new JMenuItem("Exit");
 
         newItem.addActionListener(e -> onNew());
         saveItem.addActionListener(e -> onSave());
         loadItem.addActionListener(e -> onLoad());
+        convertItem.addActionListener(e -> onConvert());
+        importVcfItem.addActionListener(e -> onImportVCard());
+        exportVcfItem.addActionListener(e -> onExportVCard());
         exitItem.addActionListener(e -> dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING)));
 
         file.add(newItem);
         file.add(saveItem);
         file.add(loadItem);
+        file.add(convertItem);
+        file.addSeparator();
+        file.add(importVcfItem);
+        file.add(exportVcfItem);
         file.addSeparator();
         file.add(exitItem);
 
         menuBar.add(file);
 
+        JMenu tools = new JMenu("Tools");
+        JMenuItem dupItem = new JMenuItem("Find Duplicates...");
+        dupItem.addActionListener(e -> onFindDuplicates());
+        tools.add(dupItem);
+        JMenuItem validateItem = new JMenuItem("Validate CSV File...");
+        validateItem.addActionListener(e -> onValidateFile());
+        tools.add(validateItem);
+        JMenuItem mergeItem = new JMenuItem("Merge CSV Files...");
+        mergeItem.addActionListener(e -> onMergeFiles());
+        tools.add(mergeItem);
+        tools.addSeparator();
+        JCheckBoxMenuItem httpItem = new JCheckBoxMenuItem("Local HTTP API (port " + ContactHttpServer.DEFAULT_PORT + ")");
+        httpItem.addActionListener(e -> {
+            if (httpItem.isSelected()) startHttpServer();
+            else stopHttpServer();
+            httpItem.setSelected(httpServer != null);
+        });
+        tools.add(httpItem);
+        tools.addSeparator();
+        JCheckBoxMenuItem overlayItem = new JCheckBoxMenuItem("Latency Overlay");
+        overlayItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L,
+                Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx() | InputEvent.SHIFT_DOWN_MASK));
+        overlayItem.addActionListener(e -> getGlassPane().setVisible(overlayItem.isSelected()));
+        tools.add(overlayItem);
+        JMenuItem latencyItem = new JMenuItem("Export Latency Report...");
+        latencyItem.addActionListener(e -> onExportLatency());
+        tools.add(latencyItem);
+        JMenuItem resetItem = new JMenuItem("Reset Latency Figures");
+        resetItem.addActionListener(e -> {
+            monitor.reset();
+            getGlassPane().repaint();
+        });
+        tools.add(resetItem);
+        menuBar.add(tools);
+
         JMenu help = new JMenu("Help");
         JMenuItem aboutItem = new JMenuItem("About");
         aboutItem.addActionListener(e -> JOptionPane.showMessageDialog(this,
@@ -253,8 +193,6 @@ class AddressBookFrame extends JFrame {
         toolbar.add(deleteBtn);
         toolbar.add(markFavBtn);
         toolbar.addSeparator();
-        toolbar.add(showFavoritesCheckbox);
-        toolbar.addSeparator(new Dimension(10,0));
         toolbar.add(new JLabel("Search: "));
         toolbar.add(searchField);
 
@@ -268,10 +206,11 @@ class AddressBookFrame extends JFrame {
         markFavBtn.setEnabled(false);
 
         table.getSelectionModel().addListSelectionListener(e -> {
-            boolean sel = table.getSelectedRow() >= 0;
-            editBtn.setEnabled(sel);
-            deleteBtn.setEnabled(sel);
-            markFavBtn.setEnabled(sel);
+            int n = table.getSelectedRowCount();
+            editBtn.setEnabled(n == 1);
+            deleteBtn.setEnabled(n > 0);
+            markFavBtn.setEnabled(n > 0);
+            deleteBtn.setText(n > 1 ? "Delete (" + n + ")" : "Delete");
         });
 
         searchField.getDocument().addDocumentListener(new DocumentListener() {
@@ -279,6 +218,8 @@ class AddressBookFrame extends JFrame {
             public void removeUpdate(DocumentEvent e) { applyFilters(); }
             public void changedUpdate(DocumentEvent e) { applyFilters(); }
         });
+        FieldAutocomplete.install(searchField, lookup::completeSearch);
+        searchField.setToolTipText("Name, phone or email; +38067... and @gmail.com search by prefix and domain");
 
         add(toolbar, BorderLayout.NORTH);
     }
@@ -287,8 +228,11 @@ class AddressBookFrame extends JFrame {
     private void initTable() {
         table.setModel(tableModel);
         table.setRowSorter(sorter);
-        sorter.setSortable(6, true);
-        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // filter and sort results arrive later than the changes that caused them
+        sorter.addRowSorterListener(e -> {
+            if (e.getType() == RowSorterEvent.Type.SORTED) refreshStatus();
+        });
+        table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         table.setFillsViewportHeight(true);
         table.setAutoCreateRowSorter(false);
 
@@ -307,6 +251,43 @@ class AddressBookFrame extends JFrame {
         add(scrollPane, BorderLayout.CENTER);
     }
 
+    private void initFacetPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createEmptyBorder(4,4,4,4), BorderFactory.createTitledBorder("Filter")));
+
+        ButtonGroup mode = new ButtonGroup();
+        mode.add(matchAnyRb); mode.add(matchAllRb);
+        matchAnyRb.addActionListener(e -> applyFilters());
+        matchAllRb.addActionListener(e -> applyFilters());
+
+        tagPanel.setLayout(new BoxLayout(tagPanel, BoxLayout.Y_AXIS));
+        tagPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        matchAnyRb.setAlignmentX(Component.LEFT_ALIGNMENT);
+        matchAllRb.setAlignmentX(Component.LEFT_ALIGNMENT);
+        showFavoritesCheckbox.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        panel.add(showFavoritesCheckbox);
+        panel.add(Box.createVerticalStrut(8));
+        panel.add(tagPanel);
+        panel.add(Box.createVerticalStrut(8));
+        panel.add(matchAnyRb);
+        panel.add(matchAllRb);
+        add(panel, BorderLayout.WEST);
+
+        // counts follow the data; coalesced so a burst of model events costs one refresh
+        tableModel.addTableModelListener(e -> {
+            if (facetRefreshQueued) return;
+            facetRefreshQueued = true;
+            SwingUtilities.invokeLater(() -> {
+                facetRefreshQueued = false;
+                refreshFacets();
+            });
+        });
+        refreshFacets();
+    }
+
     private void initStatusBar() {
         JPanel statusPanel = new JPanel(new BorderLayout());
         statusPanel.setBorder(BorderFactory.createEmptyBorder(2,6,2,6));
@@ -332,13 +313,15 @@ class AddressBookFrame extends JFrame {
     private void onNew() {
         int r = JOptionPane.showConfirmDialog(this, "Create new address book? Current data will be lost.", "Confirm New", JOptionPane.YES_NO_OPTION);
         if (r == JOptionPane.YES_OPTION) {
+            stopWatching();
+            closeStore();
             tableModel.clear();
             updateStatus("New address book (cleared).");
         }
     }
 
     private void onAdd() {
-        ContactDialog dlg = new ContactDialog(this, "Add Contact", null);
+        ContactDialog dlg = new ContactDialog(this, "Add Contact", null, lookup);
         dlg.setVisible(true);
         Contact result = dlg.getResult();
         if (result != null) {
@@ -352,7 +335,7 @@ class AddressBookFrame extends JFrame {
         if (viewRow < 0) { JOptionPane.showMessageDialog(this, "Select a contact to edit."); return; }
         int modelRow = table.convertRowIndexToModel(viewRow);
         Contact old = tableModel.getContactAt(modelRow);
-        ContactDialog dlg = new ContactDialog(this, "Edit Contact", old);
+        ContactDialog dlg = new ContactDialog(this, "Edit Contact", old, lookup);
         dlg.setVisible(true);
         Contact updated = dlg.getResult();
         if (updated != null) {
@@ -362,32 +345,57 @@ class AddressBookFrame extends JFrame {
     }
 
     private void onDelete() {
-        int viewRow = table.getSelectedRow();
-        if (viewRow < 0) { JOptionPane.showMessageDialog(this, "Select a contact to delete."); return; }
-        int r = JOptionPane.showConfirmDialog(this, "Delete selected contact?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
+        int[] rows = selectedModelRows();
+        if (rows.length == 0) { JOptionPane.showMessageDialog(this, "Select a contact to delete."); return; }
+        String question = rows.length == 1 ? "Delete selected contact?" : "Delete " + rows.length + " selected contacts?";
+        int r = JOptionPane.showConfirmDialog(this, question, "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (r != JOptionPane.YES_OPTION) return;
-        int modelRow = table.convertRowIndexToModel(viewRow);
-        tableModel.removeContact(modelRow);
-        updateStatus("Contact deleted.");
+        tableModel.removeAll(rows);
+        updateStatus(rows.length == 1 ? "Contact deleted." : rows.length + " contacts deleted.");
     }
 
     private void onMarkFavorite() {
-        int viewRow = table.getSelectedRow();
-        if (viewRow < 0) { JOptionPane.showMessageDialog(this, "Select a contact."); return; }
-        int modelRow = table.convertRowIndexToModel(viewRow);
-        Contact c = tableModel.getContactAt(modelRow);
-        c.favorite = !c.favorite;
-        tableModel.fireTableRowsUpdated(modelRow, modelRow);
-        updateStatus(c.favorite ? "Marked as favorite." : "Unmarked favorite.");
+        int[] rows = selectedModelRows();
+        if (rows.length == 0) { JOptionPane.showMessageDialog(this, "Select a contact."); return; }
+        // a mixed selection becomes all favorites, an all-favorite one is unmarked
+        boolean mark = false;
+        for (int row : rows) mark |= !tableModel.getContactAt(row).favorite;
+        boolean favorite = mark;
+        tableModel.updateAll(rows, c -> c.favorite = favorite);
+        String what = rows.length == 1 ? "" : " " + rows.length + " contacts";
+        updateStatus(favorite ? "Marked" + what + " as favorite." : "Unmarked favorite" + what + ".");
+    }
+
+    private int[] selectedModelRows() {
+        int[] rows = table.getSelectedRows();
+        for (int i = 0; i < rows.length; i++) rows[i] = table.convertRowIndexToModel(rows[i]);
+        return rows;
     }
 
     private void onSave() {
         JFileChooser fileChooser = new JFileChooser();
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
             File f = fileChooser.getSelectedFile();
-            try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8))) {
-                for (Contact c : tableModel.getAll()) bw.write(c.toCSVLine() + "\n");
-                updateStatus("Saved to " + f.getName());
+            try {
+                // *.abk is the binary snapshot format with an autosave log, everything else is CSV
+                if (!isSnapshotName(f)) {
+                    long start = monitor.start();
+                    ContactCsv.writeFile(f.toPath(), tableModel.getAll());
+                    monitor.record("io.save.csv", start);
+                    // the book is safe elsewhere now, so the broken autosave can go
+                    if (store != null && store.isFailed()) closeStore();
+                    watchFile(f);
+                    updateStatus("Saved to " + f.getName());
+                } else if (store != null && store.getFile().getAbsoluteFile().equals(f.getAbsoluteFile())) {
+                    store.sync();
+                    updateStatus("Saved to " + f.getName());
+                } else {
+                    stopWatching();
+                    closeStore();
+                    store = ContactStore.create(f, tableModel.getAll());
+                    store.attach(tableModel, failureHandler(store));
+                    updateStatus("Saved to " + f.getName() + ", changes are now saved automatically");
+                }
             } catch (IOException ex) {
                 JOptionPane.showMessageDialog(this, "Error saving: " + ex.getMessage());
             }
@@ -398,189 +406,594 @@ class AddressBookFrame extends JFrame {
         JFileChooser fileChooser = new JFileChooser();
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             File f = fileChooser.getSelectedFile();
-            List<Contact> loaded = new ArrayList<>();
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    Contact c = Contact.fromCSVLine(line);
-                    if (c != null) loaded.add(c);
+            if (ContactSnapshot.isSnapshot(f)) {
+                // the open store of this same file would keep appending to the logs the loader replays and deletes
+                boolean reopening = store != null && store.getFile().getAbsoluteFile().equals(f.getAbsoluteFile());
+                if (reopening) closeStore();
+                // snapshot, log replay and compaction run on the worker; the open book stays until it is done
+                ContactStoreLoader loader = new ContactStoreLoader(f);
+                JDialog progress = createProgressDialog("Loading " + f.getName() + "...", loader);
+                long start = monitor.start();
+                loader.execute();
+                progress.setVisible(true);
+
+                try {
+                    ContactStore opened = loader.get();
+                    monitor.record("io.load.abk", start);
+                    stopWatching();
+                    closeStore();
+                    tableModel.replaceAll(opened.contacts());
+                    // attach only after loading, so the load itself is not logged
+                    opened.attach(tableModel, failureHandler(opened));
+                    store = opened;
+                    updateStatus("Loaded " + tableModel.getRowCount() + " contacts from " + f.getName());
+                } catch (CancellationException ex) {
+                    updateStatus(reopening ? "Loading cancelled; changes are no longer saved to " + f.getName()
+                            : "Loading cancelled, the address book was not changed");
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    if (reopening) updateStatus("Changes are no longer saved to " + f.getName());
+                    JOptionPane.showMessageDialog(this, "Error loading: " + cause.getMessage());
                 }
-                tableModel.clear();
-                for (Contact c : loaded) tableModel.addContact(c);
-                updateStatus("Loaded " + loaded.size() + " contacts from " + f.getName());
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Error loading: " + ex.getMessage());
+                return;
+            }
+            // the open book stays as it is until the whole file has loaded
+            ContactCsvLoader loader = new ContactCsvLoader(f);
+            JDialog progress = createProgressDialog("Loading " + f.getName() + "...", loader);
+            long start = monitor.start();
+            loader.execute();
+            progress.setVisible(true);
+
+            try {
+                CompactContactList loaded = loader.get();
+                monitor.record("io.load.csv", start);
+                stopWatching();
+                closeStore();
+                tableModel.replaceAll(loaded);
+                String skipped = loader.getRejected() > 0 ? " (" + loader.getRejected() + " invalid lines skipped)" : "";
+                watchFile(f);
+                updateStatus("Loaded " + loaded.size() + " contacts from " + f.getName() + skipped);
+            } catch (CancellationException ex) {
+                updateStatus("Loading cancelled, the address book was not changed");
+            } catch (InterruptedException | ExecutionException ex) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                JOptionPane.showMessageDialog(this, "Error loading: " + cause.getMessage());
             }
         }
     }
 
-    /* --- Helpers --- */
-    private void applyFilters() {
-        String text = searchField.getText().trim().toLowerCase();
-        boolean onlyFav = showFavoritesCheckbox.isSelected();
-        RowFilter<ContactsTableModel, Integer> rf = new RowFilter<ContactsTableModel, Integer>() {
-            public boolean include(Entry<? extends ContactsTableModel, ? extends Integer> entry) {
-                Contact c = tableModel.getContactAt(entry.getIdentifier());
-                boolean matchesSearch = text.isEmpty() ||
-                        c.firstName.toLowerCase().contains(text) ||
-                        c.lastName.toLowerCase().contains(text) ||
-                        c.phone.toLowerCase().contains(text) ||
-                        c.email.toLowerCase().contains(text) ||
-                        c.tags.stream().anyMatch(t -> t.toLowerCase().contains(text));
-                return matchesSearch && (!onlyFav || c.favorite);
+    private void onConvert() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Choose a CSV file or a ." + ContactSnapshot.EXTENSION + " snapshot to convert");
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        File src = fileChooser.getSelectedFile();
+        boolean toCsv = ContactSnapshot.isSnapshot(src);
+        String base = src.getName().contains(".") ? src.getName().substring(0, src.getName().lastIndexOf('.')) : src.getName();
+        File dst = new File(src.getParentFile(), base + (toCsv ? ".csv" : "." + ContactSnapshot.EXTENSION));
+        if (store != null && store.getFile().getAbsoluteFile().equals(dst.getAbsoluteFile())) {
+            JOptionPane.showMessageDialog(this, dst.getName() + " is the open address book. Use Save instead.");
+            return;
+        }
+        if (dst.exists()) {
+            int r = JOptionPane.showConfirmDialog(this, dst.getName() + " already exists. Overwrite?", "Confirm Convert", JOptionPane.YES_NO_OPTION);
+            if (r != JOptionPane.YES_OPTION) return;
+        }
+        try {
+            if (toCsv) ContactSnapshot.snapshotToCsv(src, dst);
+            else {
+                ContactSnapshot.csvToSnapshot(src, dst);
+                ContactStore.deleteLogs(dst);
             }
-        };
-        sorter.setRowFilter(rf);
-        updateStatus();
+            updateStatus("Converted " + src.getName() + " to " + dst.getName());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error converting: " + ex.getMessage());
+        }
     }
 
-    private void updateStatus() {
-        int total = tableModel.getRowCount();
-        int visible = table.getRowCount();
-        statusBar.setText("Total contacts: " + total + "    Visible: " + visible);
+    // Adds the cards to the current book; the file is read in the background
+    private void onImportVCard() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("vCard files (*.vcf)", ContactVCard.EXTENSION));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File f = fileChooser.getSelectedFile();
+
+        int before = tableModel.getRowCount();
+        ContactVCardLoader loader = new ContactVCardLoader(f, tableModel);
+        JDialog progress = createProgressDialog("Importing " + f.getName() + "...", loader);
+        loader.execute();
+        progress.setVisible(true);
+
+        try {
+            int loaded = loader.get();
+            updateStatus("Imported " + loaded + " contacts from " + f.getName()
+                    + (loader.getRejected() > 0 ? " (" + loader.getRejected() + " cards rejected)" : ""));
+        } catch (CancellationException ex) {
+            updateStatus("Import cancelled after " + (tableModel.getRowCount() - before) + " contacts");
+            return;
+        } catch (InterruptedException | ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            JOptionPane.showMessageDialog(this, "Error importing: " + cause.getMessage());
+            return;
+        }
+        if (loader.getRejected() > 0) {
+            List<String> cards = loader.getRejectedCards();
+            StringBuilder sb = new StringBuilder();
+            for (String c : cards) sb.append(c).append('\n');
+            if (loader.getRejected() > cards.size()) sb.append("... and ").append(loader.getRejected() - cards.size()).append(" more\n");
+            JTextArea area = new JTextArea(sb.toString(), 12, 50);
+            area.setEditable(false);
+            JOptionPane.showMessageDialog(this, new Object[]{loader.getRejected() + " cards were not imported:", new JScrollPane(area)},
+                    "Rejected Cards", JOptionPane.WARNING_MESSAGE);
+        }
     }
 
-    private void updateStatus(String msg) {
-        updateStatus();
-        statusBar.setText(msg + "    | Total: " + tableModel.getRowCount() + "    Visible: " + table.getRowCount());
+    private void onExportVCard() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("vCard files (*.vcf)", ContactVCard.EXTENSION));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File chosen = fileChooser.getSelectedFile();
+        File f = chosen.getName().contains(".") ? chosen : new File(chosen.getPath() + "." + ContactVCard.EXTENSION);
+
+        String[] versions = {"3.0", "4.0"};
+        int v = JOptionPane.showOptionDialog(this, "vCard version:", "Export vCard", JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE, null, versions, versions[0]);
+        if (v < 0) return;
+
+        List<Contact> snapshot = tableModel.snapshot();
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            protected Void doInBackground() throws IOException {
+                ContactVCard.writeFile(f.toPath(), snapshot, versions[v], this::setProgress, this::isCancelled);
+                return null;
+            }
+        };
+        JDialog progress = createProgressDialog("Exporting to " + f.getName() + "...", worker);
+        worker.execute();
+        progress.setVisible(true);
+
+        try {
+            worker.get();
+            updateStatus("Exported " + snapshot.size() + " contacts to " + f.getName());
+        } catch (CancellationException ex) {
+            updateStatus("Export cancelled, " + f.getName() + " is incomplete");
+        } catch (InterruptedException | ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            JOptionPane.showMessageDialog(this, "Error exporting: " + cause.getMessage());
+        }
     }
-}
 
-/* --- Custom dialog for Add/Edit --- */
-class ContactDialog extends JDialog {
-    private Contact result = null;
+    // Checks a CSV file against the ContactDialog rules without loading it
+    private void onValidateFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File f = fileChooser.getSelectedFile();
 
-    private final JTextField firstNameField = new JTextField(20);
-    private final JTextField lastNameField = new JTextField(20);
-    private final JTextField phoneField = new JTextField(20);
-    private final JTextField emailField = new JTextField(20);
-    private final JRadioButton maleRb = new JRadioButton("Male");
-    private final JRadioButton femaleRb = new JRadioButton("Female");
-    private final JRadioButton otherRb = new JRadioButton("Other");
-    private final JList<String> tagsList;
+        SwingWorker<ContactValidator.Report, Void> worker = new SwingWorker<ContactValidator.Report, Void>() {
+            protected ContactValidator.Report doInBackground() throws IOException {
+                return ContactValidator.validateFile(f, this::setProgress, this::isCancelled);
+            }
+        };
+        JDialog progress = createProgressDialog("Validating " + f.getName() + "...", worker);
+        worker.execute();
+        progress.setVisible(true);
+
+        ContactValidator.Report report;
+        try {
+            report = worker.get();
+        } catch (CancellationException ex) {
+            updateStatus("Validation cancelled");
+            return;
+        } catch (InterruptedException | ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            JOptionPane.showMessageDialog(this, "Error validating: " + cause.getMessage());
+            return;
+        }
+        JTextArea area = new JTextArea(report.toString(), 16, 50);
+        area.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(area), "Validation: " + f.getName(),
+                report.invalid() + report.duplicatePhones == 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        updateStatus(f.getName() + ": " + report.valid + " of " + report.records + " records valid");
+    }
 
-    private final JCheckBox favoriteCb = new JCheckBox("Favorite");
+    // Merges several department dumps into one CSV; the open book is not touched
+    private void onMergeFiles() {
+        JFileChooser in = new JFileChooser();
+        in.setDialogTitle("Choose the CSV files to merge");
+        in.setMultiSelectionEnabled(true);
+        in.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        if (in.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        List<File> inputs = ContactMerge.byModified(Arrays.asList(in.getSelectedFiles()));
+        if (inputs.size() < 2) {
+            JOptionPane.showMessageDialog(this, "Choose at least two files.");
+            return;
+        }
 
-    ContactDialog(Frame owner, String title, Contact existing) {
-        super(owner, title, true);
-        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        JComboBox<ContactMerge.FieldRule> fieldsBox = new JComboBox<>(ContactMerge.FieldRule.values());
+        JCheckBox unionBox = new JCheckBox("Keep the tags of all records", true);
+        JCheckBox favoriteBox = new JCheckBox("Favorite if any record is", true);
+        JPanel rulesPanel = new JPanel(new GridLayout(0, 1, 4, 4));
+        rulesPanel.add(new JLabel("Contacts with the same phone are merged. Newer files count as later."));
+        rulesPanel.add(fieldsBox);
+        rulesPanel.add(unionBox);
+        rulesPanel.add(favoriteBox);
+        if (JOptionPane.showConfirmDialog(this, rulesPanel, "Merge " + inputs.size() + " Files",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) return;
+        ContactMerge.Rules rules = new ContactMerge.Rules((ContactMerge.FieldRule) fieldsBox.getSelectedItem(),
+                unionBox.isSelected(), favoriteBox.isSelected());
+
+        JFileChooser out = new JFileChooser(inputs.get(0).getParentFile());
+        out.setDialogTitle("Save the merged contacts as");
+        out.setSelectedFile(new File(inputs.get(0).getParentFile(), "merged.csv"));
+        if (out.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File dst = out.getSelectedFile();
+        if (inputs.stream().anyMatch(f -> f.getAbsoluteFile().equals(dst.getAbsoluteFile()))) {
+            JOptionPane.showMessageDialog(this, dst.getName() + " is one of the inputs. Choose another name.");
+            return;
+        }
+        if (dst.exists()) {
+            int r = JOptionPane.showConfirmDialog(this, dst.getName() + " already exists. Overwrite?", "Confirm Merge", JOptionPane.YES_NO_OPTION);
+            if (r != JOptionPane.YES_OPTION) return;
+        }
 
-        String[] allTags = {"me", "family", "friend", "work", "school", "gym", "other"};
-        tagsList = new JList<>(allTags);
-        tagsList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        SwingWorker<ContactMerge.Report, Void> worker = new SwingWorker<ContactMerge.Report, Void>() {
+            protected ContactMerge.Report doInBackground() throws IOException {
+                return ContactMerge.merge(inputs, dst, rules, this::setProgress, this::isCancelled);
+            }
+        };
+        JDialog progress = createProgressDialog("Merging " + inputs.size() + " files...", worker);
+        worker.execute();
+        progress.setVisible(true);
+
+        ContactMerge.Report report;
+        try {
+            report = worker.get();
+        } catch (CancellationException ex) {
+            updateStatus("Merge cancelled");
+            return;
+        } catch (InterruptedException | ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            JOptionPane.showMessageDialog(this, "Error merging: " + cause.getMessage());
+            return;
+        }
+        JTextArea area = new JTextArea(report.toString(), 16, 50);
+        area.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(area), "Merged into " + dst.getName(), JOptionPane.INFORMATION_MESSAGE);
+        updateStatus("Merged " + report.records + " records from " + report.files + " files into "
+                + report.written + " contacts in " + dst.getName());
+    }
 
-        JPanel main = new JPanel(new GridBagLayout());
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.insets = new Insets(6,6,6,6);
-        gbc.anchor = GridBagConstraints.WEST;
+    private void onExportLatency() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("latency-report.json"));
+        chooser.setFileFilter(new FileNameExtensionFilter("JSON report (*.json)", "json"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File f = chooser.getSelectedFile();
+        try {
+            monitor.writeJson(f);
+            updateStatus("Latency report saved to " + f.getName());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error saving report: " + ex.getMessage());
+        }
+    }
 
-        int row = 0;
-        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("First Name:"), gbc);
-        gbc.gridx = 1; main.add(firstNameField, gbc); row++;
+    private void onFindDuplicates() {
+        List<Contact> snapshot = tableModel.snapshot();
+        long version = tableModel.getVersion();
+        SwingWorker<List<ContactDedup.Group>, Void> worker = new SwingWorker<List<ContactDedup.Group>, Void>() {
+            protected List<ContactDedup.Group> doInBackground() {
+                // decoded once here rather than on every access during scoring
+                return ContactDedup.find(new ArrayList<>(snapshot), this::setProgress, this::isCancelled);
+            }
+        };
+        JDialog progress = createProgressDialog("Looking for duplicates...", worker);
+        worker.execute();
+        progress.setVisible(true);
+
+        List<ContactDedup.Group> groups;
+        try {
+            groups = worker.get();
+        } catch (CancellationException ex) {
+            updateStatus("Duplicate search cancelled");
+            return;
+        } catch (InterruptedException | ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage());
+            return;
+        }
+        if (groups.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No duplicates found.");
+            return;
+        }
 
-        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Last Name:"), gbc);
-        gbc.gridx = 1; main.add(lastNameField, gbc); row++;
+        DuplicatesDialog dlg = new DuplicatesDialog(this, snapshot, groups);
+        dlg.setVisible(true);
+        List<ContactDedup.Group> chosen = dlg.getSelectedGroups();
+        if (chosen.isEmpty()) return;
+
+        // the first contact of each group takes the merged values, the others are removed
+        Contact[] merged = new Contact[chosen.size()];
+        int[] keep = new int[chosen.size()];
+        List<Integer> removed = new ArrayList<>();
+        for (int k = 0; k < chosen.size(); k++) {
+            ContactDedup.Group g = chosen.get(k);
+            List<Contact> members = new ArrayList<>();
+            for (int r : g.rows) members.add(snapshot.get(r));
+            merged[k] = ContactDedup.merge(members);
+            keep[k] = g.rows[0];
+            for (int i = 1; i < g.rows.length; i++) removed.add(g.rows[i]);
+        }
+        // the file watcher or the HTTP API may have changed the book while the dialogs were open
+        if (tableModel.getVersion() != version && !unchanged(snapshot, chosen)) {
+            JOptionPane.showMessageDialog(this, "The address book changed while duplicates were being reviewed.\n"
+                    + "Nothing was merged; run Find Duplicates again.");
+            return;
+        }
+        tableModel.setAll(keep, merged);
+        tableModel.removeAll(removed.stream().mapToInt(Integer::intValue).toArray());
+        updateStatus("Merged " + chosen.size() + " duplicate groups, removed " + removed.size() + " contacts.");
+    }
 
-        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Phone:"), gbc);
-        gbc.gridx = 1; main.add(phoneField, gbc); row++;
+    // true if every row of the groups still holds the contact it had in the snapshot
+    private boolean unchanged(List<Contact> snapshot, List<ContactDedup.Group> groups) {
+        for (ContactDedup.Group g : groups) {
+            for (int r : g.rows) {
+                if (r >= tableModel.getRowCount()) return false;
+                if (!tableModel.getContactAt(r).toCSVLine().equals(snapshot.get(r).toCSVLine())) return false;
+            }
+        }
+        return true;
+    }
+
+    private void closeStore() {
+        if (store == null) return;
+        boolean reported = store.isFailed();
+        try {
+            store.close();
+        } catch (IOException ex) {
+            if (!reported) JOptionPane.showMessageDialog(this, "Error saving " + store.getFile().getName() + ": " + ex.getMessage());
+        }
+        store = null;
+    }
 
-        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Email:"), gbc);
-        gbc.gridx = 1; main.add(emailField, gbc); row++;
+    // Autosave stopped working: say so right away and offer to save the book somewhere else
+    private Consumer<IOException> failureHandler(ContactStore s) {
+        return ex -> {
+            if (store != s) return;
+            String name = s.getFile().getName();
+            updateStatus("Autosave to " + name + " failed, changes are not being saved: " + ex.getMessage());
+            int r = JOptionPane.showConfirmDialog(this,
+                    "Changes can no longer be saved to " + name + ":\n" + ex.getMessage()
+                            + "\n\nSave the address book to another file?",
+                    "Autosave Failed", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (r == JOptionPane.YES_OPTION) onSave();
+        };
+    }
 
-        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Gender:"), gbc);
-        gbc.gridx = 1;
-        JPanel genders = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
-        ButtonGroup bg = new ButtonGroup();
-        bg.add(maleRb); bg.add(femaleRb); bg.add(otherRb);
-        genders.add(maleRb); genders.add(femaleRb); genders.add(otherRb);
-        main.add(genders, gbc); row++;
+    // Picks up changes other programs make to the CSV file, see ContactFileWatcher
+    private void watchFile(File f) {
+        stopWatching();
+        try {
+            watcher = new ContactFileWatcher(f, tableModel, this::updateStatus);
+        } catch (IOException ex) {
+            updateStatus("Not watching " + f.getName() + " for changes: " + ex.getMessage());
+        }
+    }
 
-        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Tags:"), gbc);
-        gbc.gridx = 1;
-        JScrollPane tagsScroller = new JScrollPane(tagsList);
-        tagsScroller.setPreferredSize(new Dimension(200, 80));
-        main.add(tagsScroller, gbc); row++;
+    private void stopWatching() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException ignored) {
+        }
+        watcher = null;
+    }
 
-        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Favorite:"), gbc);
-        gbc.gridx = 1; main.add(favoriteCb, gbc); row++;
+    private void startHttpServer() {
+        if (service == null) service = new ContactService(tableModel);
+        try {
+            httpServer = new ContactHttpServer(service, ContactHttpServer.DEFAULT_PORT);
+            httpServer.start();
+            updateStatus("HTTP API on http://127.0.0.1:" + httpServer.getPort() + "/contacts");
+        } catch (IOException ex) {
+            httpServer = null;
+            JOptionPane.showMessageDialog(this, "Cannot start the HTTP API: " + ex.getMessage());
+        }
+    }
 
-        JPanel btns = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-        JButton ok = new JButton("OK");
-        JButton cancel = new JButton("Cancel");
-        btns.add(ok);
-        btns.add(cancel);
+    private void stopHttpServer() {
+        if (httpServer == null) return;
+        httpServer.stop();
+        httpServer = null;
+        updateStatus("HTTP API stopped");
+    }
 
-        ok.addActionListener(e -> onOK());
-        cancel.addActionListener(e -> {
-            result = null;
-            dispose();
-        });
+    private static boolean isSnapshotName(File f) {
+        return f.getName().toLowerCase().endsWith("." + ContactSnapshot.EXTENSION);
+    }
 
-        getContentPane().setLayout(new BorderLayout());
-        getContentPane().add(main, BorderLayout.CENTER);
-        getContentPane().add(btns, BorderLayout.SOUTH);
-        pack();
-        setLocationRelativeTo(owner);
+    // Modal progress dialog bound to a worker; closes itself when the worker finishes
+    private JDialog createProgressDialog(String title, SwingWorker<?, ?> worker) {
+        JDialog dlg = new JDialog(this, title, true);
+        dlg.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
 
-        if (existing != null) {
-            firstNameField.setText(existing.firstName);
-            lastNameField.setText(existing.lastName);
-            phoneField.setText(existing.phone);
-            emailField.setText(existing.email);
-            favoriteCb.setSelected(existing.favorite);
-            switch (existing.gender.toLowerCase()) {
-                case "male": maleRb.setSelected(true); break;
-                case "female": femaleRb.setSelected(true); break;
-                default: otherRb.setSelected(true); break;
-            }
-            ListModel<String> lm = tagsList.getModel();
-            List<Integer> sel = new ArrayList<>();
-            for (int i=0;i<lm.getSize();i++) {
-                if (existing.tags.contains(lm.getElementAt(i))) sel.add(Integer.valueOf(i));
+        JProgressBar bar = new JProgressBar(0, 100);
+        bar.setStringPainted(true);
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(e -> worker.cancel(true));
+
+        JPanel p = new JPanel(new BorderLayout(6, 6));
+        p.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        p.add(bar, BorderLayout.CENTER);
+        p.add(cancel, BorderLayout.EAST);
+        dlg.getContentPane().add(p);
+        dlg.setSize(400, 90);
+        dlg.setLocationRelativeTo(this);
+
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                bar.setValue((Integer) e.getNewValue());
+            } else if ("state".equals(e.getPropertyName()) && e.getNewValue() == SwingWorker.StateValue.DONE) {
+                // let already queued batches reach the model before the caller continues
+                SwingUtilities.invokeLater(dlg::dispose);
             }
-            int[] idx = sel.stream().mapToInt(Integer::intValue).toArray();
-            tagsList.setSelectedIndices(idx);
+        });
+        return dlg;
+    }
+
+    /* --- Helpers --- */
+    private void applyFilters() {
+        long start = monitor.start();
+        String text = searchField.getText().trim().toLowerCase();
+        // evaluated in the background; the table catches up when the sorter fires SORTED
+        if (ContactLookup.isPhonePrefix(text)) {
+            sorter.setFilter("", () -> and(lookup.phonePrefix(text), facetRows()));
+        } else if (text.length() > 1 && text.startsWith("@")) {
+            sorter.setFilter("", () -> and(lookup.domain(text), facetRows()));
         } else {
-            otherRb.setSelected(true);
+            sorter.setFilter(text, this::facetRows);
         }
+        refreshFacets();
+        updateStatus();
+        monitor.record("filter.apply", start);
     }
 
-    private void onOK() {
-        String fn = firstNameField.getText().trim();
-        String ln = lastNameField.getText().trim();
-        String ph = phoneField.getText().trim();
-        String em = emailField.getText().trim();
-        String gender = maleRb.isSelected() ? "Male" : femaleRb.isSelected() ? "Female" : "Other";
-        List<String> tags = tagsList.getSelectedValuesList();
+    // Rows allowed by the facet panel, null if no facet is selected
+    private BitSet facetRows() {
+        return facets.select(selectedTags(), matchAllRb.isSelected(), showFavoritesCheckbox.isSelected());
+    }
 
-        if (ph.isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                    "Phone number is required.",
-                    "Validation Error", JOptionPane.WARNING_MESSAGE);
-            return;
+    private static BitSet and(BitSet rows, BitSet facetRows) {
+        if (facetRows != null) rows.and(facetRows);
+        return rows;
+    }
+
+    private List<String> selectedTags() {
+        List<String> selected = new ArrayList<>();
+        for (Map.Entry<String, JCheckBox> e : tagBoxes.entrySet()) {
+            if (e.getValue().isSelected()) selected.add(e.getKey());
         }
+        return selected;
+    }
 
-        // phone validation
-        if (!ph.matches("^\\+380\\d{9}$")) {
-            JOptionPane.showMessageDialog(this,
-                    "Invalid phone format. Use +380XXXXXXXXX (e.g. +380501234567)",
-                    "Validation Error", JOptionPane.ERROR_MESSAGE);
-            return;
+    // Each count is taken within the other facet group, i.e. what checking that box would show
+    private void refreshFacets() {
+        boolean added = false;
+        for (String tag : facets.tags()) {
+            if (tagBoxes.containsKey(tag)) continue;
+            JCheckBox cb = new JCheckBox(tag);
+            cb.addActionListener(e -> applyFilters());
+            tagBoxes.put(tag, cb);
+            tagPanel.add(cb);
+            added = true;
         }
+        if (added) tagPanel.revalidate();
 
-        // email validation
-        if (!em.isEmpty() && !em.matches("^[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,6}$")) {
-            JOptionPane.showMessageDialog(this,
-                    "Invalid email format. Example: example@gmail.com",
-                    "Validation Error", JOptionPane.ERROR_MESSAGE);
-            return;
+        BitSet favs = showFavoritesCheckbox.isSelected() ? facets.favorites() : null;
+        for (Map.Entry<String, JCheckBox> e : tagBoxes.entrySet()) {
+            e.getValue().setText(e.getKey() + " (" + facets.count(facets.tag(e.getKey()), favs) + ")");
         }
+        BitSet tagged = facets.select(selectedTags(), matchAllRb.isSelected(), false);
+        showFavoritesCheckbox.setText("Favorites only (" + facets.count(facets.favorites(), tagged) + ")");
+    }
+
+    private void updateStatus() {
+        statusMessage = null;
+        refreshStatus();
+    }
 
-        result = new Contact(fn, ln, ph, em, gender, tags, favoriteCb.isSelected());
-        dispose();
+    private void updateStatus(String msg) {
+        statusMessage = msg;
+        refreshStatus();
     }
 
+    private void refreshStatus() {
+        String visible = "Visible: " + table.getRowCount() + (sorter.isBusy() ? " (updating...)" : "");
+        if (statusMessage == null) {
+            statusBar.setText("Total contacts: " + tableModel.getRowCount() + "    " + visible);
+        } else {
+            statusBar.setText(statusMessage + "    | Total: " + tableModel.getRowCount() + "    " + visible);
+        }
+    }
+}
+
+/* --- Merge suggestions from ContactDedup --- */
+class DuplicatesDialog extends JDialog {
+    private final List<ContactDedup.Group> groups;
+    private final boolean[] merge;
+    private List<ContactDedup.Group> selected = Collections.emptyList();
 
+    DuplicatesDialog(Frame owner, List<Contact> contacts, List<ContactDedup.Group> groups) {
+        super(owner, "Duplicates (" + groups.size() + " groups)", true);
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        this.groups = groups;
+        this.merge = new boolean[groups.size()];
+
+        String[] columns = {"Merge", "Score", "Reason", "Contacts"};
+        AbstractTableModel model = new AbstractTableModel() {
+            public int getRowCount() { return groups.size(); }
+            public int getColumnCount() { return columns.length; }
+            public String getColumnName(int col) { return columns[col]; }
+            public Class<?> getColumnClass(int col) { return col == 0 ? Boolean.class : String.class; }
+            public boolean isCellEditable(int r, int c) { return c == 0; }
+
+            public Object getValueAt(int row, int col) {
+                ContactDedup.Group g = groups.get(row);
+                switch (col) {
+                    case 0: return merge[row];
+                    case 1: return String.format("%.0f%%", g.score * 100);
+                    case 2: return g.reason;
+                    case 3:
+                        StringBuilder sb = new StringBuilder();
+                        for (int r : g.rows) {
+                            Contact c = contacts.get(r);
+                            if (sb.length() > 0) sb.append("  |  ");
+                            sb.append(c.firstName).append(' ').append(c.lastName).append(", ").append(c.phone);
+                            if (!c.email.isEmpty()) sb.append(", ").append(c.email);
+                        }
+                        return sb.toString();
+                }
+                return "";
+            }
+
+            public void setValueAt(Object value, int row, int col) {
+                merge[row] = (Boolean) value;
+                fireTableCellUpdated(row, col);
+            }
+        };
+
+        JTable table = new JTable(model);
+        table.getColumnModel().getColumn(0).setMaxWidth(60);
+        table.getColumnModel().getColumn(1).setMaxWidth(60);
+        table.getColumnModel().getColumn(2).setPreferredWidth(140);
+        table.getColumnModel().getColumn(3).setPreferredWidth(600);
+
+        JPanel btns = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton all = new JButton("Select All");
+        JButton ok = new JButton("Merge Selected");
+        JButton cancel = new JButton("Cancel");
+        btns.add(all);
+        btns.add(ok);
+        btns.add(cancel);
+
+        all.addActionListener(e -> {
+            Arrays.fill(merge, true);
+            model.fireTableDataChanged();
+        });
+        ok.addActionListener(e -> {
+            selected = new ArrayList<>();
+            for (int i = 0; i < merge.length; i++) {
+                if (merge[i]) selected.add(groups.get(i));
+            }
+            dispose();
+        });
+        cancel.addActionListener(e -> dispose());
+
+        getContentPane().setLayout(new BorderLayout());
+        getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+        getContentPane().add(btns, BorderLayout.SOUTH);
+        setSize(900, 450);
+        setLocationRelativeTo(owner);
+    }
 
-    Contact getResult() { return result; }
+    List<ContactDedup.Group> getSelectedGroups() { return selected; }
 }
@@ -0,0 +1,613 @@
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/* --- Compact storage for ContactsTableModel ---
+ * A List<Contact> that does not keep Contact objects. Per row there is
+ *   - the offset of its record in a shared byte arena: first name, last name,
+ *     phone, email and an overflow string, each as varint length + UTF-8,
+ *   - one meta byte: gender as an index into a small dictionary, a favorite
+ *     bit and a bit saying the tags live in the record,
+ *   - a tag bitmask over a tag dictionary of up to 64 tags.
+ * That is 13 bytes plus about one byte per character, instead of a Contact,
+ * five Strings and an ArrayList.
+ *
+ * get() builds a detached Contact; set() and add() encode one, and
+ * addEncoded() takes text that is already UTF-8, e.g. from a snapshot. The
+ * table reads single fields through value() without building anything. Edits
+ * append a new record, and the arena is compacted once more than half of it
+ * is dead. Bytes already written are never changed, so snapshot() is a copy
+ * of the per-row arrays only and can be read from other threads while the
+ * list keeps changing.
+ */
+final class CompactContactList extends AbstractList<Contact> implements RandomAccess {
+    private static final int MAX_TAGS = 64;
+    private static final int GENDER_MASK = 0x3F;
+    private static final int GENDER_IN_RECORD = 0x3F;   // dictionary full, the text is in the record
+    private static final int TAGS_IN_RECORD = 0x40;     // unusual tag order or too many tags
+    private static final int FAVORITE = 0x80;
+    private static final char OVERFLOW_SEP = '\u0000';
+    private static final int MIN_COMPACT_BYTES = 1 << 20;
+
+    // Append-only value table, shared by a list and its snapshots
+    private static final class Dictionary {
+        private volatile String[] values;
+        private final Map<String, Integer> index = new HashMap<>();   // owner thread only
+        private final int max;
+
+        Dictionary(String[] seed, int max) {
+            this.values = new String[0];
+            this.max = max;
+            for (String s : seed) indexOf(s, true);
+        }
+
+        String get(int i) { return values[i]; }
+
+        // index of s, added if there is room; -1 if unknown and the dictionary is full
+        int indexOf(String s, boolean add) {
+            Integer i = index.get(s);
+            if (i != null) return i;
+            String[] v = values;
+            if (!add || v.length == max) return -1;
+            String[] grown = Arrays.copyOf(v, v.length + 1);
+            grown[v.length] = s;
+            index.put(s, v.length);
+            values = grown;
+            return v.length;
+        }
+    }
+
+    private final Dictionary genders;
+    private final Dictionary tags;
+    private final boolean readOnly;
+
+    private int size;
+    private int[] offsets;
+    private byte[] meta;
+    private long[] tagMasks;
+
+    private byte[] arena;
+    private int arenaUsed;
+    private long liveBytes;
+
+    CompactContactList(String[] knownTags) {
+        this.genders = new Dictionary(new String[]{"", "Male", "Female", "Other"}, GENDER_IN_RECORD);
+        this.tags = new Dictionary(knownTags, MAX_TAGS);
+        this.readOnly = false;
+        this.offsets = new int[16];
+        this.meta = new byte[16];
+        this.tagMasks = new long[16];
+        this.arena = new byte[4096];
+    }
+
+    private CompactContactList(CompactContactList src) {
+        this.genders = src.genders;
+        this.tags = src.tags;
+        this.readOnly = true;
+        this.size = src.size;
+        this.offsets = Arrays.copyOf(src.offsets, src.size);
+        this.meta = Arrays.copyOf(src.meta, src.size);
+        this.tagMasks = Arrays.copyOf(src.tagMasks, src.size);
+        this.arena = src.arena;
+        this.arenaUsed = src.arenaUsed;
+        this.liveBytes = src.liveBytes;
+    }
+
+    /** Read-only copy of the current rows; safe to read on any thread. */
+    CompactContactList snapshot() {
+        return new CompactContactList(this);
+    }
+
+    /* --- Field access without building a Contact --- */
+
+    String firstName(int row) { return string(row, 0); }
+    String lastName(int row) { return string(row, 1); }
+    String phone(int row) { return string(row, 2); }
+    String email(int row) { return string(row, 3); }
+
+    String gender(int row) {
+        check(row);
+        int g = meta[row] & GENDER_MASK;
+        return g == GENDER_IN_RECORD ? overflow(row).get(0) : genders.get(g);
+    }
+
+    boolean isFavorite(int row) {
+        check(row);
+        return (meta[row] & FAVORITE) != 0;
+    }
+
+    List<String> tags(int row) {
+        check(row);
+        List<String> out = new ArrayList<>();
+        if ((meta[row] & TAGS_IN_RECORD) != 0) {
+            List<String> o = overflow(row);
+            out.addAll(o.subList(1, o.size()));
+        } else {
+            long mask = tagMasks[row];
+            while (mask != 0) {
+                out.add(tags.get(Long.numberOfTrailingZeros(mask)));
+                mask &= mask - 1;
+            }
+        }
+        return out;
+    }
+
+    /** Dictionary bits of a row's tags; 0 if they are kept in the record instead. */
+    long tagMask(int row) {
+        check(row);
+        return tagMasks[row];
+    }
+
+    /** True if the row's tags are kept in its record; {@link #tagMask} is 0 then. */
+    boolean tagsInRecord(int row) {
+        check(row);
+        return (meta[row] & TAGS_IN_RECORD) != 0;
+    }
+
+    /** The tag behind dictionary bit {@code bit} of {@link #tagMask}. */
+    String tagName(int bit) {
+        return tags.get(bit);
+    }
+
+    /** Dictionary bit of {@code tag}, added if there is room; -1 once the dictionary is full. */
+    int tagBit(String tag) {
+        checkWritable();
+        return tags.indexOf(tag, true);
+    }
+
+    /** Dictionary bits of every known tag whose lower-cased name contains {@code text}. */
+    long tagsContaining(String text) {
+        String[] v = tags.values;
+        long mask = 0;
+        for (int i = 0; i < v.length; i++) {
+            if (v[i].toLowerCase().contains(text)) mask |= 1L << i;
+        }
+        return mask;
+    }
+
+    /** A reader for searching this list; one per thread. */
+    LowerCaseReader reader() {
+        return new LowerCaseReader();
+    }
+
+    /**
+     * Decodes the searchable fields of a row straight from the arena into a reused char
+     * buffer, lower-cased, so that searching the whole book builds no Strings.
+     */
+    final class LowerCaseReader {
+        static final int FIELDS = 5;
+        char[] chars = new char[64];
+
+        /**
+         * Fills {@link #chars} with field 0..3 (first name, last name, phone, email) or 4,
+         * the tags kept in the record, separated by '\0'. Returns the length.
+         */
+        int read(int row, int field) {
+            check(row);
+            byte[] a = arena;
+            int p = offsets[row];
+            for (int f = 0; ; f++) {
+                int len = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = a[p++];
+                    len |= (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                if (f < field) {
+                    p += len;
+                    continue;
+                }
+                int end = p + len;
+                if (field == 4) {
+                    // the gender comes first and is not searched
+                    if ((meta[row] & TAGS_IN_RECORD) == 0) return 0;
+                    while (p < end && a[p] != OVERFLOW_SEP) p++;
+                }
+                return decode(a, p, end);
+            }
+        }
+
+        /**
+         * True if a name, the phone, the email or a tag of {@code row} contains {@code text}
+         * (lower-cased); {@code tagBits} is {@link #tagsContaining} of the text.
+         */
+        boolean contains(int row, String text, long tagBits) {
+            check(row);
+            if ((tagMasks[row] & tagBits) != 0) return true;
+            byte[] a = arena;
+            int p = offsets[row];
+            for (int f = 0; f < FIELDS; f++) {
+                int len = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = a[p++];
+                    len |= (b & 0x7F) << shift;
+                    if (b >= 0) break;
+                }
+                int from = p, end = p + len;
+                p = end;
+                if (f == 4) {
+                    if ((meta[row] & TAGS_IN_RECORD) == 0) return false;
+                    while (from < end && a[from] != OVERFLOW_SEP) from++;
+                }
+                if (end - from < text.length()) continue;
+                if (asciiText(text)) {
+                    // other chars never equal an ASCII one once lower-cased, except a few that start with these bytes
+                    if (asciiIndexOf(a, from, end, text) >= 0) return true;
+                    if (!hasByte(a, from, end, (byte) 0xC4, (byte) 0xE2)) continue;
+                } else if (!hasByte(a, from, end, Byte.MIN_VALUE, Byte.MIN_VALUE)) {
+                    continue;   // ASCII only
+                }
+                if (indexOf(decode(a, from, end), text) >= 0) return true;
+            }
+            return false;
+        }
+
+        private String asciiChecked;
+        private boolean asciiText;
+
+        private boolean asciiText(String text) {
+            if (text != asciiChecked) {
+                asciiChecked = text;
+                asciiText = text.chars().allMatch(ch -> ch < 0x80);
+            }
+            return asciiText;
+        }
+
+        // x or y, or any non-ASCII byte if both are Byte.MIN_VALUE
+        private boolean hasByte(byte[] a, int from, int end, byte x, byte y) {
+            for (int q = from; q < end; q++) {
+                byte b = a[q];
+                if (b == x || b == y || (x == Byte.MIN_VALUE && b < 0)) return true;
+            }
+            return false;
+        }
+
+        // lower-cases ASCII letters only; any other byte never equals an ASCII char of text
+        private int asciiIndexOf(byte[] a, int from, int end, String text) {
+            int m = text.length();
+            char first = text.charAt(0);
+            for (int i = from, last = end - m; i <= last; i++) {
+                int b = a[i];
+                if (b != first && b + 32 != first) continue;
+                if (b + 32 == first && (b < 'A' || b > 'Z')) continue;
+                int j = 1;
+                while (j < m && lower(a[i + j]) == text.charAt(j)) j++;
+                if (j == m) return i;
+            }
+            return -1;
+        }
+
+        private static int lower(int b) {
+            return b >= 'A' && b <= 'Z' ? b + 32 : b;
+        }
+
+        private int indexOf(int length, String text) {
+            int m = text.length();
+            outer:
+            for (int i = 0; i + m <= length; i++) {
+                for (int j = 0; j < m; j++) {
+                    if (chars[i + j] != text.charAt(j)) continue outer;
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        private int decode(byte[] a, int p, int end) {
+            if (chars.length < end - p) chars = new char[Math.max(end - p, chars.length * 2)];
+            int n = 0;
+            while (p < end) {
+                int b = a[p++];
+                if (b >= 0) {
+                    chars[n++] = b >= 'A' && b <= 'Z' ? (char) (b + 32) : (char) b;
+                    continue;
+                }
+                if ((b & 0xE0) == 0xC0) {
+                    chars[n++] = Character.toLowerCase((char) ((b & 0x1F) << 6 | (a[p++] & 0x3F)));
+                } else if ((b & 0xF0) == 0xE0) {
+                    chars[n++] = Character.toLowerCase((char) ((b & 0x0F) << 12 | (a[p++] & 0x3F) << 6 | (a[p++] & 0x3F)));
+                } else {
+                    int cp = (b & 0x07) << 18 | (a[p++] & 0x3F) << 12 | (a[p++] & 0x3F) << 6 | (a[p++] & 0x3F);
+                    // two chars for the four bytes just read
+                    n += Character.toChars(Character.toLowerCase(cp), chars, n);
+                }
+            }
+            return n;
+        }
+    }
+
+    /** The table text of column {@code col} (see ContactsTableModel). */
+    String value(int row, int col) {
+        switch (col) {
+            case 0: return firstName(row);
+            case 1: return lastName(row);
+            case 2: return phone(row);
+            case 3: return email(row);
+            case 4: return gender(row);
+            case 5: return String.join(", ", tags(row));
+            case 6: return isFavorite(row) ? "★" : "";
+        }
+        return "";
+    }
+
+    /* --- List --- */
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public Contact get(int row) {
+        return new Contact(firstName(row), lastName(row), phone(row), email(row), gender(row), tags(row), isFavorite(row));
+    }
+
+    @Override
+    public Contact set(int row, Contact c) {
+        checkWritable();
+        Contact old = get(row);
+        liveBytes -= recordLength(offsets[row]);
+        encode(row, c);
+        compactIfSparse();
+        return old;
+    }
+
+    @Override
+    public boolean add(Contact c) {
+        checkWritable();
+        ensureRows(size + 1);
+        encode(size++, c);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Contact> batch) {
+        checkWritable();
+        ensureRows(size + batch.size());
+        for (Contact c : batch) encode(size++, c);
+        modCount++;
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Appends a row without building a Contact. First name, last name, phone and email are
+     * UTF-8 bytes {@code utf8[from[f], from[f] + length[f])}, copied as they are. {@code mask}
+     * holds {@link #tagBit} bits that give back the row's tags in order; if they do not,
+     * pass the tags as {@code recordTags} and they are kept in the record.
+     */
+    void addEncoded(byte[] utf8, int[] from, int[] length, String gender, boolean favorite,
+                    long mask, List<String> recordTags) {
+        checkWritable();
+        ensureRows(size + 1);
+        int start = arenaUsed;
+        for (int f = 0; f < 4; f++) putBytes(utf8, from[f], length[f]);
+        finishRecord(size++, start, gender, favorite, mask, recordTags);
+        modCount++;
+    }
+
+    @Override
+    public void add(int row, Contact c) {
+        checkWritable();
+        if (row < 0 || row > size) throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+        ensureRows(size + 1);
+        System.arraycopy(offsets, row, offsets, row + 1, size - row);
+        System.arraycopy(meta, row, meta, row + 1, size - row);
+        System.arraycopy(tagMasks, row, tagMasks, row + 1, size - row);
+        size++;
+        encode(row, c);
+        modCount++;
+    }
+
+    @Override
+    public Contact remove(int row) {
+        Contact old = get(row);
+        removeRange(row, row + 1);
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int from, int to) {
+        checkWritable();
+        for (int r = from; r < to; r++) liveBytes -= recordLength(offsets[r]);
+        System.arraycopy(offsets, to, offsets, from, size - to);
+        System.arraycopy(meta, to, meta, from, size - to);
+        System.arraycopy(tagMasks, to, tagMasks, from, size - to);
+        size -= to - from;
+        modCount++;
+        compactIfSparse();
+    }
+
+    /** Removes the given ascending, distinct rows in one pass. */
+    void removeRows(int[] sorted) {
+        checkWritable();
+        if (sorted.length == 0) return;
+        int w = sorted[0], k = 0;
+        for (int r = sorted[0]; r < size; r++) {
+            if (k < sorted.length && sorted[k] == r) {
+                liveBytes -= recordLength(offsets[r]);
+                k++;
+                continue;
+            }
+            offsets[w] = offsets[r];
+            meta[w] = meta[r];
+            tagMasks[w] = tagMasks[r];
+            w++;
+        }
+        size = w;
+        modCount++;
+        compactIfSparse();
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        size = 0;
+        arenaUsed = 0;
+        liveBytes = 0;
+        // snapshots may still read the old arena
+        arena = new byte[4096];
+        modCount++;
+    }
+
+    /* --- Encoding --- */
+
+    private void encode(int row, Contact c) {
+        // tags go in the mask only if that gives back the same list: known, no repeats, dictionary order
+        long mask = 0;
+        int previous = -1;
+        boolean inMask = true;
+        for (String t : c.tags) {
+            int i = tags.indexOf(t, true);
+            if (i <= previous) {
+                inMask = false;
+                break;
+            }
+            mask |= 1L << i;
+            previous = i;
+        }
+
+        int start = arenaUsed;
+        putString(c.firstName);
+        putString(c.lastName);
+        putString(c.phone);
+        putString(c.email);
+        finishRecord(row, start, c.gender, c.favorite, mask, inMask ? null : c.tags);
+    }
+
+    // Writes the overflow field after the four text fields at start and fills in the row
+    private void finishRecord(int row, int start, String gender, boolean favorite, long mask, List<String> recordTags) {
+        int g = genders.indexOf(nz(gender), true);
+        int flags = favorite ? FAVORITE : 0;
+        StringBuilder overflow = null;
+        if (g < 0) {
+            g = GENDER_IN_RECORD;
+            overflow = new StringBuilder(nz(gender));
+        }
+        if (recordTags != null) {
+            mask = 0;
+            flags |= TAGS_IN_RECORD;
+            if (overflow == null) overflow = new StringBuilder();
+            for (String t : recordTags) overflow.append(OVERFLOW_SEP).append(t);
+        }
+        putString(overflow == null ? "" : overflow.toString());
+        liveBytes += arenaUsed - start;
+
+        offsets[row] = start;
+        meta[row] = (byte) (g | flags);
+        tagMasks[row] = mask;
+    }
+
+    private void putString(String s) {
+        s = nz(s);
+        int n = s.length();
+        boolean ascii = true;
+        for (int i = 0; i < n && ascii; i++) ascii = s.charAt(i) < 0x80;
+        byte[] utf8 = ascii ? null : s.getBytes(StandardCharsets.UTF_8);
+        int len = ascii ? n : utf8.length;
+        ensureArena(5 + len);
+        putLength(len);
+        if (ascii) {
+            for (int i = 0; i < n; i++) arena[arenaUsed++] = (byte) s.charAt(i);
+        } else {
+            System.arraycopy(utf8, 0, arena, arenaUsed, len);
+            arenaUsed += len;
+        }
+    }
+
+    private void putBytes(byte[] utf8, int from, int len) {
+        ensureArena(5 + len);
+        putLength(len);
+        System.arraycopy(utf8, from, arena, arenaUsed, len);
+        arenaUsed += len;
+    }
+
+    private void putLength(int len) {
+        int v = len;
+        while (v >= 0x80) {
+            arena[arenaUsed++] = (byte) (v | 0x80);
+            v >>>= 7;
+        }
+        arena[arenaUsed++] = (byte) v;
+    }
+
+    // field 0..4 of the record at row
+    private String string(int row, int field) {
+        check(row);
+        byte[] a = arena;
+        int p = offsets[row];
+        for (int f = 0; ; f++) {
+            int len = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = a[p++];
+                len |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            if (f == field) return len == 0 ? "" : new String(a, p, len, StandardCharsets.UTF_8);
+            p += len;
+        }
+    }
+
+    private List<String> overflow(int row) {
+        return Arrays.asList(string(row, 4).split(String.valueOf(OVERFLOW_SEP), -1));
+    }
+
+    private int recordLength(int offset) {
+        int p = offset;
+        for (int f = 0; f < 5; f++) {
+            int len = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = arena[p++];
+                len |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            p += len;
+        }
+        return p - offset;
+    }
+
+    /* --- Space --- */
+
+    private void ensureRows(int rows) {
+        if (rows <= offsets.length) return;
+        int cap = Math.max(rows, offsets.length + (offsets.length >> 1));
+        offsets = Arrays.copyOf(offsets, cap);
+        meta = Arrays.copyOf(meta, cap);
+        tagMasks = Arrays.copyOf(tagMasks, cap);
+    }
+
+    private void ensureArena(int bytes) {
+        long need = (long) arenaUsed + bytes;
+        if (need <= arena.length) return;
+        if (need > Integer.MAX_VALUE - 8) throw new OutOfMemoryError("Contact storage is full");
+        long cap = Math.max(need, arena.length + ((long) arena.length >> 1));
+        // a new array: snapshots keep reading the old one
+        arena = Arrays.copyOf(arena, (int) Math.min(cap, Integer.MAX_VALUE - 8));
+    }
+
+    // Copies live records into a fresh arena once most of the old one is dead
+    private void compactIfSparse() {
+        if (arenaUsed < MIN_COMPACT_BYTES || liveBytes * 2 > arenaUsed) return;
+        byte[] old = arena;
+        byte[] fresh = new byte[(int) Math.max(4096, liveBytes + (liveBytes >> 2))];
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            int len = recordLength(offsets[r]);
+            System.arraycopy(old, offsets[r], fresh, w, len);
+            offsets[r] = w;
+            w += len;
+        }
+        arena = fresh;
+        arenaUsed = w;
+        liveBytes = w;
+    }
+
+    private void check(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+    }
+
+    private void checkWritable() {
+        if (readOnly) throw new UnsupportedOperationException("snapshot is read-only");
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+}
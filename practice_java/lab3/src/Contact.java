@@ -0,0 +1,34 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/* --- Data model: Contact --- */
+class Contact {
+    String firstName;
+    String lastName;
+    String phone;
+    String email;
+    String gender;
+    List<String> tags;
+    boolean favorite;
+
+    Contact(String firstName, String lastName, String phone, String email,
+            String gender, List<String> tags, boolean favorite) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phone = phone;
+        this.email = email;
+        this.gender = gender;
+        this.tags = new ArrayList<>(tags);
+        this.favorite = favorite;
+    }
+
+
+    String toCSVLine() {
+        return ContactCsv.line(this);
+    }
+
+    static Contact fromCSVLine(String line) {
+        ContactCsv.Reader r = new ContactCsv.Reader(line.toCharArray(), 0, line.length());
+        return r.hasNext() ? r.next() : null;
+    }
+}
@@ -0,0 +1,272 @@
+import javax.swing.*;
+import java.io.*;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/* --- Load test for the address book code paths ---
+ * Generates synthetic books shaped like contacts.csv (Latin and Ukrainian
+ * names, +380 mobile numbers, optional emails, one or two tags, some
+ * favorites) and measures per size:
+ *   - toCSVLine / fromCSVLine per contact and bulk CSV write / read,
+ *   - memory per contact in ContactsTableModel and as a List<Contact>,
+ *   - filter latency per keystroke while a name, a phone prefix and an
+ *     email domain are typed one character at a time,
+ *   - time to sort the whole book by one and by two columns.
+ * Each figure is the median of ROUNDS runs after a warm-up run. Results go
+ * to stdout and as JSON to a file, one run per file, so runs can be kept
+ * and compared.
+ *
+ *   java -Xmx8g ContactBenchmark [sizes] [results.json]
+ *   sizes: comma-separated, e.g. 1000,10000,100000,1000000,10000000
+ */
+class ContactBenchmark {
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int ROUNDS = 5;
+    private static final int MAX_LINE_SAMPLE = 200_000;   // fromCSVLine/toCSVLine are timed on at most this many
+
+    private static final String[] FIRST = {"Veronika", "Olena", "Andrii", "Taras", "Iryna", "Mykola", "Sofiia", "Dmytro",
+            "Oksana", "Bohdan", "Anna", "Maksym", "Вероніка", "Олена", "Андрій", "Тарас", "Ірина", "Микола", "Софія",
+            "Дмитро", "Оксана", "Богдан", "Юлія", "Євген", "Mom", "Dad"};
+    private static final String[] LAST = {"Peleshchak", "Shevchenko", "Kovalenko", "Bondarenko", "Tkachenko", "Kravchenko",
+            "Melnyk", "Boiko", "Шевченко", "Коваленко", "Бондаренко", "Ткаченко", "Мельник", "Бойко", "Іваненко", "Ґудзь", ""};
+    private static final String[] DOMAINS = {"gmail.com", "ukr.net", "i.ua", "meta.ua", "outlook.com", "lnu.edu.ua"};
+    private static final String[] OPERATORS = {"50", "66", "67", "68", "73", "93", "95", "96", "97", "98", "99"};
+    private static final String[] GENDERS = {"Male", "Female", "Other"};
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(s -> Integer.parseInt(s.trim().replace("_", ""))).toArray()
+                : DEFAULT_SIZES;
+        File out = new File(args.length > 1 ? args[1] : "benchmark-results.json");
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int n : sizes) {
+            System.out.println("== " + n + " contacts");
+            Map<String, Object> r = run(n);
+            r.forEach((k, v) -> System.out.println("  " + k + ": " + v));
+            results.add(r);
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"timestamp\": \"").append(java.time.Instant.now()).append("\",\n");
+        json.append("  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"cpus\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"maxHeapMB\": ").append(Runtime.getRuntime().maxMemory() >> 20).append(",\n");
+        json.append("  \"jvmArgs\": \"").append(String.join(" ", ManagementFactory.getRuntimeMXBean().getInputArguments())
+                .replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\n");
+        json.append("  \"results\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append("    {");
+            int k = 0;
+            for (Map.Entry<String, Object> e : results.get(i).entrySet()) {
+                if (k++ > 0) json.append(", ");
+                json.append('"').append(e.getKey()).append("\": ").append(e.getValue());
+            }
+            json.append(i + 1 < results.size() ? "},\n" : "}\n");
+        }
+        json.append("  ]\n}\n");
+        Files.writeString(out.toPath(), json, StandardCharsets.UTF_8);
+        System.out.println("Results written to " + out.getAbsolutePath());
+        System.exit(0);   // the sorter's executor thread is a daemon, the EDT is not
+    }
+
+    private static Map<String, Object> run(int n) throws Exception {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("contacts", n);
+        List<Contact> book = generate(n, new Random(n));
+        measureCsv(book, r);
+
+        // --- Memory: the same contacts as Contact objects and in the table model ---
+        long before = usedHeap();
+        List<Contact> copy = new ArrayList<>(n);
+        // own copies of the strings, as a parsed file would have; gender and tags are shared symbols there too
+        for (Contact c : book) {
+            copy.add(new Contact(new String(c.firstName), new String(c.lastName), new String(c.phone),
+                    new String(c.email), c.gender, c.tags, c.favorite));
+        }
+        r.put("listBytesPerContact", round((double) (usedHeap() - before) / n));
+        // compiled code may drop a local after its last use; both must still be there when measured
+        Reference.reachabilityFence(copy);
+        copy = null;
+
+        before = usedHeap();
+        ContactsTableModel model = new ContactsTableModel();
+        model.addAll(book);
+        r.put("modelBytesPerContact", round((double) (usedHeap() - before) / n));
+        Reference.reachabilityFence(book);
+        book = null;
+
+        // --- Filtering and sorting through the table's sorter, as the UI does it ---
+        ContactRowSorter[] sorter = new ContactRowSorter[1];
+        ContactLookup[] lookup = new ContactLookup[1];
+        SwingUtilities.invokeAndWait(() -> {
+            sorter[0] = new ContactRowSorter(model);
+            lookup[0] = new ContactLookup(model);
+        });
+        awaitSorter(sorter[0]);
+
+        List<Double> keystrokes = new ArrayList<>();
+        for (int round = 0; round <= ROUNDS; round++) {
+            List<Double> times = new ArrayList<>();
+            typeQuery(sorter[0], lookup[0], "olena", times);
+            typeQuery(sorter[0], lookup[0], "+38067", times);
+            typeQuery(sorter[0], lookup[0], "@ukr.net", times);
+            if (round > 0) keystrokes.addAll(times);   // round 0 warms up
+        }
+        Collections.sort(keystrokes);
+        r.put("keystrokeMedianMs", round(percentile(keystrokes, 0.5)));
+        r.put("keystrokeP95Ms", round(percentile(keystrokes, 0.95)));
+        r.put("keystrokeMaxMs", round(keystrokes.get(keystrokes.size() - 1)));
+
+        r.put("sortFirstNameMs", round(median(() -> sort(sorter[0], List.of(
+                new RowSorter.SortKey(0, SortOrder.ASCENDING)))) / 1e6));
+        r.put("sortLastFirstMs", round(median(() -> sort(sorter[0], List.of(
+                new RowSorter.SortKey(1, SortOrder.ASCENDING), new RowSorter.SortKey(0, SortOrder.ASCENDING)))) / 1e6));
+        sort(sorter[0], List.of());
+        return r;
+    }
+
+    private static void measureCsv(List<Contact> book, Map<String, Object> r) throws IOException {
+        int n = book.size();
+
+        // --- CSV, one line at a time ---
+        int sample = Math.min(n, MAX_LINE_SAMPLE);
+        List<Contact> head = book.subList(0, sample);
+        String[] lines = new String[sample];
+        r.put("toCSVLineNs", round(median(() -> {
+            for (int i = 0; i < sample; i++) lines[i] = head.get(i).toCSVLine();
+        }) / sample));
+        r.put("fromCSVLineNs", round(median(() -> {
+            for (String line : lines) if (Contact.fromCSVLine(line) == null) throw new IllegalStateException(line);
+        }) / sample));
+
+        // --- CSV, whole file ---
+        Path file = Files.createTempFile("contacts-bench", ".csv");
+        try {
+            double writeNs = median(() -> {
+                try {
+                    ContactCsv.writeFile(file, book);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            long bytes = Files.size(file);
+            List<List<Contact>> parsed = new ArrayList<>(1);
+            double readNs = median(() -> {
+                try {
+                    parsed.clear();
+                    parsed.add(ContactCsv.readFile(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (parsed.get(0).size() != n) throw new IllegalStateException("read back " + parsed.get(0).size() + " of " + n);
+            parsed.clear();
+            r.put("csvBytes", bytes);
+            r.put("csvWriteMBps", round(bytes / (writeNs / 1e9) / (1 << 20)));
+            r.put("csvReadMBps", round(bytes / (readNs / 1e9) / (1 << 20)));
+            r.put("csvReadContactsPerSec", Math.round(n / (readNs / 1e9)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /* --- Data --- */
+
+    static List<Contact> generate(int n, Random rnd) {
+        List<Contact> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String first = FIRST[rnd.nextInt(FIRST.length)];
+            String last = LAST[rnd.nextInt(LAST.length)];
+            String phone = "+380" + OPERATORS[rnd.nextInt(OPERATORS.length)] + String.format("%07d", rnd.nextInt(10_000_000));
+            String email = "";
+            if (rnd.nextInt(10) < 6) {
+                String local = (first.charAt(0) < 128 ? first : "user").toLowerCase() + (last.isEmpty() || last.charAt(0) >= 128 ? "" : "." + last.toLowerCase());
+                email = local + i + "@" + DOMAINS[rnd.nextInt(DOMAINS.length)];
+            }
+            List<String> tags = new ArrayList<>(2);
+            tags.add(ContactDialog.TAGS[rnd.nextInt(ContactDialog.TAGS.length)]);
+            if (rnd.nextInt(4) == 0) {
+                String t = ContactDialog.TAGS[rnd.nextInt(ContactDialog.TAGS.length)];
+                if (!tags.contains(t)) tags.add(t);
+            }
+            out.add(new Contact(first, last, phone, email, GENDERS[rnd.nextInt(GENDERS.length)], tags, rnd.nextInt(10) == 0));
+        }
+        return out;
+    }
+
+    /* --- UI paths --- */
+
+    // One setFilter per typed character, the way applyFilters runs on every document change
+    private static void typeQuery(ContactRowSorter sorter, ContactLookup lookup, String query, List<Double> times) throws Exception {
+        for (int len = 1; len <= query.length(); len++) {
+            String text = query.substring(0, len);
+            long start = System.nanoTime();
+            SwingUtilities.invokeAndWait(() -> {
+                if (ContactLookup.isPhonePrefix(text)) sorter.setFilter("", () -> lookup.phonePrefix(text));
+                else if (text.startsWith("@")) sorter.setFilter("", text.length() > 1 ? () -> lookup.domain(text.substring(1)) : () -> null);
+                else sorter.setFilter(text.toLowerCase(), () -> null);
+            });
+            awaitSorter(sorter);
+            times.add((System.nanoTime() - start) / 1e6);
+        }
+        SwingUtilities.invokeAndWait(() -> sorter.setFilter("", () -> null));
+        awaitSorter(sorter);
+    }
+
+    private static void sort(ContactRowSorter sorter, List<RowSorter.SortKey> keys) {
+        try {
+            SwingUtilities.invokeAndWait(() -> sorter.setSortKeys(keys));
+            awaitSorter(sorter);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitSorter(ContactRowSorter sorter) throws Exception {
+        boolean[] busy = {true};
+        while (true) {
+            SwingUtilities.invokeAndWait(() -> busy[0] = sorter.isBusy());
+            if (!busy[0]) return;
+            Thread.sleep(1);
+        }
+    }
+
+    /* --- Measuring --- */
+
+    // Median wall time in ns of ROUNDS runs, after one warm-up run
+    private static double median(Runnable task) {
+        task.run();
+        double[] t = new double[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            t[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(t);
+        return t[ROUNDS / 2];
+    }
+
+    private static double percentile(List<Double> sorted, double p) {
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.floor(p * sorted.size())));
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        // one collection can leave garbage another one frees, so take the lowest of a few
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+}
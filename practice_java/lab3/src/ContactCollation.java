@@ -0,0 +1,133 @@
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/* --- Collation-key sort engine for contacts ---
+ * Sorts with a Ukrainian collator, so Ukrainian names sort by the Ukrainian
+ * alphabet (Ґ after Г, Є after Е, І and Ї after И) and Latin names sort
+ * before them. Case is ignored.
+ *
+ * A column is sorted once per data version into dense ranks:
+ *   - its values are decoded in parallel,
+ *   - a CollationKey is built once per distinct value,
+ *   - the keys are ordered with Arrays.parallelSort.
+ * Rows that collate equal share a rank. A sort order over up to three
+ * columns is then a stable counting sort per column, last key first, over
+ * the ranks. The result is a permutation of the whole book. It is cached
+ * with its ranks until the data version changes, so a new filter only
+ * walks the permutation. Ties keep model order, like TableRowSorter.
+ *
+ * Not thread-safe; ContactRowSorter uses it from its one worker thread.
+ */
+final class ContactCollation {
+    static final Locale LOCALE = Locale.forLanguageTag("uk-UA");
+    private static final int CHUNK = 4096;
+
+    private final Collator collator;
+    private final Map<Integer, int[]> ranks = new HashMap<>();       // column -> rank per row
+    private final Map<Integer, Integer> rankCounts = new HashMap<>(); // column -> distinct ranks
+    private long version = -1;
+    private List<SortKey> permutationKeys;
+    private int[] permutation;
+
+    ContactCollation() {
+        collator = Collator.getInstance(LOCALE);
+        collator.setStrength(Collator.SECONDARY);
+    }
+
+    /**
+     * Model rows of {@code contacts} in {@code keys} order, or null if {@code stale} turned
+     * true meanwhile. {@code version} must change whenever the contacts do.
+     * The array is shared with later calls; do not modify it.
+     */
+    int[] permutation(CompactContactList contacts, long version, List<? extends SortKey> keys, BooleanSupplier stale) {
+        if (version != this.version) {
+            ranks.clear();
+            rankCounts.clear();
+            permutation = null;
+            this.version = version;
+        }
+        List<SortKey> active = new ArrayList<>();
+        for (SortKey k : keys) if (k.getSortOrder() != SortOrder.UNSORTED) active.add(k);
+        if (permutation != null && active.equals(permutationKeys)) return permutation;
+
+        int n = contacts.size();
+        int[] order = new int[n];
+        for (int r = 0; r < n; r++) order[r] = r;
+        int[] next = new int[n];
+        for (int i = active.size() - 1; i >= 0; i--) {
+            int col = active.get(i).getColumn();
+            int[] rank = ranks(contacts, col, stale);
+            if (rank == null) return null;
+            int count = rankCounts.get(col);
+            boolean descending = active.get(i).getSortOrder() == SortOrder.DESCENDING;
+
+            // stable counting sort of order by this column's rank
+            int[] start = new int[count + 1];
+            for (int r : order) start[(descending ? count - 1 - rank[r] : rank[r]) + 1]++;
+            for (int k = 0; k < count; k++) start[k + 1] += start[k];
+            for (int r : order) next[start[descending ? count - 1 - rank[r] : rank[r]]++] = r;
+            int[] t = order;
+            order = next;
+            next = t;
+        }
+        permutationKeys = active;
+        permutation = order;
+        return order;
+    }
+
+    // Dense rank of every row's value in the column; equal under the collator = equal rank
+    private int[] ranks(CompactContactList contacts, int col, BooleanSupplier stale) {
+        int[] cached = ranks.get(col);
+        if (cached != null) return cached;
+
+        int n = contacts.size();
+        String[] values = new String[n];
+        IntStream.range(0, (n + CHUNK - 1) / CHUNK).parallel().forEach(c -> {
+            if (stale.getAsBoolean()) return;
+            for (int r = c * CHUNK; r < Math.min(n, (c + 1) * CHUNK); r++) values[r] = contacts.value(r, col);
+        });
+        if (stale.getAsBoolean()) return null;
+
+        // names, genders and tags repeat a lot; build one key per distinct value
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> distinct = new ArrayList<>();
+        int[] idOf = new int[n];
+        for (int r = 0; r < n; r++) {
+            Integer id = ids.get(values[r]);
+            if (id == null) {
+                id = distinct.size();
+                ids.put(values[r], id);
+                distinct.add(values[r]);
+            }
+            idOf[r] = id;
+        }
+
+        int d = distinct.size();
+        CollationKey[] keys = new CollationKey[d];
+        IntStream.range(0, (d + CHUNK - 1) / CHUNK).parallel().forEach(c -> {
+            if (stale.getAsBoolean()) return;
+            Collator own = (Collator) collator.clone();   // a Collator is not safe to share between threads
+            for (int i = c * CHUNK; i < Math.min(d, (c + 1) * CHUNK); i++) keys[i] = own.getCollationKey(distinct.get(i));
+        });
+        if (stale.getAsBoolean()) return null;
+        Arrays.parallelSort(keys);
+        if (stale.getAsBoolean()) return null;
+
+        int[] rankOfId = new int[d];
+        int rank = -1;
+        for (int i = 0; i < d; i++) {
+            if (i == 0 || keys[i].compareTo(keys[i - 1]) != 0) rank++;
+            rankOfId[ids.get(keys[i].getSourceString())] = rank;
+        }
+        int[] out = new int[n];
+        for (int r = 0; r < n; r++) out[r] = rankOfId[idOf[r]];
+        ranks.put(col, out);
+        rankCounts.put(col, rank + 1);
+        return out;
+    }
+}
@@ -0,0 +1,345 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* --- CSV codec for Contact ---
+ * Reader scans a char[] range record by record and slices field values
+ * straight out of it; only fields with embedded quotes go through a scratch
+ * buffer. Gender and tag values are looked up in a small shared symbol table,
+ * so a big file yields a handful of String instances for them instead of
+ * one per record; each Reader keeps the symbols it has seen in a small cache
+ * of its own. Writer escapes into a reusable char buffer, and single lines
+ * go through one Writer per thread.
+ */
+final class ContactCsv {
+    static final int FIELDS = 7;
+
+    private ContactCsv() {}
+
+    /** Reads a whole CSV file on the calling thread; unparsable records are skipped. */
+    static List<Contact> readFile(Path path) throws IOException {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+        char[] buf = chars.array();
+        int off = chars.arrayOffset() + chars.position();
+        if (chars.remaining() > 0 && buf[off] == '\uFEFF') off++;
+        Reader reader = new Reader(buf, off, chars.arrayOffset() + chars.limit() - off);
+        List<Contact> out = new ArrayList<>();
+        while (reader.hasNext()) {
+            Contact c = reader.next();
+            if (c != null) out.add(c);
+        }
+        return out;
+    }
+
+    static void writeFile(Path path, List<Contact> contacts) throws IOException {
+        try (Writer w = new Writer(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8))) {
+            for (Contact c : contacts) w.write(c);
+        }
+    }
+
+    /** The CSV line of {@code c}, without the line break. */
+    static String line(Contact c) {
+        LineWriter w = LINES.get();
+        w.line.setLength(0);
+        try {
+            w.csv.writeFields(c);
+            w.csv.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);   // a StringBuilder does not fail
+        }
+        return w.line.toString();
+    }
+
+    private static final ThreadLocal<LineWriter> LINES = ThreadLocal.withInitial(LineWriter::new);
+
+    private static final class LineWriter extends java.io.Writer {
+        final StringBuilder line = new StringBuilder(128);
+        final Writer csv = new Writer(this, 256);
+
+        @Override
+        public void write(char[] cbuf, int off, int len) { line.append(cbuf, off, len); }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    /* --- Symbol table for small enum-like values (gender, tags) --- */
+    private static final int MAX_SYMBOLS = 256;
+    private static final ConcurrentHashMap<String, String> SYMBOLS = new ConcurrentHashMap<>();
+
+    static {
+        for (String s : new String[]{"Male", "Female", "Other", "me", "family", "friend", "work", "school", "gym", "other"}) {
+            SYMBOLS.put(s, s);
+        }
+    }
+
+    /** The shared instance equal to {@code s}; {@code s} itself once the table is full. */
+    static String symbol(String s) {
+        String known = SYMBOLS.get(s);
+        if (known != null) return known;
+        if (SYMBOLS.size() >= MAX_SYMBOLS) return s;
+        known = SYMBOLS.putIfAbsent(s, s);
+        return known != null ? known : s;
+    }
+
+    private static boolean regionEquals(String s, char[] buf, int off, int len) {
+        if (s.length() != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(i) != buf[off + i]) return false;
+        }
+        return true;
+    }
+
+    /* --- Reader --- */
+    static final class Reader {
+        private final char[] buf;
+        private final int end;
+        private int pos;
+
+        // the current field value is always buf-like[valOff, valOff + valLen)
+        private char[] val;
+        private int valOff;
+        private int valLen;
+        private char[] scratch = new char[64];
+
+        // symbols this reader has returned, by hash of their chars; no locking, no garbage on a hit
+        private final String[] seen = new String[64];
+
+        private final String[] text = new String[4];
+        private String gender;
+        private final ArrayList<String> tags = new ArrayList<>();
+        private boolean favorite;
+
+        Reader(char[] buf, int off, int len) {
+            this.buf = buf;
+            this.pos = off;
+            this.end = off + len;
+        }
+
+        /** Skips blank lines; true if another record follows. */
+        boolean hasNext() {
+            while (pos < end) {
+                char c = buf[pos];
+                if (c == '\n') pos++;
+                else if (c == '\r' && (pos + 1 == end || buf[pos + 1] == '\n')) pos++;
+                else return true;
+            }
+            return false;
+        }
+
+        /** Parses the next record; null if it has fewer than seven fields. */
+        Contact next() {
+            int field = 0;
+            tags.clear();
+            gender = "";
+            favorite = false;
+            while (true) {
+                boolean last = readField();
+                if (field < 4) {
+                    text[field] = valLen == 0 ? "" : new String(val, valOff, valLen);
+                } else if (field == 4) {
+                    gender = valLen == 0 ? "" : symbol(val, valOff, valLen);
+                } else if (field == 5) {
+                    splitTags();
+                } else if (field == 6) {
+                    favorite = valLen == 1 && val[valOff] == '1';
+                }
+                field++;
+                if (last) break;
+            }
+            if (field < FIELDS) return null;
+            return new Contact(text[0], text[1], text[2], text[3], gender, tags, favorite);
+        }
+
+        private String symbol(char[] buf, int off, int len) {
+            int h = 0;
+            for (int i = 0; i < len; i++) h = 31 * h + buf[off + i];
+            int slot = (h ^ (h >>> 16)) & (seen.length - 1);
+            String s = seen[slot];
+            if (s != null && regionEquals(s, buf, off, len)) return s;
+            s = ContactCsv.symbol(new String(buf, off, len));
+            seen[slot] = s;
+            return s;
+        }
+
+        // Reads one field into val/valOff/valLen; true if it ended the record
+        private boolean readField() {
+            int start = pos;
+            int quotes = 0;
+            boolean inQuotes = false;
+            while (pos < end) {
+                char c = buf[pos];
+                if (c == '"') {
+                    quotes++;
+                    inQuotes = !inQuotes;
+                } else if (!inQuotes && (c == ',' || c == '\n')) {
+                    break;
+                }
+                pos++;
+            }
+            int stop = pos;
+            boolean last = pos >= end || buf[pos] == '\n';
+            if (last && stop > start && buf[stop - 1] == '\r' && !inQuotes) stop--;
+            if (pos < end) pos++;
+
+            if (quotes == 0) {
+                val = buf; valOff = start; valLen = stop - start;
+            } else if (quotes == 2 && buf[start] == '"' && stop - start >= 2 && buf[stop - 1] == '"') {
+                val = buf; valOff = start + 1; valLen = stop - start - 2;
+            } else {
+                unquote(start, stop);
+            }
+            return last;
+        }
+
+        // Same rules as the original csvSplit: quotes toggle, "" inside quotes is a literal quote
+        private void unquote(int start, int stop) {
+            if (scratch.length < stop - start) scratch = new char[Math.max(stop - start, scratch.length * 2)];
+            int n = 0;
+            boolean inQuotes = false;
+            for (int i = start; i < stop; i++) {
+                char c = buf[i];
+                if (c == '"') {
+                    if (inQuotes && i + 1 < stop && buf[i + 1] == '"') {
+                        scratch[n++] = '"';
+                        i++;
+                    } else {
+                        inQuotes = !inQuotes;
+                    }
+                } else {
+                    scratch[n++] = c;
+                }
+            }
+            val = scratch; valOff = 0; valLen = n;
+        }
+
+        private void splitTags() {
+            int from = valOff;
+            int to = valOff + valLen;
+            for (int i = from; i <= to; i++) {
+                if (i == to || val[i] == ';') {
+                    // like String.split(";"): empty pieces are dropped only at the end
+                    tags.add(symbol(val, from, i - from));
+                    from = i + 1;
+                }
+            }
+            while (!tags.isEmpty() && tags.get(tags.size() - 1).isEmpty()) tags.remove(tags.size() - 1);
+        }
+    }
+
+    /* --- Writer --- */
+    static final class Writer implements Closeable, Flushable {
+        private final java.io.Writer out;
+        private final char[] buf;
+        private int pos;
+
+        Writer(java.io.Writer out) { this(out, 1 << 16); }
+
+        Writer(java.io.Writer out, int bufferSize) {
+            this.out = out;
+            this.buf = new char[Math.max(bufferSize, 16)];
+        }
+
+        void write(Contact c) throws IOException {
+            writeFields(c);
+            put('\n');
+        }
+
+        void writeFields(Contact c) throws IOException {
+            field(c.firstName); put(',');
+            field(c.lastName); put(',');
+            field(c.phone); put(',');
+            field(c.email); put(',');
+            field(c.gender); put(',');
+            tagsField(c.tags); put(',');
+            put(c.favorite ? '1' : '0');
+        }
+
+        private void field(String s) throws IOException {
+            if (s == null) return;
+            if (needsQuotes(s)) {
+                put('"');
+                escaped(s);
+                put('"');
+            } else {
+                plain(s);
+            }
+        }
+
+        private void tagsField(java.util.List<String> tags) throws IOException {
+            boolean quote = false;
+            for (String t : tags) quote |= needsQuotes(t);
+            if (quote) put('"');
+            for (int i = 0; i < tags.size(); i++) {
+                if (i > 0) put(';');
+                if (quote) escaped(tags.get(i));
+                else plain(tags.get(i));
+            }
+            if (quote) put('"');
+        }
+
+        private static boolean needsQuotes(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+            }
+            return false;
+        }
+
+        private void plain(String s) throws IOException {
+            int len = s.length();
+            if (len > buf.length - pos) {
+                flushBuffer();
+                if (len > buf.length) {
+                    out.write(s);
+                    return;
+                }
+            }
+            s.getChars(0, len, buf, pos);
+            pos += len;
+        }
+
+        private void escaped(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') put('"');
+                put(c);
+            }
+        }
+
+        private void put(char c) throws IOException {
+            if (pos == buf.length) flushBuffer();
+            buf[pos++] = c;
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushBuffer();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* --- Background CSV loader ---
+ * Maps the file, finds record boundaries that are outside quoted fields,
+ * parses the chunks in parallel and appends them in file order to a new
+ * list. The table is not touched: the caller swaps the list in once the
+ * whole file has loaded, so a failed or cancelled load leaves the open book
+ * as it was.
+ */
+class ContactCsvLoader extends SwingWorker<CompactContactList, Void> {
+    static final int MIN_CHUNK_BYTES = 1 << 20;
+
+    private final File file;
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    ContactCsvLoader(File file) {
+        this.file = file;
+    }
+
+    /** Records that could not be parsed into a contact. */
+    int getRejected() { return rejected.get(); }
+
+    @Override
+    protected CompactContactList doInBackground() throws Exception {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("File is too large: " + file.getName());
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            int threads = Runtime.getRuntime().availableProcessors();
+            int chunks = (int) Math.max(1, Math.min(threads * 4L, size / MIN_CHUNK_BYTES));
+            int[] bounds = splitPoints(buf, skipBom(buf), chunks);
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<List<Contact>>> parts = new ArrayList<>();
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    int from = bounds[i], to = bounds[i + 1];
+                    parts.add(pool.submit(() -> parseChunk(buf.slice(from, to - from))));
+                }
+
+                CompactContactList loaded = ContactsTableModel.newStorage();
+                for (int i = 0; i < parts.size(); i++) {
+                    loaded.addAll(parts.get(i).get());
+                    parts.set(i, null);   // the parsed Contacts are not needed any more
+                    setProgress((i + 1) * 100 / parts.size());
+                }
+                return loaded;
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    static int skipBom(ByteBuffer buf) {
+        if (buf.limit() >= 3 && buf.get(0) == (byte) 0xEF && buf.get(1) == (byte) 0xBB && buf.get(2) == (byte) 0xBF) {
+            return 3;
+        }
+        return 0;
+    }
+
+    // Offsets of record starts close to equal chunk sizes; a '\n' inside quotes is not a boundary
+    static int[] splitPoints(ByteBuffer buf, int start, int chunks) {
+        int size = buf.limit();
+        int[] points = new int[chunks + 1];
+        int n = 0;
+        points[n++] = start;
+        long target = start + (long) (size - start) / chunks;
+        boolean inQuotes = false;
+        for (int i = start; i < size && n < chunks; i++) {
+            byte b = buf.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes && i + 1 >= target && i + 1 < size) {
+                points[n++] = i + 1;
+                target = start + (long) (size - start) * n / chunks;
+            }
+        }
+        points[n++] = size;
+        return Arrays.copyOf(points, n);
+    }
+
+    private List<Contact> parseChunk(ByteBuffer bytes) {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+        ContactCsv.Reader reader = chars.hasArray()
+                ? new ContactCsv.Reader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining())
+                : new ContactCsv.Reader(chars.toString().toCharArray(), 0, chars.remaining());
+        List<Contact> out = new ArrayList<>();
+        int records = 0;
+        while (reader.hasNext()) {
+            Contact c = reader.next();
+            if (c != null) out.add(c);
+            else rejected.incrementAndGet();
+            if ((++records & 4095) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+        }
+        return out;
+    }
+}
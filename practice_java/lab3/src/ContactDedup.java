@@ -0,0 +1,346 @@
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/* --- Duplicate detection ---
+ * Contacts are only compared inside blocks that share a key: normalized
+ * phone (+380XXXXXXXXX), full email, email domain + phonetic last name, and
+ * phonetic first + last name; blocks larger than MAX_BLOCK are sorted by name
+ * and only neighbours within WINDOW are paired. The de-duplicated candidate
+ * pairs are scored in parallel with Jaro-Winkler name similarity, matches are
+ * joined into groups with union-find, and each group is one merge suggestion.
+ * Different emails rule a pair out unless both are at the same domain and the
+ * names sound the same: a second address at one provider or employer, where
+ * Olha and Olga Shevchenko are too far apart for NAME_ONLY_THRESHOLD.
+ */
+final class ContactDedup {
+    private static final int MAX_BLOCK = 200;
+    private static final int WINDOW = 10;
+    // without a shared phone or email the names alone have to be this close
+    static final double NAME_ONLY_THRESHOLD = 0.94;
+    // different emails at one domain, with the same phonetic first and last name
+    static final double DOMAIN_NAME_THRESHOLD = 0.85;
+    static final double CONTACT_THRESHOLD = 0.85;
+
+    private ContactDedup() {}
+
+    /** One merge suggestion: rows (ascending) of contacts that look like the same person. */
+    static final class Group {
+        final int[] rows;
+        final double score;
+        final String reason;
+
+        Group(int[] rows, double score, String reason) {
+            this.rows = rows;
+            this.score = score;
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * Finds duplicate groups among {@code contacts}; rows are indices into the list.
+     * {@code progress} receives 0..100 and may be called from any thread.
+     */
+    static List<Group> find(List<Contact> contacts, IntConsumer progress, BooleanSupplier cancelled) {
+        int n = contacts.size();
+        String[] phones = new String[n];
+        String[] emails = new String[n];
+        String[] names = new String[n];
+        String[] swapped = new String[n];
+        String[] sounds = new String[n];
+
+        Map<String, List<Integer>> blocks = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Contact c = contacts.get(i);
+            String first = transliterate(c.firstName);
+            String last = transliterate(c.lastName);
+            phones[i] = normalizePhone(c.phone);
+            emails[i] = c.email == null || c.email.isBlank() ? null : c.email.trim().toLowerCase();
+            names[i] = (first + " " + last).trim();
+            swapped[i] = (last + " " + first).trim();
+            sounds[i] = phonetic(first) + "|" + phonetic(last);
+
+            if (phones[i] != null) block(blocks, "p:" + phones[i], i);
+            if (emails[i] != null) {
+                block(blocks, "e:" + emails[i], i);
+                int at = emails[i].lastIndexOf('@');
+                if (at >= 0 && !last.isEmpty()) block(blocks, "d:" + emails[i].substring(at + 1) + "|" + phonetic(last), i);
+            }
+            if (!first.isEmpty() || !last.isEmpty()) block(blocks, "n:" + sounds[i], i);
+        }
+
+        // candidate pairs as (i << 32 | j) with i < j; a pair that shares several keys is listed once after the sort
+        long[] pairs = new long[1024];
+        int count = 0;
+        for (List<Integer> b : blocks.values()) {
+            if (b.size() < 2) continue;
+            int[] rows = b.stream().mapToInt(Integer::intValue).toArray();
+            boolean windowed = rows.length > MAX_BLOCK;
+            if (windowed) {
+                // sorted neighbourhood: near-identical names end up next to each other
+                rows = Arrays.stream(rows).boxed()
+                        .sorted(Comparator.comparing((Integer r) -> names[r]))
+                        .mapToInt(Integer::intValue).toArray();
+            }
+            for (int a = 0; a < rows.length; a++) {
+                int to = windowed ? Math.min(rows.length, a + 1 + WINDOW) : rows.length;
+                for (int k = a + 1; k < to; k++) {
+                    if (count == pairs.length) pairs = Arrays.copyOf(pairs, count * 2);
+                    pairs[count++] = ((long) Math.min(rows[a], rows[k]) << 32) | Math.max(rows[a], rows[k]);
+                }
+            }
+        }
+        blocks.clear();
+        Arrays.parallelSort(pairs, 0, count);
+        int unique = 0;
+        for (int k = 0; k < count; k++) {
+            if (unique == 0 || pairs[k] != pairs[unique - 1]) pairs[unique++] = pairs[k];
+        }
+        if (cancelled.getAsBoolean()) throw new CancellationException();
+        progress.accept(10);
+
+        double[] scores = new double[unique];
+        int chunks = Math.max(1, Math.min(100, unique / 4096));
+        int total = unique;
+        long[] candidates = pairs;
+        AtomicInteger done = new AtomicInteger();
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            if (cancelled.getAsBoolean()) throw new CancellationException();
+            int from = (int) ((long) total * c / chunks), to = (int) ((long) total * (c + 1) / chunks);
+            for (int k = from; k < to; k++) {
+                scores[k] = score((int) (candidates[k] >>> 32), (int) candidates[k], phones, emails, names, swapped, sounds);
+            }
+            progress.accept(10 + done.incrementAndGet() * 90 / chunks);
+        });
+        if (cancelled.getAsBoolean()) throw new CancellationException();
+
+        return group(n, candidates, scores, phones, emails);
+    }
+
+    // 0 if the pair is not a duplicate candidate, otherwise the confidence in (0, 1]
+    private static double score(int i, int j, String[] phones, String[] emails, String[] names, String[] swapped,
+                                String[] sounds) {
+        boolean samePhone = phones[i] != null && phones[i].equals(phones[j]);
+        boolean sameEmail = emails[i] != null && emails[i].equals(emails[j]);
+        boolean otherAddress = false;
+        if (!samePhone && !sameEmail) {
+            // a different phone or email means a different person, however alike the names are,
+            // except for another address at the same domain under a name that sounds the same
+            if (phones[i] != null && phones[j] != null) return 0;
+            if (emails[i] != null && emails[j] != null) {
+                if (!sameDomain(emails[i], emails[j]) || !sounds[i].equals(sounds[j])) return 0;
+                otherAddress = true;
+            }
+        }
+        double name = Math.max(jaroWinkler(names[i], names[j]), jaroWinkler(names[i], swapped[j]));
+        if (samePhone || sameEmail) {
+            // family members often share a phone, so the names still have to be alike
+            double s = 0.6 + 0.4 * name;
+            return s >= CONTACT_THRESHOLD ? s : 0;
+        }
+        if (otherAddress) return name >= DOMAIN_NAME_THRESHOLD ? name * 0.85 : 0;
+        return name >= NAME_ONLY_THRESHOLD ? name * 0.9 : 0;
+    }
+
+    private static boolean sameDomain(String a, String b) {
+        int x = a.lastIndexOf('@'), y = b.lastIndexOf('@');
+        return x >= 0 && y >= 0 && a.regionMatches(x, b, y, Math.max(a.length() - x, b.length() - y));
+    }
+
+    private static List<Group> group(int n, long[] pairs, double[] scores, String[] phones, String[] emails) {
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        Map<Integer, Double> best = new HashMap<>();
+        for (int k = 0; k < scores.length; k++) {
+            if (scores[k] == 0) continue;
+            int a = find(parent, (int) (pairs[k] >>> 32));
+            int b = find(parent, (int) pairs[k]);
+            int root = Math.min(a, b);
+            double sa = best.getOrDefault(a, 0.0), sb = best.getOrDefault(b, 0.0);
+            parent[Math.max(a, b)] = root;
+            best.put(root, Math.max(scores[k], Math.max(sa, sb)));
+        }
+
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        for (int k = 0; k < scores.length; k++) {
+            if (scores[k] == 0) continue;
+            for (int r : new int[]{(int) (pairs[k] >>> 32), (int) pairs[k]}) {
+                members.computeIfAbsent(find(parent, r), x -> new ArrayList<>()).add(r);
+            }
+        }
+
+        List<Group> out = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> e : members.entrySet()) {
+            int[] rows = e.getValue().stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+            out.add(new Group(rows, best.get(e.getKey()), reason(rows, phones, emails)));
+        }
+        out.sort((x, y) -> Double.compare(y.score, x.score));
+        return out;
+    }
+
+    private static String reason(int[] rows, String[] phones, String[] emails) {
+        boolean samePhone = true, sameEmail = true, sameDomain = true;
+        for (int r : rows) {
+            samePhone &= phones[r] != null && phones[r].equals(phones[rows[0]]);
+            sameEmail &= emails[r] != null && emails[r].equals(emails[rows[0]]);
+            sameDomain &= emails[r] != null && emails[rows[0]] != null && sameDomain(emails[r], emails[rows[0]]);
+        }
+        if (samePhone && sameEmail) return "same phone and email";
+        if (samePhone) return "same phone";
+        if (sameEmail) return "same email";
+        if (sameDomain) return "similar names, same email domain";
+        return "similar names";
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static void block(Map<String, List<Integer>> blocks, String key, int row) {
+        blocks.computeIfAbsent(key, k -> new ArrayList<>(2)).add(row);
+    }
+
+    /* --- Merging --- */
+
+    /** First non-empty value of every field, union of tags, favorite if any of them is. */
+    static Contact merge(List<Contact> group) {
+        Contact first = group.get(0);
+        Contact m = new Contact(first.firstName, first.lastName, first.phone, first.email,
+                first.gender, first.tags, first.favorite);
+        for (Contact c : group.subList(1, group.size())) {
+            if (isEmpty(m.firstName)) m.firstName = c.firstName;
+            if (isEmpty(m.lastName)) m.lastName = c.lastName;
+            if (isEmpty(m.phone)) m.phone = c.phone;
+            if (isEmpty(m.email)) m.email = c.email;
+            if (isEmpty(m.gender) || "Other".equals(m.gender)) {
+                if (!isEmpty(c.gender)) m.gender = c.gender;
+            }
+            for (String t : c.tags) {
+                if (!m.tags.contains(t)) m.tags.add(t);
+            }
+            m.favorite |= c.favorite;
+        }
+        return m;
+    }
+
+    private static boolean isEmpty(String s) {
+        return s == null || s.isEmpty();
+    }
+
+    /* --- Normalization --- */
+
+    /** +380XXXXXXXXX for Ukrainian numbers written as +380.., 380.. or 0.., otherwise null. */
+    static String normalizePhone(String phone) {
+        if (phone == null) return null;
+        char[] digits = new char[phone.length()];
+        int n = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') digits[n++] = c;
+        }
+        String d = new String(digits, 0, n);
+        if (n == 12 && d.startsWith("380")) return "+" + d;
+        if (n == 10 && d.charAt(0) == '0') return "+38" + d;
+        return null;
+    }
+
+    private static final String[] CYRILLIC = {
+            "a", "b", "v", "h", "d", "e", "zh", "z", "y", "y", "k", "l", "m", "n", "o", "p",   // а..п
+            "r", "s", "t", "u", "f", "kh", "ts", "ch", "sh", "shch", "", "y", "", "e", "yu", "ya" // р..я
+    };
+
+    // Lower-case Latin letters and single spaces; Cyrillic is transliterated
+    static String transliterate(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length() + 4);
+        for (int i = 0; i < s.length(); i++) {
+            char c = Character.toLowerCase(s.charAt(i));
+            if (c >= 'a' && c <= 'z') sb.append(c);
+            else if (c >= 'а' && c <= 'я') sb.append(CYRILLIC[c - 'а']);
+            else if (c == 'і') sb.append('i');
+            else if (c == 'ї') sb.append("yi");
+            else if (c == 'є') sb.append("ye");
+            else if (c == 'ґ') sb.append('g');
+            else if (c == 'ё') sb.append("yo");
+            else if (Character.isWhitespace(c) || c == '-') {
+                if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') sb.append(' ');
+            }
+        }
+        int len = sb.length();
+        if (len > 0 && sb.charAt(len - 1) == ' ') sb.setLength(len - 1);
+        return sb.toString();
+    }
+
+    // Soundex-like key of a transliterated name; g/h/kh share a class so Olha and Olga match
+    static String phonetic(String name) {
+        char[] key = {'0', '0', '0', '0'};
+        int n = 0;
+        char prev = 0;
+        for (int i = 0; i < name.length() && n < key.length; i++) {
+            char code = soundClass(name.charAt(i));
+            if (code == 0) continue;
+            if (n == 0) {
+                key[n++] = name.charAt(i);
+            } else if (code != '0' && code != prev) {
+                key[n++] = code;
+            }
+            prev = code;
+        }
+        return new String(key);
+    }
+
+    private static char soundClass(char c) {
+        switch (c) {
+            case 'b': case 'f': case 'p': case 'v': case 'w': return '1';
+            case 'c': case 'g': case 'h': case 'j': case 'k': case 'q': case 's': case 'x': case 'z': return '2';
+            case 'd': case 't': return '3';
+            case 'l': return '4';
+            case 'm': case 'n': return '5';
+            case 'r': return '6';
+            case 'a': case 'e': case 'i': case 'o': case 'u': case 'y': return '0';
+            default: return 0;
+        }
+    }
+
+    /* --- Similarity --- */
+
+    static double jaroWinkler(String a, String b) {
+        if (a.equals(b)) return a.isEmpty() ? 0 : 1;
+        int la = a.length(), lb = b.length();
+        if (la == 0 || lb == 0) return 0;
+        int range = Math.max(0, Math.max(la, lb) / 2 - 1);
+        boolean[] ma = new boolean[la];
+        boolean[] mb = new boolean[lb];
+        int matches = 0;
+        for (int i = 0; i < la; i++) {
+            int from = Math.max(0, i - range), to = Math.min(lb - 1, i + range);
+            for (int j = from; j <= to; j++) {
+                if (!mb[j] && a.charAt(i) == b.charAt(j)) {
+                    ma[i] = mb[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) return 0;
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < la; i++) {
+            if (!ma[i]) continue;
+            while (!mb[j]) j++;
+            if (a.charAt(i) != b.charAt(j)) transpositions++;
+            j++;
+        }
+        double m = matches;
+        double jaro = (m / la + m / lb + (m - transpositions / 2.0) / m) / 3;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(la, lb)) && a.charAt(prefix) == b.charAt(prefix)) prefix++;
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+}
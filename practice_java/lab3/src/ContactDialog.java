@@ -0,0 +1,151 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/* --- Custom dialog for Add/Edit --- */
+class ContactDialog extends JDialog {
+    static final String[] TAGS = {"me", "family", "friend", "work", "school", "gym", "other"};
+
+    private Contact result = null;
+
+    private final JTextField firstNameField = new JTextField(20);
+    private final JTextField lastNameField = new JTextField(20);
+    private final JTextField phoneField = new JTextField(20);
+    private final JTextField emailField = new JTextField(20);
+    private final JRadioButton maleRb = new JRadioButton("Male");
+    private final JRadioButton femaleRb = new JRadioButton("Female");
+    private final JRadioButton otherRb = new JRadioButton("Other");
+    private final JList<String> tagsList;
+
+    private final JCheckBox favoriteCb = new JCheckBox("Favorite");
+
+    ContactDialog(Frame owner, String title, Contact existing) {
+        this(owner, title, existing, null);
+    }
+
+    /** {@code lookup}, if given, offers existing phones and known email domains while typing. */
+    ContactDialog(Frame owner, String title, Contact existing, ContactLookup lookup) {
+        super(owner, title, true);
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+
+        if (lookup != null) {
+            FieldAutocomplete.install(phoneField, (text, limit) ->
+                    ContactLookup.isPhonePrefix(text) ? lookup.completePhone(text, limit) : List.of());
+            FieldAutocomplete.install(emailField, (text, limit) -> {
+                int at = text.indexOf('@');
+                List<String> out = new ArrayList<>();
+                if (at < 1) return out;
+                for (String d : lookup.completeDomain(text.substring(at + 1), limit)) out.add(text.substring(0, at + 1) + d);
+                return out;
+            });
+        }
+
+        tagsList = new JList<>(TAGS);
+        tagsList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+
+        JPanel main = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(6,6,6,6);
+        gbc.anchor = GridBagConstraints.WEST;
+
+        int row = 0;
+        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("First Name:"), gbc);
+        gbc.gridx = 1; main.add(firstNameField, gbc); row++;
+
+        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Last Name:"), gbc);
+        gbc.gridx = 1; main.add(lastNameField, gbc); row++;
+
+        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Phone:"), gbc);
+        gbc.gridx = 1; main.add(phoneField, gbc); row++;
+
+        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Email:"), gbc);
+        gbc.gridx = 1; main.add(emailField, gbc); row++;
+
+        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Gender:"), gbc);
+        gbc.gridx = 1;
+        JPanel genders = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        ButtonGroup bg = new ButtonGroup();
+        bg.add(maleRb); bg.add(femaleRb); bg.add(otherRb);
+        genders.add(maleRb); genders.add(femaleRb); genders.add(otherRb);
+        main.add(genders, gbc); row++;
+
+        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Tags:"), gbc);
+        gbc.gridx = 1;
+        JScrollPane tagsScroller = new JScrollPane(tagsList);
+        tagsScroller.setPreferredSize(new Dimension(200, 80));
+        main.add(tagsScroller, gbc); row++;
+
+        gbc.gridx = 0; gbc.gridy = row; main.add(new JLabel("Favorite:"), gbc);
+        gbc.gridx = 1; main.add(favoriteCb, gbc); row++;
+
+        JPanel btns = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton ok = new JButton("OK");
+        JButton cancel = new JButton("Cancel");
+        btns.add(ok);
+        btns.add(cancel);
+
+        ok.addActionListener(e -> onOK());
+        cancel.addActionListener(e -> {
+            result = null;
+            dispose();
+        });
+
+        getContentPane().setLayout(new BorderLayout());
+        getContentPane().add(main, BorderLayout.CENTER);
+        getContentPane().add(btns, BorderLayout.SOUTH);
+        pack();
+        setLocationRelativeTo(owner);
+
+        if (existing != null) {
+            firstNameField.setText(existing.firstName);
+            lastNameField.setText(existing.lastName);
+            phoneField.setText(existing.phone);
+            emailField.setText(existing.email);
+            favoriteCb.setSelected(existing.favorite);
+            switch (existing.gender.toLowerCase()) {
+                case "male": maleRb.setSelected(true); break;
+                case "female": femaleRb.setSelected(true); break;
+                default: otherRb.setSelected(true); break;
+            }
+            ListModel<String> lm = tagsList.getModel();
+            List<Integer> sel = new ArrayList<>();
+            for (int i=0;i<lm.getSize();i++) {
+                if (existing.tags.contains(lm.getElementAt(i))) sel.add(Integer.valueOf(i));
+            }
+            int[] idx = sel.stream().mapToInt(Integer::intValue).toArray();
+            tagsList.setSelectedIndices(idx);
+        } else {
+            otherRb.setSelected(true);
+        }
+    }
+
+    private void onOK() {
+        String fn = firstNameField.getText().trim();
+        String ln = lastNameField.getText().trim();
+        String ph = phoneField.getText().trim();
+        String em = emailField.getText().trim();
+        String gender = maleRb.isSelected() ? "Male" : femaleRb.isSelected() ? "Female" : "Other";
+        List<String> tags = tagsList.getSelectedValuesList();
+
+        String phoneError = ContactValidator.checkPhone(ph);
+        if (phoneError != null) {
+            JOptionPane.showMessageDialog(this, phoneError, "Validation Error",
+                    ph.isEmpty() ? JOptionPane.WARNING_MESSAGE : JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        String emailError = ContactValidator.checkEmail(em);
+        if (emailError != null) {
+            JOptionPane.showMessageDialog(this, emailError, "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        result = new Contact(fn, ln, ph, em, gender, tags, favoriteCb.isSelected());
+        dispose();
+    }
+
+
+
+    Contact getResult() { return result; }
+}
@@ -0,0 +1,225 @@
+import javax.swing.event.TableModelEvent;
+import java.util.*;
+
+/* --- Facet bitmaps over ContactsTableModel ---
+ * One BitSet per tag and one for favorites, indexed by model row. Facet
+ * selections are answered with and/or over the bitmaps, a few thousand long
+ * words for a million contacts. Every change is applied as it happens:
+ * inserts and deletes move the bits above them, so no row is read again.
+ * Tags and favorites come straight from the model's CompactContactList
+ * (dictionary masks and the meta byte), without building a Contact; only
+ * a full data change rebuilds the bitmaps.
+ */
+class ContactFacets {
+    private final ContactsTableModel model;
+
+    // tags in first-seen order, starting with the ones ContactDialog offers
+    private final Map<String, BitSet> tagBits = new LinkedHashMap<>();
+    private final BitSet favorites = new BitSet();
+    private final BitSet[] byBit = new BitSet[64];   // tagBits entries of the storage's dictionary bits
+    private CompactContactList source;
+    private int size = 0;
+    private boolean stale = false;
+
+    ContactFacets(ContactsTableModel model, String[] knownTags) {
+        this.model = model;
+        for (String t : knownTags) tagBits.put(t, new BitSet());
+        rebuild();
+        // registered after the JTable, so the bitmaps are current before the sorter asks for them
+        model.addTableModelListener(this::onModelChanged);
+    }
+
+    /* --- Queries --- */
+
+    Set<String> tags() {
+        ensureFresh();
+        return Collections.unmodifiableSet(tagBits.keySet());
+    }
+
+    /** Number of rows in {@code facet} that are also in {@code within} (all rows if null). */
+    int count(BitSet facet, BitSet within) {
+        if (within == null) return facet.cardinality();
+        BitSet b = (BitSet) facet.clone();
+        b.and(within);
+        return b.cardinality();
+    }
+
+    BitSet tag(String tag) {
+        ensureFresh();
+        BitSet b = tagBits.get(tag);
+        return b == null ? new BitSet() : b;
+    }
+
+    BitSet favorites() {
+        ensureFresh();
+        return favorites;
+    }
+
+    /**
+     * Rows that have all ({@code matchAll}) or any of {@code selectedTags}, and are
+     * favorites if {@code onlyFavorites}; null when nothing is selected. The result is a copy.
+     */
+    BitSet select(Collection<String> selectedTags, boolean matchAll, boolean onlyFavorites) {
+        ensureFresh();
+        BitSet result = null;
+        for (String t : selectedTags) {
+            BitSet b = tag(t);
+            if (result == null) result = (BitSet) b.clone();
+            else if (matchAll) result.and(b);
+            else result.or(b);
+        }
+        if (onlyFavorites) {
+            if (result == null) result = (BitSet) favorites.clone();
+            else result.and(favorites);
+        }
+        return result;
+    }
+
+    /* --- Maintenance --- */
+
+    private void onModelChanged(TableModelEvent e) {
+        if (stale) return;
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if (e instanceof ContactsTableModel.BulkChange) {
+            ContactsTableModel.BulkChange bulk = (ContactsTableModel.BulkChange) e;
+            if (bulk.removed) {
+                for (BitSet b : tagBits.values()) removeRows(b, bulk.rows);
+                removeRows(favorites, bulk.rows);
+                size -= bulk.rows.length;
+            } else {
+                for (int r : bulk.rows) set(r);
+            }
+        } else if (first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+            stale = true;
+        } else if (e.getType() == TableModelEvent.INSERT) {
+            int count = last - first + 1;
+            if (first < size) {
+                for (BitSet b : tagBits.values()) insertRows(b, first, count);
+                insertRows(favorites, first, count);
+            }
+            size += count;
+            for (int r = first; r <= last; r++) set(r);
+        } else if (e.getType() == TableModelEvent.UPDATE) {
+            for (int r = first; r <= last && r < size; r++) set(r);
+        } else {
+            int count = last - first + 1;
+            for (BitSet b : tagBits.values()) removeRange(b, first, count);
+            removeRange(favorites, first, count);
+            size -= count;
+        }
+        if (size != model.getRowCount()) stale = true;
+    }
+
+    private void ensureFresh() {
+        if (stale || size != model.getRowCount()) rebuild();
+    }
+
+    private void rebuild() {
+        stale = false;
+        for (BitSet b : tagBits.values()) b.clear();
+        favorites.clear();
+        CompactContactList list = storage();
+        size = list.size();
+        for (int r = 0; r < size; r++) {
+            if (list.tagsInRecord(r)) {
+                for (String t : list.tags(r)) tagBits.computeIfAbsent(t, k -> new BitSet()).set(r);
+            } else {
+                for (long m = list.tagMask(r); m != 0; m &= m - 1) bit(list, Long.numberOfTrailingZeros(m)).set(r);
+            }
+            if (list.isFavorite(r)) favorites.set(r);
+        }
+    }
+
+    private void set(int row) {
+        CompactContactList list = storage();
+        for (BitSet b : tagBits.values()) b.clear(row);
+        if (list.tagsInRecord(row)) {
+            for (String t : list.tags(row)) tagBits.computeIfAbsent(t, k -> new BitSet()).set(row);
+        } else {
+            for (long m = list.tagMask(row); m != 0; m &= m - 1) bit(list, Long.numberOfTrailingZeros(m)).set(row);
+        }
+        favorites.set(row, list.isFavorite(row));
+    }
+
+    // the model swaps in a new list on load, and its dictionary numbers tags differently
+    private CompactContactList storage() {
+        CompactContactList list = model.storage();
+        if (list != source) {
+            source = list;
+            Arrays.fill(byBit, null);
+        }
+        return list;
+    }
+
+    private BitSet bit(CompactContactList list, int bit) {
+        BitSet b = byBit[bit];
+        if (b == null) b = byBit[bit] = tagBits.computeIfAbsent(list.tagName(bit), k -> new BitSet());
+        return b;
+    }
+
+    /* --- Moving bits; removals move whole words, inserts (never at the end) are rare --- */
+
+    // sorted: ascending, distinct rows as numbered before the removal
+    private static void removeRows(BitSet b, int[] sorted) {
+        long[] w = b.toLongArray();
+        int to = sorted[0];
+        for (int k = 0; k < sorted.length && sorted[k] < w.length * 64; k++) {
+            int from = sorted[k] + 1;
+            int end = k + 1 < sorted.length ? Math.min(sorted[k + 1], w.length * 64) : w.length * 64;
+            moveDown(w, from, end, to);
+            to += end - from;
+        }
+        store(b, w, to);
+    }
+
+    private static void removeRange(BitSet b, int first, int count) {
+        long[] w = b.toLongArray();
+        int bits = w.length * 64;
+        if (first + count >= bits) {
+            if (first < bits) b.clear(first, bits);
+            return;
+        }
+        moveDown(w, first + count, bits, first);
+        store(b, w, bits - count);
+    }
+
+    private static void insertRows(BitSet b, int first, int count) {
+        for (int r = b.length() - 1; r >= first; r = b.previousSetBit(r - 1)) {
+            b.clear(r);
+            b.set(r + count);
+        }
+    }
+
+    // copies bits [from, end) to start at to <= from, 64 at a time; each word is read before it is written
+    private static void moveDown(long[] w, int from, int end, int to) {
+        while (from < end) {
+            int n = Math.min(64, end - from);
+            put(w, to, get(w, from), n);
+            from += n;
+            to += n;
+        }
+    }
+
+    private static long get(long[] w, int pos) {
+        int i = pos >>> 6, s = pos & 63;
+        long bits = w[i] >>> s;
+        if (s != 0 && i + 1 < w.length) bits |= w[i + 1] << (64 - s);
+        return bits;
+    }
+
+    private static void put(long[] w, int pos, long bits, int n) {
+        long mask = n == 64 ? -1L : (1L << n) - 1;
+        bits &= mask;
+        int i = pos >>> 6, s = pos & 63;
+        w[i] = (w[i] & ~(mask << s)) | (bits << s);
+        if (s != 0 && s + n > 64) w[i + 1] = (w[i + 1] & ~(mask >>> (64 - s))) | (bits >>> (64 - s));
+    }
+
+    // w up to bit `length` becomes the contents of b
+    private static void store(BitSet b, long[] w, int length) {
+        b.clear();
+        b.or(BitSet.valueOf(w));
+        if (length < w.length * 64) b.clear(length, w.length * 64);
+    }
+}
@@ -0,0 +1,258 @@
+import javax.swing.*;
+import javax.swing.event.TableModelListener;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/* --- Live reload of a CSV address book ---
+ * Watches the file's directory and, when the file changes, works out what
+ * changed since the last version it saw (the baseline) by comparing 64-bit
+ * hashes of the records:
+ *   - records gone from the file are removed from the model,
+ *   - new records are added, unless the model already has the same contact,
+ *   - a removed and an added record with the same phone are one edit and
+ *     update that row in place.
+ * Only rows that match a changed record are touched, so local edits that
+ * are not saved yet stay. Reading, hashing and matching run on the watcher
+ * thread against a model snapshot; the result is applied on the EDT only if
+ * the model did not change meanwhile, otherwise matching is redone.
+ */
+class ContactFileWatcher implements Closeable {
+    private static final long SETTLE_MS = 300;
+    private static final int MAX_RETRIES = 5;
+
+    private final Path file;
+    private final ContactsTableModel model;
+    private final Consumer<String> status;
+    private final WatchService watchService;
+    private final Thread thread;
+    private int version = 0;   // EDT only, bumped by every model event
+    private final TableModelListener versionListener = e -> version++;
+
+    // how many records of each hash the file had last time; watcher thread only
+    private Map<Long, Integer> baseline = new HashMap<>();
+    private volatile boolean closed = false;
+
+    /** Starts watching; {@code status} gets a one-line summary on the EDT after each applied change. */
+    ContactFileWatcher(File file, ContactsTableModel model, Consumer<String> status) throws IOException {
+        this.file = file.toPath().toAbsolutePath();
+        this.model = model;
+        this.status = status;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        model.addTableModelListener(versionListener);
+        thread = new Thread(this::run, "ContactFileWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    File getFile() { return file.toFile(); }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        model.removeTableModelListener(versionListener);
+        thread.interrupt();
+        watchService.close();
+    }
+
+    /* --- Watcher thread --- */
+
+    private void run() {
+        try {
+            // registered before this read, so a change made while reading is still seen afterwards
+            baseline = counts(ContactCsv.readFile(file));
+            while (!closed) {
+                WatchKey key = watchService.take();
+                boolean ours = false;
+                for (WatchEvent<?> e : key.pollEvents()) {
+                    ours |= e.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(e.context());
+                }
+                key.reset();
+                if (!ours) continue;
+                settle();
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // closed
+        } catch (IOException ex) {
+            if (!closed) SwingUtilities.invokeLater(() -> status.accept("Stopped watching " + file.getFileName() + ": " + ex.getMessage()));
+        }
+    }
+
+    // Editors often save in several steps; wait until the events stop
+    private void settle() throws InterruptedException {
+        WatchKey key;
+        while ((key = watchService.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null) {
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    private void reload() throws InterruptedException {
+        List<Contact> records;
+        try {
+            if (!Files.exists(file)) return;
+            records = ContactCsv.readFile(file);
+        } catch (IOException ex) {
+            // probably still being written; the next event retries
+            return;
+        }
+
+        // file vs baseline: what is left of the baseline was removed, what did not match it was added
+        Map<Long, Integer> removed = new HashMap<>(baseline);
+        List<Contact> added = new ArrayList<>();
+        long[] addedHashes = new long[records.size()];
+        for (Contact c : records) {
+            long h = hash(c);
+            if (removed.merge(h, -1, Integer::sum) < 0) {
+                removed.remove(h);
+                addedHashes[added.size()] = h;
+                added.add(c);
+            } else if (removed.get(h) == 0) {
+                removed.remove(h);
+            }
+        }
+        Map<Long, Integer> current = counts(records);
+        if (removed.isEmpty() && added.isEmpty()) {
+            baseline = current;
+            return;
+        }
+        addedHashes = Arrays.copyOf(addedHashes, added.size());
+
+        for (int attempt = 0; attempt < MAX_RETRIES && !closed; attempt++) {
+            if (apply(removed, added, addedHashes)) {
+                baseline = current;
+                return;
+            }
+        }
+        // the model kept changing; the old baseline stays, so the next file change carries this one too
+    }
+
+    // Matches the changes against a model snapshot, then applies them on the EDT; false if the model moved on
+    private boolean apply(Map<Long, Integer> removed, List<Contact> added, long[] addedHashes) throws InterruptedException {
+        CompactContactList[] snap = new CompactContactList[1];
+        int[] seen = new int[1];
+        onEdt(() -> {
+            snap[0] = model.snapshot();
+            seen[0] = version;
+        });
+        CompactContactList snapshot = snap[0];
+
+        // model rows holding a removed record, and how many of the added records the model already has
+        Map<Long, Integer> toRemove = new HashMap<>(removed);
+        Set<Long> addedSet = new HashSet<>();
+        for (long h : addedHashes) addedSet.add(h);
+        Map<Long, Integer> present = new HashMap<>();
+        List<Integer> removeRows = new ArrayList<>();
+        for (int r = 0; r < snapshot.size(); r++) {
+            long h = hash(snapshot.get(r));
+            Integer left = toRemove.get(h);
+            if (left != null && left > 0) {
+                toRemove.put(h, left - 1);
+                removeRows.add(r);
+            } else if (addedSet.contains(h)) {
+                present.merge(h, 1, Integer::sum);
+            }
+        }
+
+        // an added record with the phone of a removed row is an edit of that row
+        Map<String, Integer> removedByPhone = new HashMap<>();
+        for (int r : removeRows) removedByPhone.putIfAbsent(snapshot.phone(r), r);
+        List<Integer> updateRows = new ArrayList<>();
+        List<Contact> updateValues = new ArrayList<>();
+        List<Contact> append = new ArrayList<>();
+        for (int i = 0; i < added.size(); i++) {
+            Integer have = present.get(addedHashes[i]);
+            if (have != null && have > 0) {
+                present.put(addedHashes[i], have - 1);
+                continue;
+            }
+            Contact c = added.get(i);
+            Integer row = removedByPhone.remove(c.phone);
+            if (row != null) {
+                updateRows.add(row);
+                updateValues.add(c);
+            } else {
+                append.add(c);
+            }
+        }
+        Set<Integer> edited = new HashSet<>(updateRows);
+        int[] deletes = removeRows.stream().filter(r -> !edited.contains(r)).mapToInt(Integer::intValue).toArray();
+        int[] updates = updateRows.stream().mapToInt(Integer::intValue).toArray();
+        Contact[] values = updateValues.toArray(new Contact[0]);
+
+        boolean[] applied = new boolean[1];
+        onEdt(() -> {
+            if (closed || version != seen[0]) return;
+            // updates first: deletes shift the rows after them
+            model.setAll(updates, values);
+            model.removeAll(deletes);
+            model.addAll(append);
+            applied[0] = true;
+            if (updates.length + deletes.length + append.size() > 0) {
+                status.accept(file.getFileName() + " changed on disk: " + append.size() + " added, "
+                        + updates.length + " updated, " + deletes.length + " removed");
+            }
+        });
+        return applied[0];
+    }
+
+    private static void onEdt(Runnable r) throws InterruptedException {
+        try {
+            SwingUtilities.invokeAndWait(r);
+        } catch (InvocationTargetException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /* --- Hashing --- */
+
+    private static Map<Long, Integer> counts(List<Contact> records) {
+        Map<Long, Integer> counts = new HashMap<>(records.size() * 2);
+        for (Contact c : records) counts.merge(hash(c), 1, Integer::sum);
+        return counts;
+    }
+
+    // FNV-1a over the CSV form, so it covers exactly what the file stores
+    static long hash(Contact c) {
+        Fnv f = HASHERS.get();
+        f.h = 0xcbf29ce484222325L;
+        try {
+            f.csv.writeFields(c);
+            f.csv.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);   // Fnv does not fail
+        }
+        return f.h;
+    }
+
+    private static final ThreadLocal<Fnv> HASHERS = ThreadLocal.withInitial(Fnv::new);
+
+    // hashes what the CSV writer puts out instead of building the line
+    private static final class Fnv extends java.io.Writer {
+        final ContactCsv.Writer csv = new ContactCsv.Writer(this, 256);
+        long h;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                h ^= cbuf[i];
+                h *= 0x100000001b3L;
+            }
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,399 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.swing.*;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/* --- Local HTTP/JSON endpoint for ContactService ---
+ * Listens on 127.0.0.1 only. Routes:
+ *   GET    /contacts?q=&phone=&email=&limit=   search (phone prefix, exact email, or text)
+ *   GET    /contacts/{phone}                   one contact
+ *   POST   /contacts                           add, body is a contact object
+ *   PUT    /contacts/{phone}                   replace
+ *   DELETE /contacts/{phone}
+ *   GET    /export?format=csv|vcf              the whole book
+ * A contact is {"firstName", "lastName", "phone", "email", "gender", "tags": [...], "favorite"}.
+ * Every GET works on the one View it took at the start, so a response is
+ * consistent even while writes go on. Requests run on a fixed pool.
+ *
+ * Run without the GUI: java ContactHttpServer [port] [book.csv|book.abk]
+ * (changes then live in memory only).
+ */
+class ContactHttpServer {
+    static final int DEFAULT_PORT = 8765;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 10_000;
+
+    private final ContactService service;
+    private final HttpServer server;
+    private final ExecutorService pool;
+
+    ContactHttpServer(ContactService service, int port) throws IOException {
+        // small JSON replies are written as headers + body; with Nagle on, each waits for a delayed ACK (~40ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.pool = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), r -> {
+            Thread t = new Thread(r, "ContactHttpServer");
+            t.setDaemon(true);
+            return t;
+        });
+        server.createContext("/contacts", this::handleContacts);
+        server.createContext("/export", this::handleExport);
+        server.setExecutor(pool);
+    }
+
+    void start() { server.start(); }
+
+    void stop() {
+        server.stop(0);
+        pool.shutdown();
+    }
+
+    int getPort() { return server.getAddress().getPort(); }
+
+    /* --- Handlers --- */
+
+    private void handleContacts(HttpExchange ex) throws IOException {
+        try {
+            routeContacts(ex);
+        } catch (IllegalArgumentException e) {
+            send(ex, 400, error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(ex, 503, error("Interrupted"));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void routeContacts(HttpExchange ex) throws IOException, InterruptedException {
+        String path = ex.getRequestURI().getPath();
+        String phone = path.length() > "/contacts/".length()
+                ? URLDecoder.decode(path.substring("/contacts/".length()), StandardCharsets.UTF_8) : null;
+        switch (ex.getRequestMethod()) {
+            case "GET" -> {
+                if (phone == null) list(ex);
+                else get(ex, phone);
+            }
+            case "POST" -> {
+                if (phone != null) { send(ex, 405, error("Use PUT to change a contact")); return; }
+                String err = service.add(Json.parseContact(body(ex)));
+                if (err != null) send(ex, 400, error(err));
+                else send(ex, 201, "{}");
+            }
+            case "PUT" -> {
+                if (phone == null) { send(ex, 405, error("PUT needs /contacts/{phone}")); return; }
+                String err = service.update(phone, Json.parseContact(body(ex)));
+                if (err == null) send(ex, 200, "{}");
+                else send(ex, err.equals("not found") ? 404 : 400, error(err));
+            }
+            case "DELETE" -> {
+                if (phone == null) { send(ex, 405, error("DELETE needs /contacts/{phone}")); return; }
+                if (service.delete(phone)) send(ex, 200, "{}");
+                else send(ex, 404, error("not found"));
+            }
+            default -> send(ex, 405, error("Method not allowed"));
+        }
+    }
+
+    private void list(HttpExchange ex) throws IOException {
+        Map<String, String> q = query(ex);
+        int limit = Math.min(MAX_LIMIT, parseLimit(q.get("limit")));
+        ContactService.View view = service.view();
+        List<Integer> rows;
+        if (q.containsKey("phone")) rows = view.byPhone(q.get("phone"), limit);
+        else if (q.containsKey("email")) rows = view.byEmail(q.get("email"), limit);
+        else if (q.containsKey("q")) rows = view.search(q.get("q"), limit);
+        else rows = view.search("", limit);
+
+        StringBuilder sb = new StringBuilder(64 + rows.size() * 128);
+        sb.append("{\"count\":").append(rows.size()).append(",\"contacts\":[");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) sb.append(',');
+            Json.appendContact(sb, view.contacts, rows.get(i));
+        }
+        sb.append("]}");
+        send(ex, 200, sb.toString());
+    }
+
+    private void get(HttpExchange ex, String phone) throws IOException {
+        ContactService.View view = service.view();
+        String key = ContactLookup.phoneKey(phone);
+        for (int r : view.byPhone(phone, 2)) {
+            if (ContactLookup.phoneKey(view.contacts.phone(r)).equals(key)) {
+                StringBuilder sb = new StringBuilder(128);
+                Json.appendContact(sb, view.contacts, r);
+                send(ex, 200, sb.toString());
+                return;
+            }
+        }
+        send(ex, 404, error("not found"));
+    }
+
+    private void handleExport(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!ex.getRequestMethod().equals("GET")) {
+                send(ex, 405, error("Method not allowed"));
+                return;
+            }
+            String format = query(ex).getOrDefault("format", "csv");
+            if (!format.equals("csv") && !format.equals(ContactVCard.EXTENSION)) {
+                send(ex, 400, error("format must be csv or vcf"));
+                return;
+            }
+            CompactContactList contacts = service.view().contacts;
+            ex.getResponseHeaders().set("Content-Type", format.equals("csv") ? "text/csv; charset=utf-8" : "text/vcard; charset=utf-8");
+            ex.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"contacts." + format + "\"");
+            ex.sendResponseHeaders(200, 0);   // chunked; the book is streamed, not built in memory
+            java.io.Writer out = new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), 1 << 16);
+            if (format.equals("csv")) {
+                try (ContactCsv.Writer w = new ContactCsv.Writer(out)) {
+                    for (Contact c : contacts) w.write(c);
+                }
+            } else {
+                try (ContactVCard.Writer w = new ContactVCard.Writer(out, "4.0")) {
+                    for (Contact c : contacts) w.write(c);
+                }
+            }
+        }
+    }
+
+    /* --- Helpers --- */
+
+    private static int parseLimit(String s) {
+        if (s == null) return DEFAULT_LIMIT;
+        try {
+            return Math.max(0, Integer.parseInt(s));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("limit must be a number");
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> q = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return q;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            q.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+        }
+        return q;
+    }
+
+    private static String body(HttpExchange ex) throws IOException {
+        return new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        Json.appendString(sb, message);
+        return sb.append('}').toString();
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        ex.getResponseBody().write(bytes);
+    }
+
+    /* --- JSON for flat contact objects --- */
+
+    static final class Json {
+        private Json() {}
+
+        static void appendContact(StringBuilder sb, CompactContactList contacts, int row) {
+            sb.append("{\"firstName\":");
+            appendString(sb, contacts.firstName(row));
+            sb.append(",\"lastName\":");
+            appendString(sb, contacts.lastName(row));
+            sb.append(",\"phone\":");
+            appendString(sb, contacts.phone(row));
+            sb.append(",\"email\":");
+            appendString(sb, contacts.email(row));
+            sb.append(",\"gender\":");
+            appendString(sb, contacts.gender(row));
+            sb.append(",\"tags\":[");
+            List<String> tags = contacts.tags(row);
+            for (int i = 0; i < tags.size(); i++) {
+                if (i > 0) sb.append(',');
+                appendString(sb, tags.get(i));
+            }
+            sb.append("],\"favorite\":").append(contacts.isFavorite(row)).append('}');
+        }
+
+        static void appendString(StringBuilder sb, String s) {
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                        else sb.append(c);
+                    }
+                }
+            }
+            sb.append('"');
+        }
+
+        /** Parses one contact object; unknown keys are ignored, missing strings become "". */
+        static Contact parseContact(String json) {
+            Parser p = new Parser(json);
+            Map<String, Object> fields = p.object();
+            p.end();
+            List<String> tags = new ArrayList<>();
+            Object t = fields.get("tags");
+            if (t instanceof List<?> list) {
+                for (Object o : list) {
+                    if (!(o instanceof String s)) throw new IllegalArgumentException("tags must be strings");
+                    tags.add(s);
+                }
+            } else if (t != null) {
+                throw new IllegalArgumentException("tags must be an array");
+            }
+            Object fav = fields.get("favorite");
+            if (fav != null && !(fav instanceof Boolean)) throw new IllegalArgumentException("favorite must be true or false");
+            return new Contact(string(fields, "firstName"), string(fields, "lastName"), string(fields, "phone"),
+                    string(fields, "email"), string(fields, "gender"), tags, Boolean.TRUE.equals(fav));
+        }
+
+        private static String string(Map<String, Object> fields, String key) {
+            Object v = fields.get(key);
+            if (v == null) return "";
+            if (!(v instanceof String s)) throw new IllegalArgumentException(key + " must be a string");
+            return s.trim();
+        }
+
+        // Objects, arrays, strings, true/false/null; numbers are not needed for contacts
+        private static final class Parser {
+            private final String s;
+            private int pos = 0;
+
+            Parser(String s) { this.s = s; }
+
+            Map<String, Object> object() {
+                expect('{');
+                Map<String, Object> out = new HashMap<>();
+                if (peek() == '}') { pos++; return out; }
+                do {
+                    String key = string();
+                    expect(':');
+                    out.put(key, value());
+                } while (next() == ',');
+                pos--;
+                expect('}');
+                return out;
+            }
+
+            private Object value() {
+                char c = peek();
+                if (c == '"') return string();
+                if (c == '{') return object();
+                if (c == '[') {
+                    pos++;
+                    List<Object> out = new ArrayList<>();
+                    if (peek() == ']') { pos++; return out; }
+                    do {
+                        out.add(value());
+                    } while (next() == ',');
+                    pos--;
+                    expect(']');
+                    return out;
+                }
+                if (s.startsWith("true", pos)) { pos += 4; return Boolean.TRUE; }
+                if (s.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+                if (s.startsWith("null", pos)) { pos += 4; return null; }
+                throw new IllegalArgumentException("Unexpected JSON at " + pos);
+            }
+
+            private String string() {
+                expect('"');
+                StringBuilder sb = new StringBuilder();
+                while (pos < s.length()) {
+                    char c = s.charAt(pos++);
+                    if (c == '"') return sb.toString();
+                    if (c != '\\') { sb.append(c); continue; }
+                    if (pos >= s.length()) break;
+                    char e = s.charAt(pos++);
+                    switch (e) {
+                        case 'n' -> sb.append('\n');
+                        case 'r' -> sb.append('\r');
+                        case 't' -> sb.append('\t');
+                        case 'b' -> sb.append('\b');
+                        case 'f' -> sb.append('\f');
+                        case 'u' -> {
+                            if (pos + 4 > s.length()) throw new IllegalArgumentException("Bad \\u escape");
+                            try {
+                                sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                            } catch (NumberFormatException ex) {
+                                throw new IllegalArgumentException("Bad \\u escape");
+                            }
+                            pos += 4;
+                        }
+                        default -> sb.append(e);
+                    }
+                }
+                throw new IllegalArgumentException("Unterminated JSON string");
+            }
+
+            private char peek() {
+                while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+                if (pos >= s.length()) throw new IllegalArgumentException("Unexpected end of JSON");
+                return s.charAt(pos);
+            }
+
+            private char next() {
+                char c = peek();
+                pos++;
+                return c;
+            }
+
+            private void expect(char c) {
+                if (next() != c) throw new IllegalArgumentException("Expected '" + c + "' at " + (pos - 1));
+            }
+
+            void end() {
+                while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+                if (pos < s.length()) throw new IllegalArgumentException("Unexpected JSON at " + pos);
+            }
+        }
+    }
+
+    /* --- Headless entry point --- */
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        List<Contact> loaded = List.of();
+        if (args.length > 1) {
+            File f = new File(args[1]);
+            loaded = ContactSnapshot.isSnapshot(f) ? ContactSnapshot.read(f) : ContactCsv.readFile(Path.of(args[1]));
+        }
+        List<Contact> initial = loaded;
+        ContactService[] service = new ContactService[1];
+        SwingUtilities.invokeAndWait(() -> {
+            ContactsTableModel model = new ContactsTableModel();
+            model.addAll(initial);
+            service[0] = new ContactService(model);
+        });
+        ContactHttpServer server = new ContactHttpServer(service[0], port);
+        server.start();
+        System.out.println("Serving " + initial.size() + " contacts on http://127.0.0.1:" + server.getPort() + "/contacts");
+        Thread.currentThread().join();   // the pool threads are daemons
+    }
+}
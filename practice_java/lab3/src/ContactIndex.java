@@ -0,0 +1,235 @@
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+/* --- Trigram index over a CompactContactList ---
+ * Every lower-cased trigram of a contact's first name, last name, phone,
+ * email and tags kept outside the dictionary mask maps to the records that
+ * contain it. Posting lists are ascending record ids stored as varint deltas
+ * in one growing byte[] per trigram, so a record costs about one byte per
+ * distinct trigram in it.
+ *
+ * Ids, not model rows, so that model changes never rewrite postings: an
+ * inserted or updated row gets a new id and is indexed on the next sync, a
+ * deleted or replaced row's id is marked dead. Only the id <-> row maps
+ * shift. Once more ids are dead than alive everything is indexed again.
+ *
+ * A query of three or more characters gets the rows of its rarest trigram
+ * as candidates. That is a superset of the matches; the caller checks each
+ * candidate against the contact itself.
+ *
+ * Not thread-safe; ContactRowSorter uses it from its one worker thread.
+ */
+final class ContactIndex {
+    private static final int MIN_QUERY = 3;
+
+    private int rows = 0;
+    private int[] rowToId = new int[16];
+    private int ids = 0;            // ids handed out; ids at and past indexedIds wait for sync
+    private int liveIds = 0;
+    private int indexedIds = 0;
+    private int[] idToRow = new int[16];   // -1 once the record is gone
+
+    // open addressing: trigram + 1 (0 = empty slot) -> posting list
+    private long[] grams = new long[1 << 12];
+    private byte[][] lists = new byte[1 << 12][];
+    private int[] listBytes = new int[1 << 12];
+    private int[] listIds = new int[1 << 12];
+    private int[] lastId = new int[1 << 12];
+    private int gramCount = 0;
+
+    /** True if {@link #candidates} can narrow {@code text}. */
+    static boolean canNarrow(String text) {
+        return text.length() >= MIN_QUERY;
+    }
+
+    /* --- Model changes, applied in model order --- */
+
+    /** Forgets everything; the {@code count} rows are all new. */
+    void reset(int count) {
+        clear();
+        rows = 0;
+        ids = 0;
+        liveIds = 0;
+        indexedIds = 0;
+        rowsInserted(0, count);
+    }
+
+    void rowsInserted(int first, int count) {
+        if (rows + count > rowToId.length) rowToId = Arrays.copyOf(rowToId, Math.max(rows + count, rowToId.length * 2));
+        System.arraycopy(rowToId, first, rowToId, first + count, rows - first);
+        rows += count;
+        for (int i = 0; i < count; i++) rowToId[first + i] = newId(first + i);
+        for (int r = first + count; r < rows; r++) idToRow[rowToId[r]] = r;
+    }
+
+    /** {@code sorted}: ascending, distinct rows, numbered as before the removal. */
+    void rowsRemoved(int[] sorted) {
+        if (sorted.length == 0) return;
+        int w = sorted[0], k = 0;
+        for (int r = sorted[0]; r < rows; r++) {
+            if (k < sorted.length && sorted[k] == r) {
+                idToRow[rowToId[r]] = -1;
+                liveIds--;
+                k++;
+                continue;
+            }
+            rowToId[w] = rowToId[r];
+            idToRow[rowToId[w]] = w;
+            w++;
+        }
+        rows = w;
+        if (ids - liveIds > Math.max(liveIds, 4096)) reset(rows);
+    }
+
+    void rowsUpdated(int[] changed) {
+        for (int r : changed) {
+            idToRow[rowToId[r]] = -1;
+            liveIds--;
+            rowToId[r] = newId(r);
+        }
+        if (ids - liveIds > Math.max(liveIds, 4096)) reset(rows);
+    }
+
+    private int newId(int row) {
+        if (ids == idToRow.length) idToRow = Arrays.copyOf(idToRow, ids * 2);
+        idToRow[ids] = row;
+        liveIds++;
+        return ids++;
+    }
+
+    /**
+     * Indexes the records added since the last sync. {@code contacts} must be the model as
+     * of the last change applied. Returns false if {@code stale} turned true first.
+     */
+    boolean sync(CompactContactList contacts, BooleanSupplier stale) {
+        CompactContactList.LowerCaseReader in = contacts.reader();
+        for (int id = indexedIds; id < ids; id++) {
+            if ((id & 4095) == 0 && stale.getAsBoolean()) return false;
+            int r = idToRow[id];
+            if (r >= 0) {
+                for (int f = 0; f < CompactContactList.LowerCaseReader.FIELDS; f++) {
+                    addField(in.chars, in.read(r, f), id);
+                }
+            }
+            indexedIds = id + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Rows that may have a name, phone, email or non-mask tag containing
+     * {@code text} (lower-cased, at least three characters). Call after {@link #sync}.
+     */
+    BitSet candidates(String text) {
+        int best = -1;
+        for (int i = 0; i + MIN_QUERY <= text.length(); i++) {
+            int slot = find(gram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2)));
+            if (slot < 0) return new BitSet();
+            if (best < 0 || listIds[slot] < listIds[best]) best = slot;
+        }
+        BitSet out = new BitSet(rows);
+        byte[] list = lists[best];
+        int id = -1;
+        for (int p = 0; p < listBytes[best]; ) {
+            int delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = list[p++];
+                delta |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            id += delta;
+            if (idToRow[id] >= 0) out.set(idToRow[id]);
+        }
+        return out;
+    }
+
+    /* --- Building --- */
+
+    // chars are lower-cased already; trigrams across the '\0' between tags never match a query
+    private void addField(char[] chars, int length, int id) {
+        char c0 = 0, c1 = 0;
+        for (int i = 0; i < length; i++) {
+            char c2 = chars[i];
+            if (i >= 2) add(gram(c0, c1, c2), id);
+            c0 = c1;
+            c1 = c2;
+        }
+    }
+
+    private static long gram(char a, char b, char c) {
+        return (long) a << 32 | (long) b << 16 | c;
+    }
+
+    private void add(long gram, int id) {
+        int slot = slot(gram);
+        if (grams[slot] == 0) {
+            grams[slot] = gram + 1;
+            lists[slot] = new byte[4];
+            lastId[slot] = -1;
+            if (++gramCount * 2 > grams.length) {
+                grow();
+                slot = slot(gram);
+            }
+        }
+        if (lastId[slot] == id) return;   // trigram repeated within the record
+        int delta = id - lastId[slot];
+        lastId[slot] = id;
+        listIds[slot]++;
+        byte[] list = lists[slot];
+        int p = listBytes[slot];
+        if (p + 5 > list.length) list = lists[slot] = Arrays.copyOf(list, Math.max(p + 5, list.length * 2));
+        while (delta >= 0x80) {
+            list[p++] = (byte) (delta | 0x80);
+            delta >>>= 7;
+        }
+        list[p++] = (byte) delta;
+        listBytes[slot] = p;
+    }
+
+    private int slot(long gram) {
+        int mask = grams.length - 1;
+        int i = (int) (mix(gram) & mask);
+        while (grams[i] != 0 && grams[i] != gram + 1) i = (i + 1) & mask;
+        return i;
+    }
+
+    private int find(long gram) {
+        int i = slot(gram);
+        return grams[i] == 0 ? -1 : i;
+    }
+
+    private static long mix(long x) {
+        x *= 0x9E3779B97F4A7C15L;
+        return x ^ (x >>> 29);
+    }
+
+    private void grow() {
+        long[] oldGrams = grams;
+        byte[][] oldLists = lists;
+        int[] oldBytes = listBytes, oldIds = listIds, oldLast = lastId;
+        int cap = oldGrams.length * 2;
+        grams = new long[cap];
+        lists = new byte[cap][];
+        listBytes = new int[cap];
+        listIds = new int[cap];
+        lastId = new int[cap];
+        for (int i = 0; i < oldGrams.length; i++) {
+            if (oldGrams[i] == 0) continue;
+            int s = slot(oldGrams[i] - 1);
+            grams[s] = oldGrams[i];
+            lists[s] = oldLists[i];
+            listBytes[s] = oldBytes[i];
+            listIds[s] = oldIds[i];
+            lastId[s] = oldLast[i];
+        }
+    }
+
+    private void clear() {
+        grams = new long[1 << 12];
+        lists = new byte[1 << 12][];
+        listBytes = new int[1 << 12];
+        listIds = new int[1 << 12];
+        lastId = new int[1 << 12];
+        gramCount = 0;
+    }
+}
@@ -0,0 +1,446 @@
+import javax.swing.event.TableModelEvent;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/* --- Phone prefix trie and email domain table ---
+ * Phones are keyed by their digits in +380 form ("380671234567"), so
+ * "+38067" and "067" are the same prefix walk. The trie has one level per
+ * digit down to DEPTH; below that a node keeps a bucket of rows in ascending
+ * order. Every node knows how many rows are under it, which is what
+ * autocomplete shows. A row's own key is one long (a leading 1, then the
+ * digits), so buckets need no strings to check longer prefixes.
+ *
+ * Email domains are few, so each distinct lower-cased domain gets an id with
+ * its rows in ascending order, and a row keeps only the id. "@gmail.com" and
+ * "@.ua" pick the ids whose domain is or ends with the query and or their
+ * rows together, so a query never visits rows of other domains.
+ *
+ * Rows are model indices, kept current on every change like ContactFacets:
+ * deletes and inserts renumber the bucket and domain entries above them, and
+ * only a full data change reads every row again.
+ */
+class ContactLookup {
+    private static final int DEPTH = 8;
+    private static final int MAX_DIGITS = 18;       // what fits in a long after the leading 1
+    private static final int MIN_QUERY_DIGITS = 3;  // "0" alone would be "380", every phone
+    private static final Pattern PHONE_QUERY = Pattern.compile("[+0][\\d\\s()-]*");
+
+    private final ContactsTableModel model;
+    private final Node phones = new Node();
+
+    // domain ids; 0 is "no domain" and has a count but no row list
+    private final Map<String, Integer> domainIds = new HashMap<>();
+    private final List<String> domainNames = new ArrayList<>();
+    private int[] domainRows = new int[16];         // rows per id
+    private int[][] domainPostings = new int[16][]; // ascending rows per id, domainRows[id] of them used
+
+    // per row: packed phone key (0 = none) and domain id
+    private long[] phoneOf = new long[0];
+    private int[] domainOf = new int[0];
+    private int size = 0;
+    private boolean stale = false;
+
+    private static final class Node {
+        final Node[] children = new Node[10];
+        int count;
+        // rows whose key ends here or runs past DEPTH, ascending
+        int[] rows;
+        int bucketSize;
+    }
+
+    ContactLookup(ContactsTableModel model) {
+        this.model = model;
+        rebuild();
+        model.addTableModelListener(this::onModelChanged);
+    }
+
+    /* --- Queries --- */
+
+    /** True if {@code text} should be answered by phonePrefix(): starts with + or 0, has only phone characters and at least three digits. */
+    static boolean isPhonePrefix(String text) {
+        if (!PHONE_QUERY.matcher(text).matches()) return false;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isDigit(text.charAt(i))) digits++;
+        }
+        return digits >= MIN_QUERY_DIGITS;
+    }
+
+    /** Rows whose phone starts with {@code prefix} (any of +380.., 380.., 0.. forms). */
+    BitSet phonePrefix(String prefix) {
+        ensureFresh();
+        String key = phoneKey(prefix);
+        BitSet out = new BitSet();
+        Node n = walk(key);
+        if (n == null) return out;
+        boolean check = key.length() > DEPTH;
+        long packed = pack(key);
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(n);
+        while (!stack.isEmpty()) {
+            Node x = stack.pop();
+            for (int i = 0; i < x.bucketSize; i++) {
+                int r = x.rows[i];
+                if (!check || hasPrefix(phoneOf[r], packed)) out.set(r);
+            }
+            for (Node c : x.children) if (c != null) stack.push(c);
+        }
+        return out;
+    }
+
+    /** Rows whose email domain is {@code domain} or ends with it (".ua", "gmail.com"); a leading @ is ignored. */
+    BitSet domain(String domain) {
+        ensureFresh();
+        String q = (domain.startsWith("@") ? domain.substring(1) : domain).toLowerCase();
+        if (q.startsWith(".")) q = q.substring(1);
+        boolean[] match = new boolean[domainNames.size()];
+        for (int id = 1; id < match.length; id++) {
+            String d = domainNames.get(id);
+            match[id] = d.endsWith(q) && (d.length() == q.length() || d.charAt(d.length() - q.length() - 1) == '.');
+        }
+        BitSet out = new BitSet();
+        for (int id = 1; id < match.length; id++) {
+            if (!match[id]) continue;
+            int[] rows = domainPostings[id];
+            for (int i = 0; i < domainRows[id]; i++) out.set(rows[i]);
+        }
+        return out;
+    }
+
+    /** Up to {@code limit} existing phones starting with {@code prefix}, most common first. */
+    List<String> completePhone(String prefix, int limit) {
+        ensureFresh();
+        String key = phoneKey(prefix);
+        Map<Long, Integer> counts = new HashMap<>();
+        Node n = walk(key);
+        if (n == null) return new ArrayList<>();
+        long packed = pack(key);
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(n);
+        while (!stack.isEmpty() && counts.size() < limit * 8) {
+            Node x = stack.pop();
+            for (int i = 0; i < x.bucketSize; i++) {
+                long k = phoneOf[x.rows[i]];
+                if (hasPrefix(k, packed)) counts.merge(k, 1, Integer::sum);
+            }
+            for (int d = 9; d >= 0; d--) if (x.children[d] != null) stack.push(x.children[d]);
+        }
+        List<Long> keys = new ArrayList<>(counts.keySet());
+        keys.sort((a, b) -> counts.get(b) - counts.get(a) != 0 ? counts.get(b) - counts.get(a) : Long.compare(a, b));
+        List<String> out = new ArrayList<>();
+        for (Long k : keys.subList(0, Math.min(limit, keys.size()))) out.add("+" + unpack(k));
+        return out;
+    }
+
+    /** Known domains starting with {@code partial} (forward, without @), most used first. */
+    List<String> completeDomain(String partial, int limit) {
+        ensureFresh();
+        String p = partial.toLowerCase();
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id < domainNames.size(); id++) {
+            if (domainRows[id] > 0 && domainNames.get(id).startsWith(p)) ids.add(id);
+        }
+        ids.sort((a, b) -> domainRows[b] != domainRows[a] ? domainRows[b] - domainRows[a] : domainNames.get(a).compareTo(domainNames.get(b)));
+        List<String> out = new ArrayList<>();
+        for (int id : ids.subList(0, Math.min(limit, ids.size()))) out.add(domainNames.get(id));
+        return out;
+    }
+
+    /** Completions for the search box: phone prefixes one digit further, or @domains. */
+    List<String> completeSearch(String text, int limit) {
+        List<String> out = new ArrayList<>();
+        if (isPhonePrefix(text)) {
+            ensureFresh();
+            String key = phoneKey(text);
+            Node n = walk(key);
+            if (n == null) return out;
+            if (n.rows != null) return completePhone(text, limit);
+            // next digit, busiest branches first, e.g. +38067 -> +380671, +380673, ...
+            List<Integer> next = new ArrayList<>();
+            for (int d = 0; d < 10; d++) if (n.children[d] != null && n.children[d].count > 0) next.add(d);
+            next.sort((a, b) -> n.children[b].count - n.children[a].count);
+            for (int d : next) {
+                out.add("+" + key + d + "  (" + n.children[d].count + ")");
+                if (out.size() == limit) break;
+            }
+        } else if (text.startsWith("@")) {
+            for (String d : completeDomain(text.substring(1), limit)) out.add("@" + d);
+        }
+        return out;
+    }
+
+    /* --- Keys --- */
+
+    static String phoneKey(String phone) {
+        StringBuilder sb = new StringBuilder(13);
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') sb.append(c);
+        }
+        // local 0XX... numbers are the same as 380XX...
+        if (sb.length() > 0 && sb.charAt(0) == '0') sb.insert(0, "38");
+        return sb.toString();
+    }
+
+    // "380671234567" -> 1380671234567; digits past MAX_DIGITS are dropped
+    private static long pack(String digits) {
+        long key = 1;
+        for (int i = 0; i < digits.length() && i < MAX_DIGITS; i++) key = key * 10 + (digits.charAt(i) - '0');
+        return key;
+    }
+
+    private static String unpack(long key) {
+        return Long.toString(key).substring(1);
+    }
+
+    // both packed; a shorter key is a smaller number, so dividing never passes a real prefix
+    private static boolean hasPrefix(long key, long prefix) {
+        while (key > prefix) key /= 10;
+        return key == prefix;
+    }
+
+    private static String emailDomain(String email) {
+        if (email == null) return null;
+        int at = email.lastIndexOf('@');
+        return at < 0 || at == email.length() - 1 ? null : email.substring(at + 1).trim();
+    }
+
+    private int domainId(String domain) {
+        Integer id = domainIds.get(domain);
+        if (id != null) return id;
+        int next = domainNames.size();
+        domainIds.put(domain, next);
+        domainNames.add(domain);
+        if (next == domainRows.length) {
+            domainRows = Arrays.copyOf(domainRows, next * 2);
+            domainPostings = Arrays.copyOf(domainPostings, next * 2);
+        }
+        return next;
+    }
+
+    private void link(int id, int row) {
+        if (id != 0) {
+            int[] rows = domainPostings[id];
+            int n = domainRows[id];
+            if (rows == null) {
+                rows = domainPostings[id] = new int[4];
+            } else if (n == rows.length) {
+                rows = domainPostings[id] = Arrays.copyOf(rows, n * 2);
+            }
+            // rows mostly arrive in ascending order, so check the end first
+            int at = n == 0 || rows[n - 1] < row ? n : -Arrays.binarySearch(rows, 0, n, row) - 1;
+            System.arraycopy(rows, at, rows, at + 1, n - at);
+            rows[at] = row;
+        }
+        domainRows[id]++;
+    }
+
+    private void unlink(int id, int row) {
+        if (id != 0) {
+            int[] rows = domainPostings[id];
+            int n = domainRows[id];
+            int at = Arrays.binarySearch(rows, 0, n, row);
+            System.arraycopy(rows, at + 1, rows, at, n - at - 1);
+        }
+        domainRows[id]--;
+    }
+
+    /* --- Trie --- */
+
+    private Node walk(String key) {
+        Node n = phones;
+        for (int i = 0; i < key.length() && i < DEPTH; i++) {
+            n = n.children[key.charAt(i) - '0'];
+            if (n == null) return null;
+        }
+        return n;
+    }
+
+    private void insert(long key, int row) {
+        String digits = unpack(key);
+        Node n = phones;
+        n.count++;
+        for (int i = 0; i < digits.length() && i < DEPTH; i++) {
+            int d = digits.charAt(i) - '0';
+            if (n.children[d] == null) n.children[d] = new Node();
+            n = n.children[d];
+            n.count++;
+        }
+        if (n.rows == null) {
+            n.rows = new int[2];
+        } else if (n.bucketSize == n.rows.length) {
+            n.rows = Arrays.copyOf(n.rows, n.bucketSize * 2);
+        }
+        int at = -Arrays.binarySearch(n.rows, 0, n.bucketSize, row) - 1;
+        System.arraycopy(n.rows, at, n.rows, at + 1, n.bucketSize - at);
+        n.rows[at] = row;
+        n.bucketSize++;
+    }
+
+    private void remove(long key, int row) {
+        String digits = unpack(key);
+        Node n = walk(digits);
+        if (n == null || n.rows == null) return;
+        int at = Arrays.binarySearch(n.rows, 0, n.bucketSize, row);
+        if (at < 0) return;
+        System.arraycopy(n.rows, at + 1, n.rows, at, n.bucketSize - at - 1);
+        n.bucketSize--;
+        // counts along the path; empty nodes are left for the next rebuild
+        Node p = phones;
+        p.count--;
+        for (int d = 0; d < digits.length() && d < DEPTH; d++) {
+            p = p.children[digits.charAt(d) - '0'];
+            p.count--;
+        }
+    }
+
+    // bucket rows above removed ones move down; buckets and sorted are both ascending
+    private static void shiftDown(Node n, int[] sorted) {
+        if (n.count == 0) return;
+        if (n.bucketSize > 0 && n.rows[n.bucketSize - 1] > sorted[0]) {
+            int k = 0;
+            for (int i = 0; i < n.bucketSize; i++) {
+                int r = n.rows[i];
+                while (k < sorted.length && sorted[k] < r) k++;
+                n.rows[i] = r - k;
+            }
+        }
+        for (Node c : n.children) if (c != null) shiftDown(c, sorted);
+    }
+
+    private static void shiftUp(Node n, int first, int count) {
+        if (n.count == 0) return;
+        for (int i = n.bucketSize - 1; i >= 0 && n.rows[i] >= first; i--) n.rows[i] += count;
+        for (Node c : n.children) if (c != null) shiftUp(c, first, count);
+    }
+
+    /* --- Domain rows --- */
+
+    // drops the removed rows from an ascending list and moves the ones above down; returns the new length
+    private static int removeAndShift(int[] rows, int n, int[] sorted) {
+        if (n == 0 || rows[n - 1] < sorted[0]) return n;
+        int w = 0, k = 0;
+        for (int i = 0; i < n; i++) {
+            int r = rows[i];
+            while (k < sorted.length && sorted[k] < r) k++;
+            if (k < sorted.length && sorted[k] == r) continue;
+            rows[w++] = r - k;
+        }
+        return w;
+    }
+
+    /* --- Maintenance --- */
+
+    private void onModelChanged(TableModelEvent e) {
+        if (stale) return;
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if (e instanceof ContactsTableModel.BulkChange) {
+            ContactsTableModel.BulkChange bulk = (ContactsTableModel.BulkChange) e;
+            if (bulk.removed) removeRows(bulk.rows);
+            else for (int r : bulk.rows) set(r);
+        } else if (first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+            stale = true;
+        } else if (e.getType() == TableModelEvent.INSERT) {
+            insertRows(first, last - first + 1);
+            for (int r = first; r <= last; r++) set(r);
+        } else if (e.getType() == TableModelEvent.UPDATE) {
+            for (int r = first; r <= last && r < size; r++) set(r);
+        } else if (first == 0 && last == size - 1) {
+            rebuild();
+        } else {
+            int[] range = new int[last - first + 1];
+            for (int i = 0; i < range.length; i++) range[i] = first + i;
+            removeRows(range);
+        }
+        if (size != model.getRowCount()) stale = true;
+    }
+
+    private void ensureFresh() {
+        if (stale || size != model.getRowCount()) rebuild();
+    }
+
+    private void rebuild() {
+        stale = false;
+        Arrays.fill(phones.children, null);
+        phones.count = 0;
+        phones.rows = null;
+        phones.bucketSize = 0;
+        domainIds.clear();
+        domainNames.clear();
+        domainNames.add("");
+        domainRows = new int[16];
+        domainPostings = new int[16][];
+        size = model.getRowCount();
+        phoneOf = new long[size];
+        domainOf = new int[size];
+        domainRows[0] = size;
+        for (int r = 0; r < size; r++) set(r);
+    }
+
+    // sorted: ascending, distinct rows as numbered before the removal
+    private void removeRows(int[] sorted) {
+        for (int r : sorted) {
+            if (r >= size) break;
+            if (phoneOf[r] != 0) remove(phoneOf[r], r);
+            if (domainOf[r] == 0) domainRows[0]--;
+        }
+        shiftDown(phones, sorted);
+        for (int id = 1; id < domainNames.size(); id++) {
+            domainRows[id] = removeAndShift(domainPostings[id], domainRows[id], sorted);
+        }
+        int w = sorted[0], k = 0;
+        for (int r = sorted[0]; r < size; r++) {
+            if (k < sorted.length && sorted[k] == r) {
+                k++;
+                continue;
+            }
+            phoneOf[w] = phoneOf[r];
+            domainOf[w] = domainOf[r];
+            w++;
+        }
+        Arrays.fill(phoneOf, w, size, 0);
+        Arrays.fill(domainOf, w, size, 0);
+        size = w;
+    }
+
+    // new rows start empty; set() fills them in
+    private void insertRows(int first, int count) {
+        if (size + count > phoneOf.length) {
+            int cap = Math.max(size + count, phoneOf.length + (phoneOf.length >> 1));
+            phoneOf = Arrays.copyOf(phoneOf, cap);
+            domainOf = Arrays.copyOf(domainOf, cap);
+        }
+        if (first < size) {
+            shiftUp(phones, first, count);
+            for (int id = 1; id < domainNames.size(); id++) {
+                int[] rows = domainPostings[id];
+                for (int i = domainRows[id] - 1; i >= 0 && rows[i] >= first; i--) rows[i] += count;
+            }
+            System.arraycopy(phoneOf, first, phoneOf, first + count, size - first);
+            System.arraycopy(domainOf, first, domainOf, first + count, size - first);
+            Arrays.fill(phoneOf, first, first + count, 0);
+            Arrays.fill(domainOf, first, first + count, 0);
+        }
+        domainRows[0] += count;
+        size += count;
+    }
+
+    // phone and email straight from the table columns, without building a Contact
+    private void set(int row) {
+        String digits = phoneKey((String) model.getValueAt(row, 2));
+        long p = digits.isEmpty() ? 0 : pack(digits);
+        if (p != phoneOf[row]) {
+            if (phoneOf[row] != 0) remove(phoneOf[row], row);
+            phoneOf[row] = p;
+            if (p != 0) insert(p, row);
+        }
+        String d = emailDomain((String) model.getValueAt(row, 3));
+        int id = d == null || d.isEmpty() ? 0 : domainId(d.toLowerCase());
+        if (id != domainOf[row]) {
+            unlink(domainOf[row], row);
+            link(id, row);
+            domainOf[row] = id;
+        }
+    }
+}
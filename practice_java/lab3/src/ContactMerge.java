@@ -0,0 +1,351 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/* --- Merge of several CSV address books into one ---
+ * Every input file is read on its own virtual thread, one record-aligned
+ * chunk of about a megabyte at a time, and each record is folded into a
+ * ConcurrentHashMap keyed by the normalized phone (+380XXXXXXXXX). The fold
+ * runs under the map's per-key lock, so files never wait for each other
+ * except on the same phone.
+ *
+ * Conflicts are resolved per field against a fixed precedence: a later
+ * file beats an earlier one, and a later record beats an earlier one in
+ * the same file. Every record carries its (file, record) position, so the
+ * result does not depend on which thread got there first.
+ *
+ * The output lists each phone once, at the place it first appeared. The
+ * position is found by walking each file's record list again, so the whole
+ * merge stays linear in the number of records. Records without a valid
+ * phone cannot be matched; they are copied through unchanged.
+ */
+final class ContactMerge {
+    private static final int FIELDS = 5;   // first name, last name, phone, email, gender
+    private static final int RECORD_BITS = 40;
+
+    private ContactMerge() {}
+
+    /** How a field's value is chosen when several records share a phone. */
+    enum FieldRule {
+        LATEST("Latest record wins"),
+        FIRST("First record wins"),
+        LATEST_NON_EMPTY("Latest non-empty value wins");
+
+        final String label;
+
+        FieldRule(String label) { this.label = label; }
+
+        // true if a value at stamp s replaces the current one at stamp cur
+        boolean replaces(long s, boolean empty, long cur, boolean curEmpty) {
+            return switch (this) {
+                case LATEST -> s > cur;
+                case FIRST -> s < cur;
+                case LATEST_NON_EMPTY -> !empty && (curEmpty || s > cur);
+            };
+        }
+
+        @Override
+        public String toString() { return label; }
+    }
+
+    static final class Rules {
+        final FieldRule fields;
+        /** Tags of all records instead of the tags chosen by {@link #fields}. */
+        final boolean unionTags;
+        /** Favorite if any record is, instead of the flag chosen by {@link #fields}. */
+        final boolean favoriteOr;
+
+        Rules(FieldRule fields, boolean unionTags, boolean favoriteOr) {
+            this.fields = fields;
+            this.unionTags = unionTags;
+            this.favoriteOr = favoriteOr;
+        }
+
+        static final Rules DEFAULT = new Rules(FieldRule.LATEST, true, true);
+    }
+
+    static final class Report {
+        int files;
+        int records;
+        int unparsable;
+        int withoutPhone;
+        int written;
+        /** Phones that occurred in more than one record. */
+        int mergedPhones;
+        /** Records folded into an earlier record with the same phone. */
+        int foldedRecords;
+        long millis;
+        final Map<String, Integer> perFile = new LinkedHashMap<>();
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, Integer> e : perFile.entrySet()) {
+                sb.append(e.getKey()).append(": ").append(e.getValue()).append(" records\n");
+            }
+            sb.append('\n');
+            sb.append("Records read: ").append(records).append('\n');
+            if (unparsable > 0) sb.append("Not 7 fields (skipped): ").append(unparsable).append('\n');
+            if (withoutPhone > 0) sb.append("No valid phone (copied as is): ").append(withoutPhone).append('\n');
+            sb.append("Phones found in several records: ").append(mergedPhones).append('\n');
+            sb.append("Records merged into another: ").append(foldedRecords).append('\n');
+            sb.append("Contacts written: ").append(written).append('\n');
+            sb.append("Time: ").append(millis).append(" ms\n");
+            return sb.toString();
+        }
+    }
+
+    /** Orders files oldest first by modification time, so the newest dump wins under LATEST. */
+    static List<File> byModified(List<File> files) {
+        List<File> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparingLong(File::lastModified));
+        return sorted;
+    }
+
+    /**
+     * Merges {@code inputs} (lowest precedence first) into {@code output}. Returns null if
+     * {@code cancelled} turned true; the output is then not written.
+     */
+    static Report merge(List<File> inputs, File output, Rules rules, IntConsumer progress, BooleanSupplier cancelled)
+            throws IOException {
+        long t0 = System.nanoTime();
+        long total = 0;
+        for (File f : inputs) total += f.length();
+        long totalBytes = Math.max(1, total);
+        AtomicLong done = new AtomicLong();
+        int[] lastPercent = {-1};
+        IntConsumer chunkDone = bytes -> {
+            int p = (int) (done.addAndGet(bytes) * 100 / totalBytes);
+            synchronized (lastPercent) {
+                if (p > lastPercent[0]) {
+                    lastPercent[0] = p;
+                    progress.accept(p);
+                }
+            }
+        };
+
+        // about 60 bytes per record; sized up front so the map does not resize under load
+        ConcurrentHashMap<String, Merged> index = new ConcurrentHashMap<>((int) Math.min(1 << 24, total / 60 + 16));
+        Source[] sources = new Source[inputs.size()];
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Source>> parts = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                int rank = i;
+                parts.add(threads.submit(() -> read(inputs.get(rank), rank, index, rules, chunkDone, cancelled)));
+            }
+            for (int i = 0; i < parts.size(); i++) sources[i] = parts.get(i).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException io) throw io;
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(ex.getCause());
+        }
+        if (cancelled.getAsBoolean()) return null;
+
+        Report report = new Report();
+        report.files = inputs.size();
+        for (Source s : sources) {
+            report.perFile.put(s.name, s.items.size() + s.unparsable);
+            report.records += s.items.size() + s.unparsable;
+            report.unparsable += s.unparsable;
+        }
+        for (Merged m : index.values()) {
+            if (m.records > 1) {
+                report.mergedPhones++;
+                report.foldedRecords += m.records - 1;
+            }
+        }
+
+        try (ContactCsv.Writer w = new ContactCsv.Writer(new OutputStreamWriter(
+                Files.newOutputStream(output.toPath()), StandardCharsets.UTF_8))) {
+            for (Source s : sources) {
+                for (int i = 0; i < s.items.size(); i++) {
+                    Object item = s.items.get(i);
+                    if (item instanceof Merged m) {
+                        if (m.first != stamp(s.rank, i)) continue;   // written where it first appeared
+                        w.write(m.toContact());
+                    } else {
+                        w.write((Contact) item);
+                        report.withoutPhone++;
+                    }
+                    report.written++;
+                }
+            }
+        }
+        report.millis = (System.nanoTime() - t0) / 1_000_000;
+        return report;
+    }
+
+    private static long stamp(int rank, int record) {
+        return (long) rank << RECORD_BITS | record;
+    }
+
+    // One input file in record order: a Merged per keyed record, the Contact itself otherwise
+    private static final class Source {
+        final String name;
+        final int rank;
+        final List<Object> items = new ArrayList<>();
+        int unparsable;
+
+        Source(String name, int rank) {
+            this.name = name;
+            this.rank = rank;
+        }
+    }
+
+    private static Source read(File file, int rank, ConcurrentHashMap<String, Merged> index, Rules rules,
+                               IntConsumer chunkDone, BooleanSupplier cancelled) throws IOException {
+        Source src = new Source(file.getName(), rank);
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("File is too large: " + file.getName());
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int chunks = (int) Math.max(1, size / ContactCsvLoader.MIN_CHUNK_BYTES);
+            int[] bounds = ContactCsvLoader.splitPoints(buf, ContactCsvLoader.skipBom(buf), chunks);
+
+            for (int b = 0; b + 1 < bounds.length; b++) {
+                if (cancelled.getAsBoolean()) return src;
+                ByteBuffer bytes = buf.slice(bounds[b], bounds[b + 1] - bounds[b]);
+                CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+                ContactCsv.Reader reader = chars.hasArray()
+                        ? new ContactCsv.Reader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining())
+                        : new ContactCsv.Reader(chars.toString().toCharArray(), 0, chars.remaining());
+                while (reader.hasNext()) {
+                    Contact c = reader.next();
+                    if (c == null) {
+                        src.unparsable++;
+                        continue;
+                    }
+                    String phone = ContactDedup.normalizePhone(c.phone);
+                    if (phone == null) {
+                        src.items.add(c);
+                        continue;
+                    }
+                    long s = stamp(rank, src.items.size());
+                    c.phone = phone;
+                    src.items.add(index.compute(phone, (k, m) -> m == null ? new Merged(c, s) : m.absorb(c, s, rules)));
+                }
+                chunkDone.accept(bounds[b + 1] - bounds[b]);
+            }
+        }
+        return src;
+    }
+
+    /* --- One output contact and the position of every value it holds --- */
+    private static final class Merged {
+        final String[] values = new String[FIELDS];
+        final long[] stamps = new long[FIELDS];
+        List<String> tags;
+        long tagsStamp;
+        boolean favorite;
+        long favoriteStamp;
+        long first;
+        int records = 1;
+
+        Merged(Contact c, long s) {
+            values[0] = c.firstName;
+            values[1] = c.lastName;
+            values[2] = c.phone;
+            values[3] = c.email;
+            values[4] = c.gender;
+            Arrays.fill(stamps, s);
+            tags = c.tags;
+            tagsStamp = s;
+            favorite = c.favorite;
+            favoriteStamp = s;
+            first = s;
+        }
+
+        // Called under the map's lock for this phone
+        Merged absorb(Contact c, long s, Rules rules) {
+            records++;
+            first = Math.min(first, s);
+            field(0, c.firstName, s, rules.fields);
+            field(1, c.lastName, s, rules.fields);
+            field(2, c.phone, s, rules.fields);
+            field(3, c.email, s, rules.fields);
+            field(4, c.gender, s, rules.fields);
+
+            if (rules.unionTags) {
+                for (String t : c.tags) if (!tags.contains(t)) tags.add(t);
+            } else if (rules.fields.replaces(s, c.tags.isEmpty(), tagsStamp, tags.isEmpty())) {
+                tags = c.tags;
+                tagsStamp = s;
+            }
+
+            if (rules.favoriteOr) {
+                favorite |= c.favorite;
+            } else if (rules.fields.replaces(s, !c.favorite, favoriteStamp, !favorite)) {
+                favorite = c.favorite;
+                favoriteStamp = s;
+            }
+            return this;
+        }
+
+        private void field(int i, String v, long s, FieldRule rule) {
+            if (rule.replaces(s, v == null || v.isEmpty(), stamps[i], values[i] == null || values[i].isEmpty())) {
+                values[i] = v;
+                stamps[i] = s;
+            }
+        }
+
+        Contact toContact() {
+            // a union collects tags in thread order; sort them so the output is the same every run
+            List<String> t = new ArrayList<>(tags);
+            t.sort(Comparator.comparingInt(ContactMerge::tagOrder).thenComparing(Comparator.naturalOrder()));
+            return new Contact(values[0], values[1], values[2], values[3], values[4], t, favorite);
+        }
+    }
+
+    private static int tagOrder(String tag) {
+        int i = Arrays.asList(ContactDialog.TAGS).indexOf(tag);
+        return i < 0 ? ContactDialog.TAGS.length : i;
+    }
+
+    /* --- Command line: ContactMerge [options] merged.csv a.csv b.csv ... --- */
+    public static void main(String[] args) throws IOException {
+        FieldRule fields = FieldRule.LATEST;
+        boolean unionTags = true, favoriteOr = true, byModified = false;
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            switch (args[i]) {
+                case "--first" -> fields = FieldRule.FIRST;
+                case "--non-empty" -> fields = FieldRule.LATEST_NON_EMPTY;
+                case "--no-tag-union" -> unionTags = false;
+                case "--no-favorite-or" -> favoriteOr = false;
+                case "--by-modified" -> byModified = true;
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        if (args.length - i < 2) {
+            System.err.println("Usage: ContactMerge [--first | --non-empty] [--no-tag-union] [--no-favorite-or] [--by-modified]"
+                    + " merged.csv input.csv...");
+            System.err.println("Later inputs win conflicts; --by-modified ranks them by modification time instead.");
+            System.exit(2);
+        }
+        File output = new File(args[i]);
+        List<File> inputs = new ArrayList<>();
+        for (int k = i + 1; k < args.length; k++) inputs.add(new File(args[k]));
+        if (byModified) inputs = byModified(inputs);
+
+        Report report = merge(inputs, output, new Rules(fields, unionTags, favoriteOr), p -> {}, () -> false);
+        System.out.print(report);
+    }
+}
@@ -0,0 +1,353 @@
+import javax.swing.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/* --- Asynchronous RowSorter for ContactsTableModel ---
+ * Filtering and sorting run on a background thread against a copy of the
+ * contact list taken on the EDT. Every filter, sort or model change starts
+ * a new pass and makes the older ones stale; a stale pass stops at its next
+ * check and its result is dropped. A finished pass replaces the row mapping
+ * in one step on the EDT.
+ *
+ * Until then model changes are patched into the current mapping: new rows
+ * show up at the bottom, deleted rows disappear, updated rows stay in place.
+ * Rows are matched against the search text straight from CompactContactList's
+ * storage, with no per-row copy. Search text of three or more characters is
+ * looked up in a ContactIndex first, and only the rows it returns are
+ * checked; a query that extends the previous one on unchanged data only
+ * rechecks the previous matches. Sorting goes through ContactCollation,
+ * which keeps the sorted order of the whole book until the data changes, so
+ * typing in the search field only filters that order.
+ */
+class ContactRowSorter extends RowSorter<ContactsTableModel> {
+    private static final int MAX_SORT_KEYS = 3;
+    private static final int CHUNK = 4096;
+
+    private final ContactsTableModel model;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ContactRowSorter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private List<SortKey> sortKeys = Collections.emptyList();
+    private String filterText = "";
+    private Supplier<BitSet> filterRows = () -> null;
+
+    // current mapping; replaced as a whole, never modified in place once published
+    private int[] viewToModel = new int[0];
+    private int[] modelToView = new int[0];
+
+    private volatile int generation = 0;
+    private int appliedGeneration = 0;
+    private Future<?> pending;
+    private ContactsTableModel.BulkChange lastBulk;
+    private LatencyMonitor monitor;
+    // bumped on every model change; tells the collation cache its snapshot is out of date
+    private long dataVersion = 0;
+    private final ContactCollation collation = new ContactCollation();   // worker thread only
+    // model changes for the index, tagged with the dataVersion they lead to; the worker
+    // applies them up to the version of the snapshot it is working on
+    private final Queue<IndexChange> indexChanges = new ConcurrentLinkedQueue<>();
+    private final ContactIndex index = new ContactIndex();   // worker thread only
+    // the last text-only matches, for narrowing (worker thread only)
+    private String lastText = "";
+    private long lastVersion = -1;
+    private BitSet lastMatches;
+
+    private static final class IndexChange {
+        final long version;
+        final Consumer<ContactIndex> apply;
+
+        IndexChange(long version, Consumer<ContactIndex> apply) {
+            this.version = version;
+            this.apply = apply;
+        }
+    }
+
+    ContactRowSorter(ContactsTableModel model) {
+        this.model = model;
+        allRowsChanged();
+        // registered after the JTable, so the bulk change is known before the table calls allRowsChanged()
+        model.addTableModelListener(e -> lastBulk = e instanceof ContactsTableModel.BulkChange
+                ? (ContactsTableModel.BulkChange) e : null);
+    }
+
+    /**
+     * Rows whose text contains {@code text} (trimmed, lower-cased) and that are in the
+     * set {@code rows} returns. {@code rows} is asked on the EDT at the start of every pass
+     * and must return a set the caller will not modify, or null for all rows.
+     */
+    void setFilter(String text, Supplier<BitSet> rows) {
+        this.filterText = text;
+        this.filterRows = rows;
+        schedule();
+    }
+
+    /**
+     * Records per pass: sorter.pass (background filter + sort), sorter.publish (the
+     * table taking the new mapping) and sorter.latency (request to rows on screen).
+     */
+    void setMonitor(LatencyMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /** True while the view does not reflect the latest filter, sort or model change yet. */
+    boolean isBusy() {
+        return appliedGeneration != generation;
+    }
+
+    /* --- RowSorter --- */
+
+    @Override
+    public ContactsTableModel getModel() { return model; }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        SortOrder order = SortOrder.ASCENDING;
+        if (!keys.isEmpty() && keys.get(0).getColumn() == column) {
+            order = keys.get(0).getSortOrder() == SortOrder.ASCENDING ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        }
+        keys.removeIf(k -> k.getColumn() == column);
+        keys.add(0, new SortKey(column, order));
+        setSortKeys(keys.size() > MAX_SORT_KEYS ? keys.subList(0, MAX_SORT_KEYS) : keys);
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        sortKeys = keys == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(keys));
+        fireSortOrderChanged();
+        schedule();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() { return sortKeys; }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (index < 0 || index >= viewToModel.length) throw new IndexOutOfBoundsException("Invalid index " + index);
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (index < 0 || index >= modelToView.length) throw new IndexOutOfBoundsException("Invalid index " + index);
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() { return viewToModel.length; }
+
+    @Override
+    public int getModelRowCount() { return model.getRowCount(); }
+
+    @Override
+    public void modelStructureChanged() {
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        dataVersion++;
+        int n = model.getRowCount();
+        if (lastBulk != null && lastBulk.removed) {
+            int[] removed = lastBulk.rows;
+            indexChange(index -> index.rowsRemoved(removed));
+            removeRows(lastBulk.rows);
+        } else {
+            indexChange(index -> index.reset(n));
+            // keep the old order for rows that still exist until the new pass is done
+            setViewToModel(Arrays.stream(viewToModel).filter(m -> m < n).toArray(), n);
+        }
+        lastBulk = null;
+        schedule();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        dataVersion++;
+        int k = endRow - firstRow + 1;
+        int n = model.getRowCount();
+        indexChange(index -> index.rowsInserted(firstRow, k));
+
+        int[] v2m = Arrays.copyOf(viewToModel, viewToModel.length + k);
+        for (int i = 0; i < viewToModel.length; i++) {
+            if (v2m[i] >= firstRow) v2m[i] += k;
+        }
+        for (int i = 0; i < k; i++) v2m[viewToModel.length + i] = firstRow + i;
+        setViewToModel(v2m, n);
+        schedule();
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        dataVersion++;
+        int[] rows = new int[endRow - firstRow + 1];
+        for (int i = 0; i < rows.length; i++) rows[i] = firstRow + i;
+        indexChange(index -> index.rowsRemoved(rows));
+        removeRows(rows);
+        schedule();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        dataVersion++;
+        if (lastBulk != null && !lastBulk.removed) {
+            int[] updated = lastBulk.rows;
+            indexChange(index -> index.rowsUpdated(updated));
+        } else {
+            int end = Math.min(endRow + 1, model.getRowCount());
+            indexChange(index -> index.rowsUpdated(IntStream.range(firstRow, end).toArray()));
+        }
+        lastBulk = null;
+        schedule();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        rowsUpdated(firstRow, endRow);
+    }
+
+    // call after dataVersion++
+    private void indexChange(Consumer<ContactIndex> apply) {
+        indexChanges.add(new IndexChange(dataVersion, apply));
+    }
+
+    // rows: ascending model rows that are already gone from the model
+    private void removeRows(int[] rows) {
+        int n = model.getRowCount();
+        int[] shift = new int[n + rows.length];   // old model row -> new model row, -1 if removed
+        for (int old = 0, k = 0; old < shift.length; old++) {
+            if (k < rows.length && rows[k] == old) {
+                shift[old] = -1;
+                k++;
+            } else {
+                shift[old] = old - k;
+            }
+        }
+        int[] v2m = new int[viewToModel.length];
+        int w = 0;
+        for (int m : viewToModel) {
+            if (m < shift.length && shift[m] >= 0) v2m[w++] = shift[m];
+        }
+        setViewToModel(Arrays.copyOf(v2m, w), n);
+    }
+
+    private void setViewToModel(int[] v2m, int modelRows) {
+        int[] m2v = new int[modelRows];
+        Arrays.fill(m2v, -1);
+        for (int v = 0; v < v2m.length; v++) m2v[v2m[v]] = v;
+        viewToModel = v2m;
+        modelToView = m2v;
+    }
+
+    /* --- Background pass --- */
+
+    private void schedule() {
+        int gen = ++generation;
+        if (pending != null) pending.cancel(true);
+
+        CompactContactList snapshot = model.snapshot();
+        String text = filterText;
+        BitSet allowed = filterRows.get();
+        List<SortKey> keys = sortKeys;
+        long version = dataVersion;
+        LatencyMonitor m = monitor;
+        long scheduled = System.nanoTime();
+
+        pending = executor.submit(() -> {
+            long passStart = System.nanoTime();
+            int[] v2m = compute(gen, snapshot, version, text, allowed, keys);
+            if (v2m == null) return;
+            if (m != null) m.record("sorter.pass", passStart);
+            SwingUtilities.invokeLater(() -> {
+                // a newer pass was scheduled meanwhile, so the model may not match the snapshot any more
+                if (gen != generation) return;
+                long publishStart = System.nanoTime();
+                int[] previous = viewToModel;
+                appliedGeneration = gen;
+                setViewToModel(v2m, snapshot.size());
+                fireRowSorterChanged(previous);
+                if (m != null) {
+                    m.record("sorter.publish", publishStart);
+                    m.record("sorter.latency", scheduled);
+                }
+            });
+        });
+    }
+
+    // Filtered and sorted model rows, or null if the pass went stale
+    private int[] compute(int gen, CompactContactList snapshot, long version, String text, BitSet allowed,
+                          List<SortKey> keys) {
+        int n = snapshot.size();
+        // every pass, so the queue stays short while nobody searches
+        for (IndexChange c; (c = indexChanges.peek()) != null && c.version <= version; indexChanges.poll()) {
+            c.apply.accept(index);
+        }
+        BitSet keep;
+        if (text.isEmpty()) {
+            keep = new BitSet(n);
+            keep.set(0, n);
+        } else {
+            keep = textMatches(gen, snapshot, version, text);
+            if (keep == null) return null;
+        }
+        if (allowed != null) keep.and(allowed);
+
+        int count = keep.cardinality();
+        int[] rows = new int[count];
+        // the whole book in sort order (model order if unsorted), filtered
+        int[] order = keys.isEmpty() ? null : collation.permutation(snapshot, version, keys, () -> gen != generation);
+        if (!keys.isEmpty() && order == null) return null;
+        if (order == null) {
+            for (int r = keep.nextSetBit(0), w = 0; r >= 0; r = keep.nextSetBit(r + 1)) rows[w++] = r;
+        } else {
+            int w = 0;
+            for (int r : order) if (keep.get(r)) rows[w++] = r;
+        }
+        return rows;
+    }
+
+    // Rows whose search text contains text, or null if the pass went stale
+    private BitSet textMatches(int gen, CompactContactList snapshot, long version, String text) {
+        int n = snapshot.size();
+        long tagBits = snapshot.tagsContaining(text);
+        BitSet candidates = null;   // null: every row
+        if (version == lastVersion && lastMatches != null && text.contains(lastText)) {
+            candidates = lastMatches;
+        } else if (ContactIndex.canNarrow(text)) {
+            if (!index.sync(snapshot, () -> gen != generation)) return null;
+            candidates = index.candidates(text);
+            if (tagBits != 0) {
+                for (int r = 0; r < n; r++) if ((snapshot.tagMask(r) & tagBits) != 0) candidates.set(r);
+            }
+        }
+        int[] rows = candidates == null ? null : candidates.stream().toArray();
+        int total = rows == null ? n : rows.length;
+
+        boolean[] keep = new boolean[total];
+        int chunks = (total + CHUNK - 1) / CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            if (gen != generation) return;
+            CompactContactList.LowerCaseReader in = snapshot.reader();
+            for (int i = c * CHUNK; i < Math.min(total, (c + 1) * CHUNK); i++) {
+                keep[i] = in.contains(rows == null ? i : rows[i], text, tagBits);
+            }
+        });
+        if (gen != generation) return null;
+
+        BitSet matches = new BitSet(n);
+        for (int i = 0; i < total; i++) if (keep[i]) matches.set(rows == null ? i : rows[i]);
+        lastText = text;
+        lastVersion = version;
+        lastMatches = matches;
+        return (BitSet) matches.clone();
+    }
+}
@@ -0,0 +1,330 @@
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/* --- Contact operations for callers outside the Swing UI ---
+ * Readers work on an immutable View: a CompactContactList snapshot plus
+ * sorted lookup arrays built for it on first use. Views are copy-on-write:
+ * model changes publish a new one (coalesced to one per EDT turn), and a
+ * reader keeps the View it started with, so any number of reads run in
+ * parallel without locks. Writes go through the model on the EDT, which
+ * serializes them with each other and with the UI, and publish before they
+ * return so a caller sees its own change.
+ *
+ * A write finds its row in the current View on the calling thread; the EDT
+ * only checks that the row still holds the phone. A View published for a
+ * single change whose predecessor has its arrays carries them over with one
+ * merge pass instead of sorting everything again.
+ *
+ * Phones are indexed as (nine digits after 380 << 24 | row) longs and
+ * emails as (hash << 24 | row), so a lookup is a binary search in one
+ * long[]. That limits the service to 16M contacts.
+ */
+class ContactService {
+    private static final int ROW_BITS = 24;
+    private static final long ROW_MASK = (1L << ROW_BITS) - 1;
+    private static final int SUBSCRIBER_DIGITS = 9;   // +380 and nine digits; only the nine are indexed
+
+    private final ContactsTableModel model;
+    private final AtomicReference<View> view = new AtomicReference<>();
+    private boolean publishQueued = false;   // EDT only
+    private int changes = 0;                 // EDT only; model events since the last publish
+    private RowChange change;                // the one event if changes == 1 and it can be replayed
+
+    /** Must be created on the EDT. */
+    ContactService(ContactsTableModel model) {
+        this.model = model;
+        publish();
+        model.addTableModelListener(e -> {
+            change = changes++ == 0 ? RowChange.of(e) : null;
+            if (publishQueued) return;
+            publishQueued = true;
+            SwingUtilities.invokeLater(this::publish);
+        });
+    }
+
+    /* --- Reads, any thread --- */
+
+    /** The current view; keep it for the whole request so all reads agree. */
+    View view() { return view.get(); }
+
+    static final class View {
+        final CompactContactList contacts;
+        final long version;       // model version the snapshot was taken at
+        private View base;        // an indexed previous view and the change since; dropped once indexed
+        private RowChange change;
+        private volatile long[] phones;   // written after emails
+        private long[] emails;
+
+        View(CompactContactList contacts, long version, View previous, RowChange change) {
+            this.contacts = contacts;
+            this.version = version;
+            // only an already indexed view, so views never chain back further than one
+            if (change != null && previous != null && previous.phones != null) {
+                this.base = previous;
+                this.change = change;
+            }
+        }
+
+        /** Rows whose phone starts with {@code prefix} (+380..., 380..., 0...), up to {@code limit}. */
+        List<Integer> byPhone(String prefix, int limit) {
+            String key = ContactLookup.phoneKey(prefix);
+            List<Integer> out = new ArrayList<>();
+            if (key.isEmpty() || key.length() > 3 + SUBSCRIBER_DIGITS) return out;
+            if (key.length() <= 3) {
+                if (!"380".startsWith(key)) return out;
+                key = "380";
+            } else if (!key.startsWith("380")) {
+                return out;
+            }
+            String digits = key.substring(3);
+            long scale = 1;
+            for (int i = digits.length(); i < SUBSCRIBER_DIGITS; i++) scale *= 10;
+            long from = (digits.isEmpty() ? 0 : Long.parseLong(digits)) * scale;
+            long[] idx = index().phones;
+            for (int i = lowerBound(idx, from << ROW_BITS); i < idx.length && out.size() < limit; i++) {
+                if ((idx[i] >>> ROW_BITS) >= from + scale) break;
+                out.add((int) (idx[i] & ROW_MASK));
+            }
+            return out;
+        }
+
+        /** Rows with exactly this email, ignoring case. */
+        List<Integer> byEmail(String email, int limit) {
+            String e = email.trim().toLowerCase();
+            long h = emailHash(e);
+            long[] idx = index().emails;
+            List<Integer> out = new ArrayList<>();
+            for (int i = lowerBound(idx, h << ROW_BITS); i < idx.length && out.size() < limit; i++) {
+                if ((idx[i] >>> ROW_BITS) != h) break;
+                int row = (int) (idx[i] & ROW_MASK);
+                if (contacts.email(row).toLowerCase().equals(e)) out.add(row);
+            }
+            return out;
+        }
+
+        /** Rows whose name, phone, email or tags contain {@code text}, in model order, up to {@code limit}. */
+        List<Integer> search(String text, int limit) {
+            String t = text.trim().toLowerCase();
+            List<Integer> out = new ArrayList<>();
+            for (int r = 0; r < contacts.size() && out.size() < limit; r++) {
+                if (contains(contacts.firstName(r), t) || contains(contacts.lastName(r), t)
+                        || contains(contacts.phone(r), t) || contains(contacts.email(r), t)
+                        || contains(String.join("\n", contacts.tags(r)), t)) {
+                    out.add(r);
+                }
+            }
+            return out;
+        }
+
+        private static boolean contains(String s, String lowerText) {
+            return s.toLowerCase().contains(lowerText);
+        }
+
+        /** The row of the contact whose phone is {@code phone} in any written form, or -1. */
+        int rowOf(String phone) {
+            String key = ContactLookup.phoneKey(phone);
+            for (int r : byPhone(phone, 2)) {
+                if (ContactLookup.phoneKey(contacts.phone(r)).equals(key)) return r;
+            }
+            return -1;
+        }
+
+        private View index() {
+            if (phones != null) return this;
+            synchronized (this) {
+                if (phones != null) return this;
+                if (base != null) {
+                    int[] added = change.added();
+                    emails = change.patch(base.emails, emailKeys(added));
+                    phones = change.patch(base.phones, phoneKeys(added));
+                } else {
+                    emails = emailKeys(null);
+                    phones = phoneKeys(null);
+                }
+                base = null;
+                change = null;
+                return this;
+            }
+        }
+
+        // sorted keys of the given rows, or of all rows if null
+        private long[] phoneKeys(int[] rows) {
+            int n = rows == null ? contacts.size() : rows.length;
+            long[] keys = new long[n];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                int r = rows == null ? i : rows[i];
+                String p = contacts.phone(r);
+                if (ContactValidator.isValidPhone(p)) keys[k++] = Long.parseLong(p.substring(4)) << ROW_BITS | r;
+            }
+            keys = Arrays.copyOf(keys, k);
+            Arrays.parallelSort(keys);
+            return keys;
+        }
+
+        private long[] emailKeys(int[] rows) {
+            int n = rows == null ? contacts.size() : rows.length;
+            long[] keys = new long[n];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                int r = rows == null ? i : rows[i];
+                String e = contacts.email(r);
+                if (!e.isEmpty()) keys[k++] = emailHash(e.toLowerCase()) << ROW_BITS | r;
+            }
+            keys = Arrays.copyOf(keys, k);
+            Arrays.parallelSort(keys);
+            return keys;
+        }
+    }
+
+    /* --- One model event, replayed on a View's arrays --- */
+
+    static final class RowChange {
+        private final int type;     // TableModelEvent.INSERT, UPDATE or DELETE
+        private final int[] rows;   // ascending; for INSERT numbered after the change
+
+        private RowChange(int type, int[] rows) {
+            this.type = type;
+            this.rows = rows;
+        }
+
+        // null for changes that touch every row
+        static RowChange of(TableModelEvent e) {
+            if (e instanceof ContactsTableModel.BulkChange) {
+                ContactsTableModel.BulkChange bulk = (ContactsTableModel.BulkChange) e;
+                return new RowChange(bulk.removed ? TableModelEvent.DELETE : TableModelEvent.UPDATE, bulk.rows);
+            }
+            int first = e.getFirstRow(), last = e.getLastRow();
+            if (first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) return null;
+            return new RowChange(e.getType(), IntStream.rangeClosed(first, last).toArray());
+        }
+
+        // rows of the new view that need keys of their own
+        int[] added() {
+            return type == TableModelEvent.DELETE ? new int[0] : rows;
+        }
+
+        // where an old row is in the new view; -1 if it is gone or changed
+        private int map(int row) {
+            if (type == TableModelEvent.INSERT) return row >= rows[0] ? row + rows.length : row;
+            int i = Arrays.binarySearch(rows, row);
+            if (i >= 0) return -1;
+            return type == TableModelEvent.DELETE ? row + i + 1 : row;
+        }
+
+        // old keys moved to their new rows, merged with the sorted keys of the added rows
+        long[] patch(long[] old, long[] added) {
+            long[] out = new long[old.length + added.length];
+            int n = 0, j = 0;
+            for (long x : old) {
+                int r = map((int) (x & ROW_MASK));
+                if (r < 0) continue;
+                long y = (x & ~ROW_MASK) | r;
+                while (j < added.length && added[j] < y) out[n++] = added[j++];
+                out[n++] = y;
+            }
+            while (j < added.length) out[n++] = added[j++];
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        }
+    }
+
+    // FNV-1a cut to 39 bits, so hash << 24 | row stays positive and sorts like the hash
+    private static long emailHash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h >>> (ROW_BITS + 1);
+    }
+
+    private static int lowerBound(long[] a, long key) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /* --- Writes, any thread; run on the EDT --- */
+
+    /** Adds {@code c}; returns the validation message, or null if it was added. */
+    String add(Contact c) throws InterruptedException {
+        String error = ContactValidator.check(c);
+        if (error != null) return error;
+        onEdt(() -> {
+            model.addContact(c);
+            publish();
+        });
+        return null;
+    }
+
+    /**
+     * Replaces the contact with phone {@code phone}; returns the validation message,
+     * "not found", or null if it was updated.
+     */
+    String update(String phone, Contact c) throws InterruptedException {
+        String error = ContactValidator.check(c);
+        if (error != null) return error;
+        return change(phone, row -> model.updateContact(row, c)) ? null : "not found";
+    }
+
+    /** Removes the contact with phone {@code phone}; false if there is none. */
+    boolean delete(String phone) throws InterruptedException {
+        return change(phone, model::removeContact);
+    }
+
+    // looks the row up on the calling thread and applies `edit` on the EDT if the row still holds the phone
+    private boolean change(String phone, IntConsumer edit) throws InterruptedException {
+        View v = view();
+        int found = v.rowOf(phone);
+        String key = ContactLookup.phoneKey(phone);
+        boolean[] done = {false};
+        onEdt(() -> {
+            int row = found;
+            if (row < 0 || row >= model.getRowCount()
+                    || !ContactLookup.phoneKey((String) model.getValueAt(row, 2)).equals(key)) {
+                if (v.version == model.getVersion()) return;   // the view was current: there is no such phone
+                // the model changed in between; rare, and the new view carries the index over
+                publish();
+                row = view().rowOf(phone);
+                if (row < 0) return;
+            }
+            edit.accept(row);
+            publish();
+            done[0] = true;
+        });
+        return done[0];
+    }
+
+    // EDT; nothing to do if no event came since the last publish
+    private void publish() {
+        publishQueued = false;
+        View last = view.get();
+        if (last != null && changes == 0) return;
+        view.set(new View(model.snapshot(), model.getVersion(), changes == 1 ? last : null, change));
+        changes = 0;
+        change = null;
+    }
+
+    private static void onEdt(Runnable r) throws InterruptedException {
+        if (SwingUtilities.isEventDispatchThread()) {
+            r.run();
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(r);
+        } catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/* --- Binary snapshot format (*.abk) ---
+ * header (48 bytes):
+ *   magic int, version short, reserved short, record count int,
+ *   string count int, tag count int, generation int, body length long, CRC32 of body long,
+ *   tag list length int, CRC32 of the header bytes before it int
+ * body:
+ *   tag dictionary   int[tagCount]          string ids, bit i of a record's mask = tag i
+ *   records          32 bytes each          first, last, phone, email, gender string ids,
+ *                                           flags int (bit 0 = favorite, bit 1 = tag list),
+ *                                           tag mask long, or the list's index in tag lists
+ *   tag lists        int[tagListLength]     per list: length, then string ids
+ *   string offsets   int[stringCount + 1]   into the UTF-8 blob
+ *   string blob      UTF-8 bytes
+ * Every distinct string is stored once. Tags go in the mask when it gives
+ * back the same list (no repeats, dictionary order, at most 64 distinct
+ * tags in the file); otherwise the record has a list of its own, so tag
+ * order and repeats survive a round trip. Loading maps the file, checks
+ * that the header and every section size, offset and id are consistent,
+ * then appends the records to a CompactContactList: text fields are copied
+ * from the UTF-8 blob as they are, and only genders and tags are decoded.
+ */
+final class ContactSnapshot {
+    static final String EXTENSION = "abk";
+    static final int MAGIC = 0x41424B53; // "ABKS"
+    static final short VERSION = 2;
+
+    private static final int HEADER_SIZE = 48;
+    private static final int RECORD_SIZE = 32;
+    private static final int MAX_TAGS = 64;
+    private static final int FAVORITE = 1;
+    private static final int TAG_LIST = 2;
+
+    private ContactSnapshot() {}
+
+    /** Generation number stored in the header; ContactStore uses it to match change logs to snapshots. */
+    static int generation(File f) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && ch.read(header) >= 0) { }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException(f.getName() + " is not an address book snapshot");
+            }
+            return header.getInt(20);
+        }
+    }
+
+    static boolean isSnapshot(File f) {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && ch.read(magic) >= 0) { }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /* --- Write --- */
+
+    static void write(List<Contact> contacts, File f) throws IOException {
+        write(contacts, f, 0);
+    }
+
+    static void write(List<Contact> contacts, File f, int generation) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> tagBit = new LinkedHashMap<>();
+
+        if ((long) contacts.size() * RECORD_SIZE > Integer.MAX_VALUE) throw new IOException("Address book is too large for a snapshot");
+        ByteBuffer records = ByteBuffer.allocate(contacts.size() * RECORD_SIZE);
+        IntList tagLists = new IntList();
+        for (Contact c : contacts) {
+            records.putInt(stringId(c.firstName, ids, strings));
+            records.putInt(stringId(c.lastName, ids, strings));
+            records.putInt(stringId(c.phone, ids, strings));
+            records.putInt(stringId(c.email, ids, strings));
+            records.putInt(stringId(c.gender, ids, strings));
+            long mask = 0;
+            int previous = -1;
+            boolean inMask = true;
+            for (String t : c.tags) {
+                Integer bit = tagBit.get(t);
+                if (bit == null && tagBit.size() < MAX_TAGS) {
+                    bit = tagBit.size();
+                    tagBit.put(t, bit);
+                }
+                if (bit == null || bit <= previous) {
+                    inMask = false;
+                    break;
+                }
+                mask |= 1L << bit;
+                previous = bit;
+            }
+            int flags = c.favorite ? FAVORITE : 0;
+            if (!inMask) {
+                flags |= TAG_LIST;
+                mask = tagLists.size();
+                tagLists.add(c.tags.size());
+                for (String t : c.tags) tagLists.add(stringId(t, ids, strings));
+            }
+            records.putInt(flags);
+            records.putLong(mask);
+        }
+        records.flip();
+
+        ByteBuffer lists = ByteBuffer.allocate(tagLists.size() * 4);
+        for (int i = 0; i < tagLists.size(); i++) lists.putInt(tagLists.get(i));
+        lists.flip();
+
+        ByteBuffer tags = ByteBuffer.allocate(tagBit.size() * 4);
+        for (String t : tagBit.keySet()) tags.putInt(stringId(t, ids, strings));
+        tags.flip();
+
+        byte[][] encoded = new byte[strings.size()][];
+        long blobSize = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            blobSize += encoded[i].length;
+        }
+        long bodySize = tags.remaining() + records.remaining() + lists.remaining() + 4L * (strings.size() + 1) + blobSize;
+        if (HEADER_SIZE + bodySize > Integer.MAX_VALUE) throw new IOException("Address book is too large for a snapshot");
+
+        ByteBuffer offsets = ByteBuffer.allocate(4 * (strings.size() + 1));
+        ByteBuffer blob = ByteBuffer.allocate((int) blobSize);
+        for (byte[] b : encoded) {
+            offsets.putInt(blob.position());
+            blob.put(b);
+        }
+        offsets.putInt(blob.position());
+        offsets.flip();
+        blob.flip();
+
+        CRC32 crc = new CRC32();
+        for (ByteBuffer part : new ByteBuffer[]{tags, records, lists, offsets, blob}) crc.update(part.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                .putInt(contacts.size()).putInt(strings.size()).putInt(tagBit.size()).putInt(generation)
+                .putLong(bodySize).putLong(crc.getValue()).putInt(tagLists.size());
+        CRC32 headerCrc = new CRC32();
+        headerCrc.update(header.array(), 0, HEADER_SIZE - 4);
+        header.putInt((int) headerCrc.getValue());
+        header.flip();
+
+        // write next to the target and move over it, so a failed save keeps the old file
+        Path target = f.toPath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, tags, records, lists, offsets, blob};
+            while (parts[parts.length - 1].hasRemaining()) ch.write(parts);
+            ch.force(false);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int stringId(String s, Map<String, Integer> ids, List<String> strings) {
+        String key = s == null ? "" : s;
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = strings.size();
+            ids.put(key, id);
+            strings.add(key);
+        }
+        return id;
+    }
+
+    // growable int[] for the tag lists
+    private static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        int get(int i) { return values[i]; }
+
+        int size() { return size; }
+    }
+
+    /* --- Read --- */
+
+    static CompactContactList read(File f) throws IOException {
+        return read(f, p -> {});
+    }
+
+    /** Loads {@code f} into new table storage; {@code progress} gets 0..100 while records are added. */
+    static CompactContactList read(File f, IntConsumer progress) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE) throw new IOException(f.getName() + " is not an address book snapshot");
+            if (size > Integer.MAX_VALUE) throw new IOException(f.getName() + " is too large");
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buf.getInt(0) != MAGIC) throw new IOException(f.getName() + " is not an address book snapshot");
+            short version = buf.getShort(4);
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(buf.slice(0, HEADER_SIZE - 4));
+            if ((int) headerCrc.getValue() != buf.getInt(HEADER_SIZE - 4)) {
+                throw new IOException("Header checksum mismatch in " + f.getName());
+            }
+            int count = buf.getInt(8);
+            int stringCount = buf.getInt(12);
+            int tagCount = buf.getInt(16);
+            long bodySize = buf.getLong(24);
+            long checksum = buf.getLong(32);
+            int tagListLength = buf.getInt(40);
+
+            // every section must fit in the body; the string blob gets the rest
+            long tablesSize = 4L * tagCount + (long) RECORD_SIZE * count + 4L * tagListLength + 4L * (stringCount + 1L);
+            if (count < 0 || stringCount < 0 || tagCount < 0 || tagCount > MAX_TAGS || tagListLength < 0
+                    || HEADER_SIZE + bodySize != size || tablesSize > bodySize) {
+                throw new IOException(f.getName() + " is truncated or corrupted");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buf.slice(HEADER_SIZE, (int) bodySize));
+            if (crc.getValue() != checksum) throw new IOException("Checksum mismatch in " + f.getName());
+
+            int tagsAt = HEADER_SIZE;
+            int recordsAt = tagsAt + tagCount * 4;
+            int listsAt = recordsAt + count * RECORD_SIZE;
+            int offsetsAt = listsAt + tagListLength * 4;
+            int blobAt = offsetsAt + (stringCount + 1) * 4;
+            int blobSize = (int) size - blobAt;
+
+            int[] offsets = new int[stringCount + 1];
+            for (int i = 0; i <= stringCount; i++) {
+                int at = buf.getInt(offsetsAt + i * 4);
+                if (at < (i == 0 ? 0 : offsets[i - 1]) || at > blobSize || (i == 0 && at != 0)) throw corrupted(f, "string offsets");
+                offsets[i] = at;
+            }
+            for (int i = 0; i < tagCount; i++) checkString(buf.getInt(tagsAt + i * 4), stringCount, f);
+            for (int i = 0; i < count; i++) {
+                int at = recordsAt + i * RECORD_SIZE;
+                for (int field = 0; field < 5; field++) checkString(buf.getInt(at + field * 4), stringCount, f);
+                long tags = buf.getLong(at + 24);
+                if ((buf.getInt(at + 20) & TAG_LIST) == 0) {
+                    if (tagCount < 64 && (tags >>> tagCount) != 0) throw corrupted(f, "tag mask");
+                    continue;
+                }
+                if (tags < 0 || tags >= tagListLength) throw corrupted(f, "tag list");
+                int listAt = (int) tags;
+                int n = buf.getInt(listsAt + listAt * 4);
+                if (n < 0 || n > tagListLength - listAt - 1) throw corrupted(f, "tag list");
+                for (int k = 1; k <= n; k++) checkString(buf.getInt(listsAt + (listAt + k) * 4), stringCount, f);
+            }
+
+            byte[] blob = new byte[blobSize];
+            buf.get(blobAt, blob);
+            // genders and tags only; names, phones and emails stay UTF-8
+            String[] strings = new String[stringCount];
+
+            CompactContactList out = ContactsTableModel.newStorage();
+            // the file's tags in file order, then each file bit's bit in out
+            int[] bitOf = new int[tagCount];
+            String[] tagNames = new String[tagCount];
+            for (int i = 0; i < tagCount; i++) {
+                tagNames[i] = string(buf.getInt(tagsAt + i * 4), blob, offsets, strings);
+                bitOf[i] = out.tagBit(tagNames[i]);
+            }
+
+            int[] from = new int[4];
+            int[] length = new int[4];
+            int[] bits = new int[64];
+            for (int i = 0; i < count; i++) {
+                int at = recordsAt + i * RECORD_SIZE;
+                for (int field = 0; field < 4; field++) {
+                    int id = buf.getInt(at + field * 4);
+                    from[field] = offsets[id];
+                    length[field] = offsets[id + 1] - offsets[id];
+                }
+                String gender = string(buf.getInt(at + 16), blob, offsets, strings);
+                int flags = buf.getInt(at + 20);
+                long tags = buf.getLong(at + 24);
+
+                List<String> names = null;
+                int n = 0;
+                if ((flags & TAG_LIST) != 0) {
+                    int listAt = listsAt + (int) tags * 4;
+                    int len = buf.getInt(listAt);
+                    names = new ArrayList<>(len);
+                    for (int k = 1; k <= len; k++) names.add(string(buf.getInt(listAt + k * 4), blob, offsets, strings));
+                    if (len <= 64) {
+                        for (String t : names) bits[n++] = out.tagBit(t);
+                    } else {
+                        n = -1;
+                    }
+                } else {
+                    for (long m = tags; m != 0; m &= m - 1) bits[n++] = bitOf[Long.numberOfTrailingZeros(m)];
+                }
+                // the same rule as CompactContactList.add: a mask only if it gives the tags back in order
+                long mask = 0;
+                boolean inMask = n >= 0;
+                for (int k = 0; k < n && inMask; k++) {
+                    inMask = bits[k] >= 0 && (k == 0 || bits[k] > bits[k - 1]);
+                    mask |= 1L << bits[k];
+                }
+                if (!inMask && names == null) {
+                    names = new ArrayList<>(n);
+                    for (long m = tags; m != 0; m &= m - 1) names.add(tagNames[Long.numberOfTrailingZeros(m)]);
+                }
+                out.addEncoded(blob, from, length, gender, (flags & FAVORITE) != 0, inMask ? mask : 0, inMask ? null : names);
+
+                if ((i & 4095) == 4095) {
+                    if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+                    progress.accept((int) ((i + 1L) * 100 / count));
+                }
+            }
+            progress.accept(100);
+            return out;
+        }
+    }
+
+    // string id decoded on first use
+    private static String string(int id, byte[] blob, int[] offsets, String[] strings) {
+        String s = strings[id];
+        if (s == null) {
+            s = new String(blob, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+            strings[id] = s;
+        }
+        return s;
+    }
+
+    private static void checkString(int id, int stringCount, File f) throws IOException {
+        if (id < 0 || id >= stringCount) throw corrupted(f, "string id");
+    }
+
+    private static IOException corrupted(File f, String what) {
+        return new IOException(f.getName() + " is corrupted (bad " + what + ")");
+    }
+
+    /* --- Conversion --- */
+
+    static void csvToSnapshot(File csv, File snapshot) throws IOException {
+        write(ContactCsv.readFile(csv.toPath()), snapshot);
+    }
+
+    static void snapshotToCsv(File snapshot, File csv) throws IOException {
+        ContactCsv.writeFile(csv.toPath(), read(snapshot));
+    }
+}
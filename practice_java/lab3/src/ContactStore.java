@@ -0,0 +1,415 @@
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/* --- Log-structured contact store ---
+ * A snapshot (book.abk, see ContactSnapshot) plus an append-only change log
+ * (book.abk.log). Every add/update/delete fired by ContactsTableModel is
+ * appended to the log as it happens, so saving costs O(changes). The log is
+ * forced to disk once a second and on sync(). When the log outgrows the
+ * snapshot it is rotated to book.abk.log.prev and a new snapshot is written
+ * in the background.
+ *
+ * Each log starts with the generation of the snapshot it applies to; on open
+ * the snapshot is loaded and every log whose base matches is replayed, up to
+ * the first torn or corrupt record. A record whose rows do not exist in the
+ * book being rebuilt means the log does not belong to it, and open fails.
+ *
+ * The first write error stops the log, since later records would not apply
+ * to what is on disk; the owner is told on the EDT and can save elsewhere.
+ *
+ * log header:  magic int, base generation int
+ * log record:  payload length int, CRC32 of payload int,
+ *              payload = op byte, row int, count int, [count CSV lines for ADD/UPDATE]
+ *              SET payload = op byte, 0, count int, count row ints, count CSV lines
+ */
+final class ContactStore implements Closeable {
+    private static final int LOG_MAGIC = 0x41424B4C; // "ABKL"
+    private static final byte OP_ADD = 1, OP_UPDATE = 2, OP_DELETE = 3, OP_CLEAR = 4, OP_SET = 5;
+    private static final long MIN_COMPACT_BYTES = 4L << 20;
+
+    private final File file;
+    private CompactContactList recovered;
+
+    // log I/O happens on one thread, in the order the model fired its events
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "ContactStore-writer"));
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> daemon(r, "ContactStore-compactor"));
+
+    private FileChannel log;
+    private long logSize;
+    private boolean unsynced;
+    private int generation;
+    private volatile long snapshotSize;
+    private volatile boolean compacting;
+    private volatile IOException failure;
+    private Consumer<IOException> onFailure;
+
+    private ContactsTableModel model;
+    private final TableModelListener listener = this::onModelChanged;
+
+    private ContactStore(File file, CompactContactList recovered, int generation) throws IOException {
+        this.file = file;
+        this.recovered = recovered;
+        this.generation = generation;
+        this.snapshotSize = file.length();
+        openLog(logFile(false), generation);
+        writer.scheduleWithFixedDelay(this::forceQuietly, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /** Writes a fresh snapshot of {@code contacts} to {@code f} and starts an empty log next to it. */
+    static ContactStore create(File f, List<Contact> contacts) throws IOException {
+        deleteLogs(f);
+        ContactSnapshot.write(contacts, f, 0);
+        return new ContactStore(f, null, 0);
+    }
+
+    /**
+     * Loads the snapshot, replays its logs and folds the result into a new snapshot.
+     * Slow for a big book, so not on the EDT; {@code progress} gets 0..100. Close any
+     * store already open on {@code f} first, or its writer keeps appending to logs that
+     * are replayed and deleted here.
+     */
+    static ContactStore open(File f, IntConsumer progress) throws IOException {
+        int snapshotGen = ContactSnapshot.generation(f);
+        CompactContactList contacts = ContactSnapshot.read(f, p -> progress.accept(p * 8 / 10));
+
+        int current = snapshotGen;
+        boolean replayed = false;
+        for (File lf : new File[]{logFile(f, true), logFile(f, false)}) {
+            if (!lf.exists()) continue;
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(lf.toPath()));
+            if (bytes.remaining() < 8 || bytes.getInt() != LOG_MAGIC) continue;
+            int base = bytes.getInt();
+            if (base < current) continue;   // already folded into the snapshot
+            if (base > current) throw new IOException(lf.getName() + " does not belong to " + f.getName());
+            replayed |= replay(bytes, contacts, lf);
+            current = base + 1;
+        }
+        progress.accept(90);
+
+        if (!replayed) {
+            deleteLogs(f);
+            return new ContactStore(f, contacts, snapshotGen);
+        }
+        // the new snapshot has a newer generation, so the old logs are ignored even if deleting them fails
+        ContactSnapshot.write(contacts, f, current);
+        deleteLogs(f);
+        return new ContactStore(f, contacts, current);
+    }
+
+    static void deleteLogs(File f) throws IOException {
+        Files.deleteIfExists(logFile(f, true).toPath());
+        Files.deleteIfExists(logFile(f, false).toPath());
+    }
+
+    File getFile() { return file; }
+
+    /** Contacts as open() recovered them, for the model's replaceAll() before attach(); null after create(). */
+    CompactContactList contacts() { return recovered; }
+
+    /** Starts logging the model's changes; {@code onFailure} gets the first write error, on the EDT. */
+    void attach(ContactsTableModel model, Consumer<IOException> onFailure) {
+        recovered = null;   // the model owns the rows now
+        this.model = model;
+        this.onFailure = onFailure;
+        model.addTableModelListener(listener);
+    }
+
+    /** True once a write failed; changes since then are not saved. */
+    boolean isFailed() { return failure != null; }
+
+    /** Waits for queued changes and forces the log to disk. */
+    void sync() throws IOException {
+        try {
+            writer.submit(() -> {
+                if (log != null) log.force(false);
+                unsynced = false;
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        if (failure != null) throw failure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (model != null) model.removeTableModelListener(listener);
+        try {
+            sync();
+        } finally {
+            writer.shutdown();
+            compactor.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+                compactor.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (log != null) log.close();
+        }
+    }
+
+    /* --- Recording changes (EDT) --- */
+
+    private void onModelChanged(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if (e instanceof ContactsTableModel.BulkChange) {
+            ContactsTableModel.BulkChange bulk = (ContactsTableModel.BulkChange) e;
+            int[] rows = bulk.rows;
+            if (!bulk.removed) {
+                List<Contact> changed = new ArrayList<>(rows.length);
+                for (int r : rows) changed.add(model.getContactAt(r));
+                append(encode(OP_SET, rows, changed));
+                return;
+            }
+            // one record per run of adjacent rows, bottom-up so the row numbers stay valid
+            for (int end = rows.length; end > 0; ) {
+                int start = end - 1;
+                while (start > 0 && rows[start - 1] == rows[start] - 1) start--;
+                append(encode(OP_DELETE, rows[start], end - start));
+                end = start;
+            }
+            return;
+        }
+        if (first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+            append(encode(OP_CLEAR, 0, List.of()));
+            append(encode(OP_ADD, 0, model.getAll()));
+            return;
+        }
+        switch (e.getType()) {
+            case TableModelEvent.INSERT:
+                append(encode(OP_ADD, first, rows(first, last)));
+                break;
+            case TableModelEvent.UPDATE:
+                append(encode(OP_UPDATE, first, rows(first, last)));
+                break;
+            case TableModelEvent.DELETE:
+                append(encode(OP_DELETE, first, last - first + 1));
+                break;
+        }
+    }
+
+    private List<Contact> rows(int first, int last) {
+        return model.getAll().subList(first, last + 1);
+    }
+
+    private static ByteBuffer encode(byte op, int row, int count) {
+        ByteBuffer b = ByteBuffer.allocate(8 + 9);
+        b.putInt(9).putInt(0).put(op).putInt(row).putInt(count);
+        return sealed(b);
+    }
+
+    // contacts are encoded on the EDT, so the log sees them exactly as the event did
+    private static ByteBuffer encode(byte op, int row, List<Contact> contacts) {
+        return encode(op, row, null, contacts);
+    }
+
+    private static ByteBuffer encode(byte op, int[] rows, List<Contact> contacts) {
+        return encode(op, 0, rows, contacts);
+    }
+
+    private static ByteBuffer encode(byte op, int row, int[] rows, List<Contact> contacts) {
+        int rowBytes = rows == null ? 0 : rows.length * 4;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64 + rowBytes + contacts.size() * 80);
+        bos.writeBytes(new byte[8 + 9 + rowBytes]);
+        try (ContactCsv.Writer w = new ContactCsv.Writer(new OutputStreamWriter(bos, StandardCharsets.UTF_8),
+                Math.min(8192, 256 + contacts.size() * 96))) {
+            for (Contact c : contacts) w.write(c);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        ByteBuffer b = ByteBuffer.wrap(bos.toByteArray());
+        b.putInt(0, b.capacity() - 8).put(8, op).putInt(9, row).putInt(13, contacts.size());
+        for (int i = 0; i < rowBytes / 4; i++) b.putInt(17 + i * 4, rows[i]);
+        b.position(b.capacity());
+        return sealed(b);
+    }
+
+    private static ByteBuffer sealed(ByteBuffer b) {
+        CRC32 crc = new CRC32();
+        crc.update(b.array(), 8, b.position() - 8);
+        b.putInt(4, (int) crc.getValue());
+        b.flip();
+        return b;
+    }
+
+    private void append(ByteBuffer record) {
+        writer.execute(() -> {
+            if (failure != null) return;
+            try {
+                while (record.hasRemaining()) logSize += log.write(record);
+                unsynced = true;
+                if (!compacting && logSize > Math.max(MIN_COMPACT_BYTES, snapshotSize / 2)) {
+                    compacting = true;
+                    SwingUtilities.invokeLater(this::compact);
+                }
+            } catch (IOException ex) {
+                fail(ex);
+            }
+        });
+    }
+
+    // only the first failure is reported; the log stops there
+    private synchronized void fail(IOException ex) {
+        if (failure != null) return;
+        failure = ex;
+        Consumer<IOException> handler = onFailure;
+        if (handler != null) SwingUtilities.invokeLater(() -> handler.accept(ex));
+    }
+
+    /* --- Compaction --- */
+
+    // EDT: the list copy and the log rotation are queued at the same point in the event stream
+    private void compact() {
+        if (model == null) {
+            compacting = false;
+            return;
+        }
+        // later changes go to the new log, the snapshot does not see them
+        List<Contact> state = model.snapshot();
+        writer.execute(() -> {
+            try {
+                log.force(false);
+                log.close();
+                Files.move(logFile(false).toPath(), logFile(true).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                int next = generation + 1;
+                openLog(logFile(false), next);
+                compactor.execute(() -> writeSnapshot(state, next));
+            } catch (IOException ex) {
+                fail(ex);
+                compacting = false;
+            }
+        });
+    }
+
+    private void writeSnapshot(List<Contact> state, int gen) {
+        try {
+            ContactSnapshot.write(state, file, gen);
+            Files.deleteIfExists(logFile(true).toPath());
+            snapshotSize = file.length();
+        } catch (IOException ex) {
+            // the rotated log is still there, so the next open replays it on top of the old snapshot
+            fail(ex);
+        } finally {
+            compacting = false;
+        }
+    }
+
+    /* --- Log files --- */
+
+    private File logFile(boolean previous) { return logFile(file, previous); }
+
+    private static File logFile(File f, boolean previous) {
+        return new File(f.getPath() + (previous ? ".log.prev" : ".log"));
+    }
+
+    private void openLog(File lf, int base) throws IOException {
+        log = FileChannel.open(lf.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(LOG_MAGIC).putInt(base);
+        header.flip();
+        while (header.hasRemaining()) log.write(header);
+        log.force(true);
+        logSize = 8;
+        generation = base;
+    }
+
+    private void forceQuietly() {
+        if (!unsynced || failure != null) return;
+        try {
+            log.force(false);
+            unsynced = false;
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+
+    // Applies records until the end or the first damaged one; true if anything was applied
+    private static boolean replay(ByteBuffer bytes, List<Contact> contacts, File lf) throws IOException {
+        boolean applied = false;
+        CRC32 crc = new CRC32();
+        while (bytes.remaining() >= 8) {
+            int len = bytes.getInt();
+            int sum = bytes.getInt();
+            if (len < 9 || len > bytes.remaining()) break;
+            crc.reset();
+            crc.update(bytes.array(), bytes.position(), len);
+            if ((int) crc.getValue() != sum) break;
+
+            ByteBuffer p = bytes.slice(bytes.position(), len);
+            bytes.position(bytes.position() + len);
+            byte op = p.get();
+            int row = p.getInt();
+            int count = p.getInt();
+            int size = contacts.size();
+            // an intact record that does not fit the book means the log is for another book
+            boolean fits;
+            if (op == OP_DELETE || op == OP_UPDATE) fits = row >= 0 && count >= 0 && count <= size - row;
+            else if (op == OP_ADD) fits = row >= 0 && row <= size;
+            else fits = op == OP_CLEAR || op == OP_SET;
+            // every contact takes at least one byte of payload
+            if (op != OP_DELETE && (count < 0 || count > p.remaining())) fits = false;
+            if (!fits) throw mismatch(lf);
+            if (op == OP_DELETE) {
+                contacts.subList(row, row + count).clear();
+            } else if (op == OP_CLEAR) {
+                contacts.clear();
+            } else {
+                int[] rows = null;
+                if (op == OP_SET) {
+                    if (p.remaining() < count * 4L) break;
+                    rows = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        rows[i] = p.getInt();
+                        if (rows[i] < 0 || rows[i] >= size) throw mismatch(lf);
+                    }
+                }
+                CharBuffer chars = StandardCharsets.UTF_8.decode(p);
+                ContactCsv.Reader r = new ContactCsv.Reader(chars.array(), chars.arrayOffset(), chars.limit());
+                List<Contact> batch = new ArrayList<>(count);
+                for (int i = 0; i < count && r.hasNext(); i++) {
+                    Contact c = r.next();
+                    if (c == null) return applied;
+                    batch.add(c);
+                }
+                if (op == OP_ADD) {
+                    contacts.addAll(row, batch);
+                } else if (op == OP_SET) {
+                    for (int i = 0; i < batch.size(); i++) contacts.set(rows[i], batch.get(i));
+                } else {
+                    for (int i = 0; i < batch.size(); i++) contacts.set(row + i, batch.get(i));
+                }
+            }
+            applied = true;
+        }
+        return applied;
+    }
+
+    private static IOException mismatch(File lf) {
+        return new IOException(lf.getName() + " does not match the snapshot it is stored with");
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,52 @@
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+
+/* --- Background .abk loader ---
+ * Opens a ContactStore on a worker thread: the snapshot is read straight
+ * into compact storage, the change logs are replayed on top and, if there
+ * were any, folded into a new snapshot. The table is not touched: the caller
+ * swaps in the recovered rows and attaches the store once this is done, so a
+ * failed or cancelled load leaves the open book as it was. A store that
+ * opened after all but was cancelled is closed here.
+ */
+class ContactStoreLoader extends SwingWorker<ContactStore, Void> {
+    private final File file;
+    // guarded by this; an open store nobody will take
+    private ContactStore opened;
+    private boolean discarded;
+
+    ContactStoreLoader(File file) {
+        this.file = file;
+    }
+
+    @Override
+    protected ContactStore doInBackground() throws Exception {
+        ContactStore s = ContactStore.open(file, this::setProgress);
+        synchronized (this) {
+            if (!discarded) {
+                opened = s;
+                return s;
+            }
+        }
+        s.close();
+        throw new CancellationException();
+    }
+
+    @Override
+    protected void done() {
+        if (!isCancelled()) return;
+        ContactStore s;
+        synchronized (this) {
+            discarded = true;
+            s = opened;
+        }
+        if (s == null) return;
+        try {
+            s.close();
+        } catch (IOException ignored) {
+            // nothing was logged to it
+        }
+    }
+}
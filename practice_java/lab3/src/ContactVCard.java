@@ -0,0 +1,388 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/* --- vCard codec for Contact ---
+ * Reader pulls one card at a time from a BufferedReader, so only the current
+ * card is in memory however big the file is. It unfolds continuation lines,
+ * understands 2.1 quoted-printable values as phones export them, and maps
+ *   N / FN        -> first and last name
+ *   TEL           -> phone (the first one that is a Ukrainian number)
+ *   EMAIL         -> email
+ *   GENDER (4.0), X-GENDER (3.0) -> gender
+ *   CATEGORIES    -> tags; "favorite(s)" / "starred" or X-FAVORITE -> favorite
+ * Cards that cannot become a Contact are rejected with a reason, like invalid
+ * CSV lines. Writer emits 3.0 or 4.0 cards folded at 75 octets.
+ */
+final class ContactVCard {
+    static final String EXTENSION = "vcf";
+    private static final int FOLD_OCTETS = 75;
+
+    private ContactVCard() {}
+
+    /**
+     * Writes {@code contacts} as vCard {@code version} ("3.0" or "4.0").
+     * {@code progress} receives 0..100; the file is left incomplete if {@code cancelled} turns true.
+     */
+    static void writeFile(Path path, List<Contact> contacts, String version,
+                          IntConsumer progress, BooleanSupplier cancelled) throws IOException {
+        try (Writer w = new Writer(new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), 1 << 16), version)) {
+            int n = contacts.size();
+            for (int i = 0; i < n; i++) {
+                w.write(contacts.get(i));
+                if ((i & 1023) == 1023) {
+                    if (cancelled.getAsBoolean()) return;
+                    progress.accept((int) ((i + 1L) * 100 / n));
+                }
+            }
+            progress.accept(100);
+        }
+    }
+
+    /* --- Reader --- */
+
+    static final class Reader implements Closeable {
+        private final BufferedReader in;
+        private String pending;          // physical line read ahead while unfolding
+        private int lineNo = 0;
+        private int cardLine = 0;
+        private int cards = 0;
+        private String error;
+
+        Reader(BufferedReader in) {
+            this.in = in;
+        }
+
+        /** Line of the BEGIN:VCARD of the card last returned by next(). */
+        int cardLine() { return cardLine; }
+
+        /** Number of cards read so far, rejected ones included. */
+        int cards() { return cards; }
+
+        /** Why the last next() returned null. */
+        String error() { return error; }
+
+        boolean hasNext() throws IOException {
+            String line;
+            while ((line = peek()) != null) {
+                if (line.regionMatches(true, 0, "BEGIN:VCARD", 0, 11)) return true;
+                pending = null;   // stray text between cards
+            }
+            return false;
+        }
+
+        /** The next card as a Contact, or null if it was rejected (see error()). */
+        Contact next() throws IOException {
+            if (!hasNext()) return null;
+            pending = null;
+            cardLine = lineNo;
+            cards++;
+            error = null;
+
+            String first = null, last = null, formatted = null, email = null, gender = "";
+            String anyPhone = null, phone = null;
+            List<String> tags = new ArrayList<>();
+            boolean favorite = false, ended = false;
+
+            String line;
+            while ((line = peek()) != null) {
+                // the card lost its END; this line starts the next one
+                if (line.regionMatches(true, 0, "BEGIN:VCARD", 0, 11)) break;
+                line = logicalLine();
+                int colon = valueStart(line);
+                if (colon < 0) continue;
+                String head = line.substring(0, colon);
+                String name = propertyName(head);
+                String value = decode(head, line.substring(colon + 1));
+
+                if (name.equals("END")) {
+                    ended = true;
+                    break;
+                }
+                switch (name) {
+                    case "N": {
+                        List<String> parts = split(value, ';');
+                        last = parts.size() > 0 ? parts.get(0) : "";
+                        first = parts.size() > 1 ? parts.get(1) : "";
+                        break;
+                    }
+                    case "FN":
+                        formatted = unescape(value);
+                        break;
+                    case "TEL": {
+                        String raw = unescape(value);
+                        if (raw.regionMatches(true, 0, "tel:", 0, 4)) raw = raw.substring(4);
+                        if (anyPhone == null) anyPhone = raw;
+                        String normalized = ContactDedup.normalizePhone(raw);
+                        if (phone == null && normalized != null) phone = normalized;
+                        break;
+                    }
+                    case "EMAIL":
+                        if (email == null) email = unescape(value).trim();
+                        break;
+                    case "GENDER":
+                    case "X-GENDER":
+                        gender = gender(unescape(value));
+                        break;
+                    case "CATEGORIES":
+                        for (String t : split(value, ',')) {
+                            String tag = t.trim();
+                            if (tag.isEmpty()) continue;
+                            if (isFavoriteCategory(tag)) favorite = true;
+                            else if (!tags.contains(tag)) tags.add(symbol(tag));
+                        }
+                        break;
+                    case "X-FAVORITE":
+                        favorite = value.trim().equalsIgnoreCase("true") || value.trim().equals("1");
+                        break;
+                }
+            }
+
+            if (!ended) return reject("missing END:VCARD");
+            if ((first == null || first.isEmpty() && last.isEmpty()) && formatted != null) {
+                String fn = formatted.trim();
+                int sp = fn.lastIndexOf(' ');
+                first = sp < 0 ? fn : fn.substring(0, sp).trim();
+                last = sp < 0 ? "" : fn.substring(sp + 1);
+            }
+            if (first == null || first.isEmpty() && last.isEmpty()) return reject("no name");
+            if (anyPhone == null) return reject("no phone number");
+            if (phone == null) return reject("phone " + anyPhone + " is not a +380 number");
+            if (email == null) email = "";
+            if (!ContactValidator.isValidEmail(email)) {
+                return reject("invalid email " + email);
+            }
+            return new Contact(first.trim(), last.trim(), phone, email, gender, tags, favorite);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private Contact reject(String reason) {
+            error = reason;
+            return null;
+        }
+
+        private String peek() throws IOException {
+            if (pending == null) {
+                pending = in.readLine();
+                if (pending != null) lineNo++;
+            }
+            return pending;
+        }
+
+        // One property with folded lines joined; 2.1 quoted-printable soft breaks ("=" at the end) too
+        private String logicalLine() throws IOException {
+            String line = peek();
+            if (line == null) return null;
+            pending = null;
+            StringBuilder sb = null;
+            boolean qp = line.toUpperCase().contains("QUOTED-PRINTABLE");
+            while (true) {
+                String cur = sb == null ? line : sb.toString();
+                boolean softBreak = qp && cur.endsWith("=");
+                String next = peek();
+                if (next == null) break;
+                if (softBreak) {
+                    if (sb == null) sb = new StringBuilder(line);
+                    sb.setLength(sb.length() - 1);
+                    sb.append(next.trim());
+                } else if (!next.isEmpty() && (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+                    if (sb == null) sb = new StringBuilder(line);
+                    sb.append(next, 1, next.length());
+                } else {
+                    break;
+                }
+                pending = null;
+            }
+            return sb == null ? line : sb.toString();
+        }
+    }
+
+    // Index of the ':' that ends "group.NAME;PARAM=...;PARAM="..."", skipping quoted parameter values
+    private static int valueStart(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ':' && !quoted) return i;
+        }
+        return -1;
+    }
+
+    private static String propertyName(String head) {
+        int semi = head.indexOf(';');
+        String name = semi < 0 ? head : head.substring(0, semi);
+        int dot = name.indexOf('.');
+        if (dot >= 0) name = name.substring(dot + 1);
+        return name.trim().toUpperCase();
+    }
+
+    private static String decode(String head, String value) {
+        String h = head.toUpperCase();
+        if (!h.contains("QUOTED-PRINTABLE")) return value;
+        byte[] out = new byte[value.length()];
+        int n = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '=' && i + 2 < value.length()) {
+                int hi = Character.digit(value.charAt(i + 1), 16);
+                int lo = Character.digit(value.charAt(i + 2), 16);
+                if (hi >= 0 && lo >= 0) {
+                    out[n++] = (byte) (hi * 16 + lo);
+                    i += 2;
+                    continue;
+                }
+            }
+            out[n++] = (byte) c;
+        }
+        // 2.1 cards from phones put CHARSET=UTF-8 here; anything else is rare enough to read as UTF-8 too
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    // Splits on unescaped separators and unescapes each part
+    private static List<String> split(String value, char sep) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') i++;
+            else if (c == sep) {
+                parts.add(unescape(value.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        parts.add(unescape(value.substring(start)));
+        return parts;
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char e = s.charAt(++i);
+                sb.append(e == 'n' || e == 'N' ? '\n' : e);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String gender(String value) {
+        String v = value.trim();
+        int semi = v.indexOf(';');
+        if (semi >= 0) v = v.substring(0, semi);
+        switch (v.toUpperCase()) {
+            case "M": case "MALE": return "Male";
+            case "F": case "FEMALE": return "Female";
+            default: return "Other";
+        }
+    }
+
+    private static boolean isFavoriteCategory(String tag) {
+        return tag.equalsIgnoreCase("favorite") || tag.equalsIgnoreCase("favorites") || tag.equalsIgnoreCase("starred");
+    }
+
+    private static String symbol(String s) {
+        return ContactCsv.symbol(s);
+    }
+
+    /* --- Writer --- */
+
+    static final class Writer implements Closeable, Flushable {
+        private final java.io.Writer out;
+        private final boolean v4;
+        private final StringBuilder line = new StringBuilder(128);
+
+        Writer(java.io.Writer out, String version) {
+            if (!version.equals("3.0") && !version.equals("4.0")) {
+                throw new IllegalArgumentException("Unsupported vCard version: " + version);
+            }
+            this.out = out;
+            this.v4 = version.equals("4.0");
+        }
+
+        void write(Contact c) throws IOException {
+            out.write("BEGIN:VCARD\r\n");
+            out.write(v4 ? "VERSION:4.0\r\n" : "VERSION:3.0\r\n");
+            property("N", escape(c.lastName) + ";" + escape(c.firstName) + ";;;");
+            property("FN", escape((c.firstName + " " + c.lastName).trim()));
+            if (c.phone != null && !c.phone.isEmpty()) {
+                property(v4 ? "TEL;VALUE=uri;TYPE=cell" : "TEL;TYPE=CELL", (v4 ? "tel:" : "") + escape(c.phone));
+            }
+            if (c.email != null && !c.email.isEmpty()) property("EMAIL", escape(c.email));
+            String g = c.gender == null ? "" : c.gender.toLowerCase();
+            String code = g.equals("male") ? "M" : g.equals("female") ? "F" : "O";
+            if (v4) property("GENDER", code);
+            else property("X-GENDER", g.equals("male") ? "Male" : g.equals("female") ? "Female" : "Other");
+            if (!c.tags.isEmpty()) {
+                StringBuilder cats = new StringBuilder();
+                for (String t : c.tags) {
+                    if (cats.length() > 0) cats.append(',');
+                    cats.append(escape(t));
+                }
+                property("CATEGORIES", cats.toString());
+            }
+            if (c.favorite) property("X-FAVORITE", "TRUE");
+            out.write("END:VCARD\r\n");
+        }
+
+        // name:value folded so that no physical line is longer than 75 UTF-8 octets
+        private void property(String name, String value) throws IOException {
+            line.setLength(0);
+            line.append(name).append(':').append(value);
+            int octets = 0;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                int size = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : Character.isLowSurrogate(c) ? 0 : 3;
+                if (octets + size > FOLD_OCTETS) {
+                    out.write("\r\n ");
+                    octets = 1;
+                }
+                out.write(c);
+                octets += size;
+            }
+            out.write("\r\n");
+        }
+
+        private static String escape(String s) {
+            if (s == null) return "";
+            StringBuilder sb = null;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                String rep = c == '\\' ? "\\\\" : c == ',' ? "\\," : c == ';' ? "\\;" : c == '\n' ? "\\n" : null;
+                if (rep != null && sb == null) sb = new StringBuilder(s.length() + 8).append(s, 0, i);
+                if (sb != null) {
+                    if (rep != null) sb.append(rep);
+                    else if (c != '\r') sb.append(c);
+                }
+            }
+            return sb == null ? s : sb.toString();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import javax.swing.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/* --- Background vCard importer ---
+ * Streams the file through ContactVCard.Reader and appends contacts to the
+ * model in batches of BATCH. At most MAX_PENDING batches wait for the EDT at
+ * a time, so a slow table cannot make the parser buffer the whole file.
+ * Progress is the share of bytes read; rejected cards are counted and the
+ * first MAX_REPORTED of them are kept with their line and reason.
+ */
+class ContactVCardLoader extends SwingWorker<Integer, Void> {
+    private static final int BATCH = 2000;
+    private static final int MAX_PENDING = 4;
+    private static final int MAX_REPORTED = 100;
+
+    private final File file;
+    private final ContactsTableModel model;
+    private final Semaphore pending = new Semaphore(MAX_PENDING);
+    private final List<String> rejectedCards = new ArrayList<>();
+    private volatile int rejected = 0;
+
+    ContactVCardLoader(File file, ContactsTableModel model) {
+        this.file = file;
+        this.model = model;
+    }
+
+    /** Cards that could not be turned into a contact. */
+    int getRejected() { return rejected; }
+
+    /** "line N: reason" for the first rejected cards; read after the worker is done. */
+    synchronized List<String> getRejectedCards() { return new ArrayList<>(rejectedCards); }
+
+    @Override
+    protected Integer doInBackground() throws Exception {
+        long size = Math.max(1, file.length());
+        CountingInputStream counted = new CountingInputStream(new FileInputStream(file));
+        try (ContactVCard.Reader reader = new ContactVCard.Reader(
+                new BufferedReader(new InputStreamReader(counted, StandardCharsets.UTF_8), 1 << 16))) {
+            int loaded = 0;
+            List<Contact> batch = new ArrayList<>(BATCH);
+            while (reader.hasNext()) {
+                Contact c = reader.next();
+                if (c != null) {
+                    batch.add(c);
+                } else {
+                    rejected++;
+                    synchronized (this) {
+                        if (rejectedCards.size() < MAX_REPORTED) {
+                            rejectedCards.add("line " + reader.cardLine() + ": " + reader.error());
+                        }
+                    }
+                }
+                if (batch.size() == BATCH) {
+                    publishBatch(batch);
+                    loaded += batch.size();
+                    batch = new ArrayList<>(BATCH);
+                    setProgress((int) Math.min(99, counted.count * 100 / size));
+                }
+            }
+            publishBatch(batch);
+            loaded += batch.size();
+            setProgress(100);
+            return loaded;
+        }
+    }
+
+    // invokeLater keeps batches in file order and ahead of done()
+    private void publishBatch(List<Contact> batch) throws InterruptedException {
+        if (isCancelled()) throw new InterruptedException();
+        if (batch.isEmpty()) return;
+        pending.acquire();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                if (!isCancelled()) model.addAll(batch);
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/* --- Contact validation rules ---
+ * The same rules ContactDialog enforces, for one contact or a whole file.
+ * Phones are checked by hand (+380 and nine digits), the email pattern is
+ * compiled once. Checks return null when the value is fine, otherwise the
+ * message to show, so the dialog and the batch code word errors the same way.
+ */
+final class ContactValidator {
+    static final String PHONE_FORMAT = "+380XXXXXXXXX";
+    private static final Pattern EMAIL = Pattern.compile("[\\w.-]+@[\\w.-]+\\.[a-zA-Z]{2,6}");
+    private static final int MAX_SAMPLES = 100;
+
+    private ContactValidator() {}
+
+    static boolean isValidPhone(String phone) {
+        if (phone == null || phone.length() != 13) return false;
+        if (phone.charAt(0) != '+' || phone.charAt(1) != '3' || phone.charAt(2) != '8' || phone.charAt(3) != '0') return false;
+        for (int i = 4; i < 13; i++) {
+            char c = phone.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /** Empty counts as valid; the email is optional. */
+    static boolean isValidEmail(String email) {
+        return email == null || email.isEmpty() || EMAIL.matcher(email).matches();
+    }
+
+    static String checkPhone(String phone) {
+        if (phone == null || phone.isEmpty()) return "Phone number is required.";
+        if (!isValidPhone(phone)) return "Invalid phone format. Use " + PHONE_FORMAT + " (e.g. +380501234567)";
+        return null;
+    }
+
+    static String checkEmail(String email) {
+        return isValidEmail(email) ? null : "Invalid email format. Example: example@gmail.com";
+    }
+
+    /** First problem with {@code c}, or null if it would pass ContactDialog. */
+    static String check(Contact c) {
+        String p = checkPhone(c.phone);
+        return p != null ? p : checkEmail(c.email);
+    }
+
+    /* --- File report --- */
+
+    static final class Report {
+        int records;
+        int valid;
+        int unparsable;
+        int missingPhone;
+        int badPhone;
+        int badEmail;
+        int duplicatePhones;
+        /** "record N: problem" for the first problems in file order. */
+        final List<String> samples = new ArrayList<>();
+
+        int invalid() { return records - valid; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Records: ").append(records).append('\n');
+            sb.append("Valid: ").append(valid).append('\n');
+            if (unparsable > 0) sb.append("Not 7 fields: ").append(unparsable).append('\n');
+            if (missingPhone > 0) sb.append("No phone: ").append(missingPhone).append('\n');
+            if (badPhone > 0) sb.append("Phone not ").append(PHONE_FORMAT).append(": ").append(badPhone).append('\n');
+            if (badEmail > 0) sb.append("Invalid email: ").append(badEmail).append('\n');
+            if (duplicatePhones > 0) sb.append("Phone already used by an earlier record: ").append(duplicatePhones).append('\n');
+            if (!samples.isEmpty()) {
+                sb.append('\n');
+                for (String s : samples) sb.append(s).append('\n');
+                if (invalid() + duplicatePhones > samples.size()) sb.append("...\n");
+            }
+            return sb.toString();
+        }
+    }
+
+    // Per-chunk counts; record numbers in samples are chunk-local until merged
+    private static final class Part {
+        final Report report = new Report();
+        final List<Integer> sampleRecords = new ArrayList<>();
+        final List<String> sampleTexts = new ArrayList<>();
+        final List<String> phones = new ArrayList<>();
+        final List<Integer> phoneRecords = new ArrayList<>();
+
+        void problem(int record, String text) {
+            if (sampleTexts.size() < MAX_SAMPLES) {
+                sampleRecords.add(record);
+                sampleTexts.add(text);
+            }
+        }
+    }
+
+    /**
+     * Checks every record of a CSV address book in one parallel pass over the mapped
+     * file, split at the same record boundaries ContactCsvLoader uses.
+     * {@code progress} receives 0..100 and may be called from any thread.
+     */
+    static Report validateFile(File file, IntConsumer progress, BooleanSupplier cancelled) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("File is too large: " + file.getName());
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int chunks = (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4L,
+                    size / ContactCsvLoader.MIN_CHUNK_BYTES));
+            int[] bounds = ContactCsvLoader.splitPoints(buf, ContactCsvLoader.skipBom(buf), chunks);
+
+            Part[] parts = new Part[bounds.length - 1];
+            int[] done = {0};
+            IntStream.range(0, parts.length).parallel().forEach(i -> {
+                if (cancelled.getAsBoolean()) return;
+                parts[i] = checkChunk(buf.slice(bounds[i], bounds[i + 1] - bounds[i]));
+                synchronized (done) {
+                    progress.accept(++done[0] * 100 / parts.length);
+                }
+            });
+            if (cancelled.getAsBoolean()) return null;
+            return merge(parts);
+        }
+    }
+
+    private static Part checkChunk(ByteBuffer bytes) {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+        ContactCsv.Reader reader = chars.hasArray()
+                ? new ContactCsv.Reader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining())
+                : new ContactCsv.Reader(chars.toString().toCharArray(), 0, chars.remaining());
+        Part part = new Part();
+        Report r = part.report;
+        while (reader.hasNext()) {
+            int record = r.records++;
+            Contact c = reader.next();
+            if (c == null) {
+                r.unparsable++;
+                part.problem(record, "fewer than " + ContactCsv.FIELDS + " fields");
+                continue;
+            }
+            boolean ok = true;
+            if (c.phone.isEmpty()) {
+                r.missingPhone++;
+                part.problem(record, "no phone");
+                ok = false;
+            } else if (!isValidPhone(c.phone)) {
+                r.badPhone++;
+                part.problem(record, "phone " + c.phone);
+                ok = false;
+            } else {
+                part.phones.add(c.phone);
+                part.phoneRecords.add(record);
+            }
+            if (!isValidEmail(c.email)) {
+                r.badEmail++;
+                part.problem(record, "email " + c.email);
+                ok = false;
+            }
+            if (ok) r.valid++;
+        }
+        return part;
+    }
+
+    // Adds the chunks up in file order; duplicate phones need the whole file, so they are found here
+    private static Report merge(Part[] parts) {
+        Report total = new Report();
+        Set<String> seen = new HashSet<>();
+        TreeMap<Integer, String> samples = new TreeMap<>();
+        int offset = 0;
+        for (Part p : parts) {
+            Report r = p.report;
+            total.valid += r.valid;
+            total.unparsable += r.unparsable;
+            total.missingPhone += r.missingPhone;
+            total.badPhone += r.badPhone;
+            total.badEmail += r.badEmail;
+            for (int i = 0; i < p.sampleTexts.size(); i++) {
+                int rec = offset + p.sampleRecords.get(i);
+                samples.merge(rec, p.sampleTexts.get(i), (a, b) -> a + ", " + b);
+            }
+            for (int i = 0; i < p.phones.size(); i++) {
+                if (!seen.add(p.phones.get(i))) {
+                    total.duplicatePhones++;
+                    int rec = offset + p.phoneRecords.get(i);
+                    if (total.duplicatePhones <= MAX_SAMPLES) {
+                        samples.merge(rec, "duplicate phone " + p.phones.get(i), (a, b) -> a + ", " + b);
+                    }
+                }
+            }
+            offset += r.records;
+        }
+        total.records = offset;
+        for (Map.Entry<Integer, String> e : samples.entrySet()) {
+            if (total.samples.size() == MAX_SAMPLES) break;
+            total.samples.add("record " + (e.getKey() + 1) + ": " + e.getValue());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,141 @@
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/* --- Table model backed by List<Contact> --- */
+class ContactsTableModel extends AbstractTableModel {
+    private final String[] columns = {"First Name", "Last Name", "Phone", "Email", "Gender", "Tags", "Favorite"};
+    private CompactContactList contacts = newStorage();
+    private long version;   // bumped by every change event
+
+    /** Empty storage for {@link #replaceAll}; it may be filled on any one thread. */
+    static CompactContactList newStorage() {
+        return new CompactContactList(ContactDialog.TAGS);
+    }
+
+    public int getRowCount() { return contacts.size(); }
+    public int getColumnCount() { return columns.length; }
+    public String getColumnName(int col) { return columns[col]; }
+
+    // reads the one field from storage; no Contact is built for rendering
+    public Object getValueAt(int row, int col) {
+        return contacts.value(row, col);
+    }
+
+    public Class<?> getColumnClass(int col) {
+        if (col == 6) return String.class;
+        return String.class;
+    }
+
+    public boolean isCellEditable(int r, int c) { return false; }
+
+    /** Changes with every event, so rows read at one version may have moved at another. */
+    public long getVersion() { return version; }
+
+    @Override
+    public void fireTableChanged(TableModelEvent e) {
+        version++;
+        super.fireTableChanged(e);
+    }
+
+    /** A detached copy; change the row with updateContact() or updateAll(). */
+    public Contact getContactAt(int row) { return contacts.get(row); }
+
+    public void addContact(Contact c) {
+        contacts.add(c);
+        int r = contacts.size()-1;
+        fireTableRowsInserted(r, r);
+    }
+
+    public void addAll(List<Contact> batch) {
+        if (batch.isEmpty()) return;
+        int first = contacts.size();
+        contacts.addAll(batch);
+        fireTableRowsInserted(first, contacts.size()-1);
+    }
+
+    public void updateContact(int row, Contact c) {
+        contacts.set(row, c);
+        fireTableRowsUpdated(row, row);
+    }
+
+    public void removeContact(int row) {
+        contacts.remove(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /** Applies {@code edit} to a copy of each row, stores it back and fires one event for all of them. */
+    public void updateAll(int[] rows, Consumer<Contact> edit) {
+        int[] sorted = IntStream.of(rows).sorted().distinct().toArray();
+        if (sorted.length == 0) return;
+        for (int r : sorted) {
+            Contact c = contacts.get(r);
+            edit.accept(c);
+            contacts.set(r, c);
+        }
+        fireTableChanged(new BulkChange(this, sorted, false));
+    }
+
+    /** Replaces row {@code rows[i]} with {@code values[i]} and fires one event for all of them. */
+    public void setAll(int[] rows, Contact[] values) {
+        if (rows.length == 0) return;
+        for (int i = 0; i < rows.length; i++) contacts.set(rows[i], values[i]);
+        fireTableChanged(new BulkChange(this, IntStream.of(rows).sorted().distinct().toArray(), false));
+    }
+
+    /** Removes the rows in one pass over the list and fires one event. */
+    public void removeAll(int[] rows) {
+        int[] sorted = IntStream.of(rows).sorted().distinct().toArray();
+        if (sorted.length == 0) return;
+        int first = sorted[0], last = sorted[sorted.length-1];
+        if (last - first == sorted.length - 1) {
+            contacts.subList(first, last+1).clear();
+            fireTableRowsDeleted(first, last);
+            return;
+        }
+        contacts.removeRows(sorted);
+        fireTableChanged(new BulkChange(this, sorted, true));
+    }
+
+    /** Takes over {@code loaded} (from {@link #newStorage}) as all rows and fires one data change. */
+    public void replaceAll(CompactContactList loaded) {
+        contacts = loaded;
+        fireTableDataChanged();
+    }
+
+    /** Live read-only view; every get() builds a Contact, so prefer snapshot() for whole-book work. */
+    public List<Contact> getAll() { return Collections.unmodifiableList(contacts); }
+
+    /** The live rows for reading on the EDT, e.g. single fields without building a Contact. */
+    CompactContactList storage() { return contacts; }
+
+    /** The rows as they are now, unaffected by later changes and safe to read on other threads. */
+    public CompactContactList snapshot() { return contacts.snapshot(); }
+
+    public void clear() {
+        int n = contacts.size();
+        if (n>0) {
+            contacts.clear();
+            fireTableRowsDeleted(0, n-1);
+        }
+    }
+
+    /**
+     * One event for a set of scattered rows. Updates span first..last of the set;
+     * removals look like a full data change to the table and sorter.
+     * Listeners that know this class can use {@link #rows} instead.
+     */
+    static final class BulkChange extends TableModelEvent {
+        final int[] rows;     // ascending model rows, before the change
+        final boolean removed;
+
+        BulkChange(ContactsTableModel source, int[] rows, boolean removed) {
+            super(source, removed ? 0 : rows[0], removed ? Integer.MAX_VALUE : rows[rows.length-1]);
+            this.rows = rows;
+            this.removed = removed;
+        }
+    }
+}
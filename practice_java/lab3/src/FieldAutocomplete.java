@@ -0,0 +1,122 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.*;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/* --- Type-ahead popup for a text field ---
+ * Suggestions come from a (text, limit) -> list function that is called on
+ * the EDT after each edit, so it has to be cheap (ContactLookup walks). Up and
+ * Down move through the list, Enter or a click takes a suggestion, Escape
+ * closes it. Anything after two spaces in a suggestion is a hint ("+38067  (12)")
+ * and is not put into the field.
+ */
+class FieldAutocomplete {
+    private static final int MAX_SUGGESTIONS = 8;
+
+    private final JTextField field;
+    private final BiFunction<String, Integer, List<String>> source;
+    private final DefaultListModel<String> items = new DefaultListModel<>();
+    private final JList<String> list = new JList<>(items);
+    private final JPopupMenu popup = new JPopupMenu();
+    private boolean adjusting = false;
+
+    private FieldAutocomplete(JTextField field, BiFunction<String, Integer, List<String>> source) {
+        this.field = field;
+        this.source = source;
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                accept();
+            }
+        });
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { changed(); }
+            public void removeUpdate(DocumentEvent e) { changed(); }
+            public void changedUpdate(DocumentEvent e) { }
+        });
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) return;
+                int i = list.getSelectedIndex();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        list.setSelectedIndex(Math.min(i + 1, items.size() - 1));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        list.setSelectedIndex(Math.max(i - 1, 0));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        if (i >= 0) {
+                            accept();
+                            e.consume();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        popup.setVisible(false);
+                        e.consume();
+                        break;
+                }
+            }
+        });
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                popup.setVisible(false);
+            }
+        });
+    }
+
+    static void install(JTextField field, BiFunction<String, Integer, List<String>> source) {
+        new FieldAutocomplete(field, source);
+    }
+
+    private void changed() {
+        if (adjusting) return;
+        // the document is still locked here
+        SwingUtilities.invokeLater(this::refresh);
+    }
+
+    private void refresh() {
+        String text = field.getText();
+        List<String> suggestions = text.isEmpty() ? List.of() : source.apply(text, MAX_SUGGESTIONS);
+        items.clear();
+        for (String s : suggestions) {
+            if (!s.equals(text)) items.addElement(s);
+        }
+        if (items.isEmpty() || !field.isShowing() || !field.hasFocus()) {
+            popup.setVisible(false);
+            return;
+        }
+        list.setVisibleRowCount(items.size());
+        list.clearSelection();
+        popup.pack();
+        popup.setPopupSize(Math.max(field.getWidth(), popup.getPreferredSize().width), popup.getPreferredSize().height);
+        popup.show(field, 0, field.getHeight());
+    }
+
+    private void accept() {
+        String s = list.getSelectedValue();
+        popup.setVisible(false);
+        if (s == null) return;
+        int hint = s.indexOf("  ");
+        adjusting = true;
+        try {
+            field.setText(hint < 0 ? s : s.substring(0, hint));
+        } finally {
+            adjusting = false;
+        }
+        // the field's own action (e.g. search) sees the completed text
+        field.postActionEvent();
+    }
+}
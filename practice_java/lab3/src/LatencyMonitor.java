@@ -0,0 +1,460 @@
+import jdk.jfr.Category;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.Timespan;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InvocationEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.PaintEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/* --- Latency instrumentation ---
+ * Named latency histograms plus a log of EDT stalls.
+ *   - Code under test brackets itself with start() / record(name, start).
+ *     Histograms keep microseconds in log-linear buckets like HdrHistogram
+ *     (exact below 128us, then 64 buckets per power of two, under 1.6% off),
+ *     so recording is an array increment and percentiles need no samples.
+ *   - While the overlay is shown or a JFR recording runs, an EventQueue
+ *     pushed on top of the system one times every dispatched event by kind
+ *     (edt.key, edt.mouse, edt.paint, edt.invocation, ...). A dispatch
+ *     longer than STALL_MS is a stall; a watchdog thread takes the EDT stack
+ *     while it is still stuck, so the report shows where. Otherwise the
+ *     queue and the watchdog are gone and the EDT runs untouched.
+ *   - Every record is also a JFR event (AddressBook.Latency/.EdtStall), free
+ *     unless a recording is running, e.g. jcmd <pid> JFR.start.
+ * overlay() is a glass pane that draws the figures over the window;
+ * toJson() / writeJson() export everything.
+ */
+final class LatencyMonitor {
+    static final long STALL_MS = 100;
+    private static final long STALL_NANOS = STALL_MS * 1_000_000;
+    private static final int MAX_STALLS = 50;
+    private static final int STACK_DEPTH = 12;
+    private static final long WATCHDOG_MS = 20;
+
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Deque<Stall> stalls = new ArrayDeque<>();   // guarded by itself, newest first
+    private int stallCount = 0;                               // guarded by stalls
+    private final long startedAt = System.currentTimeMillis();
+
+    // EDT dispatch in progress, read by the watchdog
+    private volatile long dispatchStart = 0;
+    private volatile Thread edt;
+    private volatile StackTraceElement[] stuckStack;
+
+    // EDT timing, on while either reason holds; guarded by this
+    private boolean overlayShown = false;
+    private boolean recording = false;
+    private TimedEventQueue queue;
+    private Thread watchdog;
+
+    /* --- Recording, any thread --- */
+
+    long start() { return System.nanoTime(); }
+
+    /** Records the time since {@code startNanos}, taken from start(). */
+    void record(String name, long startNanos) {
+        recordNanos(name, System.nanoTime() - startNanos);
+    }
+
+    void recordNanos(String name, long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        histogram(name).record(micros);
+        if (LATENCY_EVENT.isEnabled()) {
+            LatencyEvent e = new LatencyEvent();
+            e.operation = name;
+            e.latency = micros;
+            e.commit();
+        }
+    }
+
+    Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    void reset() {
+        histograms.clear();
+        synchronized (stalls) {
+            stalls.clear();
+            stallCount = 0;
+        }
+    }
+
+    /* --- Histogram --- */
+
+    static final class Histogram {
+        private static final int SUB_BITS = 7;
+        private static final int SUB = 1 << SUB_BITS;   // exact below this
+        private static final int HALF = SUB / 2;         // buckets per power of two above it
+
+        private final long[] counts = new long[SUB + (64 - SUB_BITS) * HALF];
+        private long count, total, min = Long.MAX_VALUE, max;
+
+        synchronized void record(long value) {
+            counts[index(value)]++;
+            count++;
+            total += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        synchronized long count() { return count; }
+        synchronized long min() { return count == 0 ? 0 : min; }
+        synchronized long max() { return max; }
+        synchronized double mean() { return count == 0 ? 0 : (double) total / count; }
+
+        /** Highest value of the bucket holding the {@code p}-quantile (0..1), at most max(). */
+        synchronized long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(max, highest(i));
+            }
+            return max;
+        }
+
+        /** Non-empty buckets as (highest value, count) pairs. */
+        synchronized List<long[]> buckets() {
+            List<long[]> out = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) if (counts[i] > 0) out.add(new long[]{highest(i), counts[i]});
+            return out;
+        }
+
+        private static int index(long v) {
+            if (v < SUB) return (int) v;
+            int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+            return SUB + (shift - 1) * HALF + (int) (v >>> shift) - HALF;
+        }
+
+        private static long highest(int index) {
+            if (index < SUB) return index;
+            int shift = (index - SUB) / HALF + 1;
+            long sub = (index - SUB) % HALF + HALF;
+            return ((sub + 1) << shift) - 1;
+        }
+    }
+
+    /* --- EDT stalls --- */
+
+    static final class Stall {
+        final long time;
+        final long micros;
+        final String event;
+        final StackTraceElement[] stack;
+
+        Stall(long time, long micros, String event, StackTraceElement[] stack) {
+            this.time = time;
+            this.micros = micros;
+            this.event = event;
+            this.stack = stack;
+        }
+    }
+
+    int stallCount() {
+        synchronized (stalls) {
+            return stallCount;
+        }
+    }
+
+    List<Stall> stalls() {
+        synchronized (stalls) {
+            return new ArrayList<>(stalls);
+        }
+    }
+
+    /** Turns EDT timing on for as long as a JFR recording runs; call once, on any thread. */
+    void watchRecordings() {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                // the recorder's own thread, possibly holding its lock; look at all recordings later
+                SwingUtilities.invokeLater(() -> {
+                    boolean running = false;
+                    for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+                        if (r.getState() == RecordingState.RUNNING) running = true;
+                    }
+                    setRecording(running);
+                });
+            }
+        });
+    }
+
+    private synchronized void setRecording(boolean running) {
+        recording = running;
+        updateEdtTiming();
+    }
+
+    private synchronized void setOverlayShown(boolean shown) {
+        overlayShown = shown;
+        updateEdtTiming();
+    }
+
+    private void updateEdtTiming() {
+        boolean on = overlayShown || recording;
+        if (on && queue == null) {
+            queue = new TimedEventQueue();
+            Toolkit.getDefaultToolkit().getSystemEventQueue().push(queue);
+            watchdog = new Thread(this::watch, "LatencyMonitor");
+            watchdog.setDaemon(true);
+            watchdog.start();
+        } else if (!on && queue != null) {
+            queue.remove();
+            queue = null;
+            watchdog.interrupt();
+            watchdog = null;
+            dispatchStart = 0;
+        }
+    }
+
+    private final class TimedEventQueue extends EventQueue {
+        // nested loops (modal dialogs) dispatch inside an outer dispatch; the outer one is not a stall
+        private int depth = 0;
+        private boolean pumped = false;
+
+        // events still queued here move to the queue underneath
+        void remove() {
+            pop();
+        }
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            edt = Thread.currentThread();
+            boolean outerPumped = pumped;
+            if (depth > 0) outerPumped = true;
+            pumped = false;
+            depth++;
+            long start = System.nanoTime();
+            dispatchStart = start;
+            stuckStack = null;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                depth--;
+                if (!pumped) {
+                    recordNanos(kind(event), nanos);
+                    if (nanos >= STALL_NANOS) stall(event, nanos, stuckStack);
+                }
+                pumped = outerPumped;
+                // the outer dispatch, if any, carries on from here
+                dispatchStart = depth > 0 ? System.nanoTime() : 0;
+                stuckStack = null;
+            }
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                Thread.sleep(WATCHDOG_MS);
+                long start = dispatchStart;
+                Thread t = edt;
+                if (start != 0 && t != null && stuckStack == null && System.nanoTime() - start >= STALL_NANOS) {
+                    StackTraceElement[] stack = t.getStackTrace();
+                    // still the same dispatch, so the stack belongs to it
+                    if (dispatchStart == start) stuckStack = Arrays.copyOf(stack, Math.min(stack.length, STACK_DEPTH));
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    private void stall(AWTEvent event, long nanos, StackTraceElement[] stack) {
+        Stall s = new Stall(System.currentTimeMillis(), nanos / 1000, describe(event),
+                stack == null ? new StackTraceElement[0] : stack);
+        synchronized (stalls) {
+            stallCount++;
+            stalls.addFirst(s);
+            if (stalls.size() > MAX_STALLS) stalls.removeLast();
+        }
+        if (STALL_EVENT.isEnabled()) {
+            EdtStallEvent e = new EdtStallEvent();
+            e.event = s.event;
+            e.latency = s.micros;
+            StackTraceElement at = where(s.stack);
+            e.stack = at == null ? "" : at.toString();
+            e.commit();
+        }
+    }
+
+    // The first frame of our own code, where a JDK frame on top (sleep, I/O) would say little
+    private static StackTraceElement where(StackTraceElement[] stack) {
+        for (StackTraceElement f : stack) {
+            String c = f.getClassName();
+            if (!c.startsWith("java.") && !c.startsWith("javax.") && !c.startsWith("sun.")
+                    && !c.startsWith("jdk.") && !c.startsWith("com.sun.")) return f;
+        }
+        return stack.length == 0 ? null : stack[0];
+    }
+
+    private static String kind(AWTEvent e) {
+        if (e instanceof KeyEvent) return "edt.key";
+        if (e instanceof MouseEvent) return "edt.mouse";
+        if (e instanceof PaintEvent) return "edt.paint";
+        if (e instanceof InvocationEvent) return "edt.invocation";
+        return "edt.other";
+    }
+
+    private static String describe(AWTEvent e) {
+        String s = e.getClass().getSimpleName();
+        if (e instanceof KeyEvent k) s += " " + KeyEvent.getKeyText(k.getKeyCode());
+        if (e instanceof InvocationEvent) {
+            String p = e.paramString();
+            int at = p.indexOf("runnable=");
+            if (at >= 0) s += " " + p.substring(at + "runnable=".length()).split(",")[0];
+        } else if (e.getSource() != null) {
+            s += " on " + e.getSource().getClass().getSimpleName();
+        }
+        return s;
+    }
+
+    /* --- JFR --- */
+
+    private static final EventType LATENCY_EVENT = EventType.getEventType(LatencyEvent.class);
+    private static final EventType STALL_EVENT = EventType.getEventType(EdtStallEvent.class);
+
+    @Name("AddressBook.Latency")
+    @Label("Operation Latency")
+    @Category("Address Book")
+    static final class LatencyEvent extends jdk.jfr.Event {
+        @Label("Operation") String operation;
+        @Label("Latency") @Timespan(Timespan.MICROSECONDS) long latency;
+    }
+
+    @Name("AddressBook.EdtStall")
+    @Label("EDT Stall")
+    @Category("Address Book")
+    static final class EdtStallEvent extends jdk.jfr.Event {
+        @Label("Event") String event;
+        @Label("Latency") @Timespan(Timespan.MICROSECONDS) long latency;
+        @Label("Top Frame") String stack;
+    }
+
+    /* --- Report --- */
+
+    String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"startedAt\": ").append(startedAt).append(",\n");
+        sb.append("  \"writtenAt\": ").append(System.currentTimeMillis()).append(",\n");
+        sb.append("  \"unit\": \"us\",\n  \"stallThresholdMs\": ").append(STALL_MS).append(",\n");
+        sb.append("  \"histograms\": {");
+        int n = 0;
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            Histogram h = e.getValue();
+            sb.append(n++ > 0 ? ",\n" : "\n").append("    ");
+            string(sb, e.getKey());
+            sb.append(": {\"count\": ").append(h.count()).append(", \"min\": ").append(h.min())
+                    .append(", \"mean\": ").append(Math.round(h.mean())).append(", \"p50\": ").append(h.percentile(0.5))
+                    .append(", \"p90\": ").append(h.percentile(0.9)).append(", \"p99\": ").append(h.percentile(0.99))
+                    .append(", \"p999\": ").append(h.percentile(0.999)).append(", \"max\": ").append(h.max())
+                    .append(", \"buckets\": [");
+            List<long[]> buckets = h.buckets();
+            for (int i = 0; i < buckets.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append('[').append(buckets.get(i)[0]).append(", ").append(buckets.get(i)[1]).append(']');
+            }
+            sb.append("]}");
+        }
+        sb.append("\n  },\n  \"stallCount\": ").append(stallCount()).append(",\n  \"stalls\": [");
+        List<Stall> list = stalls();
+        for (int i = 0; i < list.size(); i++) {
+            Stall s = list.get(i);
+            sb.append(i > 0 ? ",\n" : "\n").append("    {\"time\": ").append(s.time).append(", \"us\": ").append(s.micros)
+                    .append(", \"event\": ");
+            string(sb, s.event);
+            sb.append(", \"stack\": [");
+            for (int k = 0; k < s.stack.length; k++) {
+                if (k > 0) sb.append(", ");
+                string(sb, s.stack[k].toString());
+            }
+            sb.append("]}");
+        }
+        sb.append("\n  ]\n}\n");
+        return sb.toString();
+    }
+
+    void writeJson(File f) throws IOException {
+        Files.writeString(f.toPath(), toJson(), StandardCharsets.UTF_8);
+    }
+
+    private static void string(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /* --- Overlay --- */
+
+    /** A glass pane showing the histograms and recent stalls; it has no mouse listeners, so clicks pass through. */
+    JComponent overlay() {
+        return new Overlay();
+    }
+
+    private final class Overlay extends JComponent {
+        private final javax.swing.Timer refresh = new javax.swing.Timer(500, e -> repaint());
+
+        @Override
+        public void setVisible(boolean visible) {
+            super.setVisible(visible);
+            setOverlayShown(visible);
+            if (visible) refresh.start();
+            else refresh.stop();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format("%-18s %7s %8s %8s %8s", "ms", "count", "p50", "p99", "max"));
+            for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+                Histogram h = e.getValue();
+                lines.add(String.format("%-18s %7d %8.1f %8.1f %8.1f", e.getKey(), h.count(),
+                        h.percentile(0.5) / 1000.0, h.percentile(0.99) / 1000.0, h.max() / 1000.0));
+            }
+            List<Stall> recent = stalls();
+            lines.add("");
+            lines.add("EDT stalls over " + STALL_MS + " ms: " + stallCount());
+            for (int i = 0; i < Math.min(3, recent.size()); i++) {
+                Stall s = recent.get(i);
+                StackTraceElement at = where(s.stack);
+                String where = at == null ? "" : "  at " + at.getClassName().substring(at.getClassName().lastIndexOf('.') + 1)
+                        + "." + at.getMethodName() + ":" + at.getLineNumber();
+                lines.add(String.format("  %6.0f ms  %s%s", s.micros / 1000.0, s.event, where));
+            }
+
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+            FontMetrics fm = g2.getFontMetrics();
+            int w = 0;
+            for (String l : lines) w = Math.max(w, fm.stringWidth(l));
+            int h = lines.size() * fm.getHeight();
+            int x = Math.max(10, getWidth() - w - 20), y = 60;
+            g2.setColor(new Color(0, 0, 0, 170));
+            g2.fillRoundRect(x - 8, y - 6, w + 16, h + 12, 10, 10);
+            g2.setColor(new Color(220, 255, 220));
+            for (int i = 0; i < lines.size(); i++) g2.drawString(lines.get(i), x, y + fm.getAscent() + i * fm.getHeight());
+            g2.dispose();
+        }
+    }
+}
@@ -2,6 +2,12 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -18,136 +24,641 @@ public class MultiThreadDemo extends JFrame {
         boolean isPaused();
     }
 
-    //Панель анімації
-    private static class AnimationPanel extends JPanel {
+    // Клієнт спільного годинника: крок симуляції фіксованої тривалості
+    private interface FrameClient {
+        void step();
+        int stepMs();
+        boolean isPaused();
+        // частка наступного кроку, що вже минула (0..1), для інтерполяції
+        void setAlpha(double alpha);
+        JComponent view();
+    }
 
-        private double time = 0;
+    // Спільний годинник кадрів.
+    // Один потік з фіксованою частотою 60 Гц виконує кроки всіх клієнтів (фіксований крок,
+    // накопичувач часу) і замовляє один прохід малювання для всіх панелей разом,
+    // тож панелі показують той самий момент і не розходяться між собою.
+    // Якщо попередній кадр ще не намальовано, новий відкидається, а симуляція йде далі.
+    private static class FrameScheduler {
+        private static final long FRAME_NANOS = 1_000_000_000L / 60;
+        private static final int MAX_STEPS_PER_FRAME = 5;
+
+        private static class Registration {
+            final FrameClient client;
+            long last;
+            long accumulated;
+
+            Registration(FrameClient client, long now) {
+                this.client = client;
+                this.last = now;
+            }
+        }
 
-        // Частинки
-        private static class Particle {
-            double x, y;
-            double vx, vy;
-            float alpha;
+        private final java.util.List<Registration> registrations = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean framePending = new AtomicBoolean();
+        private ScheduledExecutorService clock;
+        private volatile Thread clockThread;
+
+        public synchronized void register(FrameClient client) {
+            for (Registration r : registrations) {
+                if (r.client == client) return;
+            }
+            registrations.add(new Registration(client, System.nanoTime()));
+            if (clock == null) {
+                clock = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "FrameClock");
+                    t.setDaemon(true);
+                    clockThread = t;
+                    return t;
+                });
+                clock.scheduleAtFixedRate(this::tick, 0, FRAME_NANOS, TimeUnit.NANOSECONDS);
+            }
         }
 
-        private final java.util.List<Particle> particles = new java.util.ArrayList<>();
-        private final int MAX_PARTICLES = 200;
+        public synchronized void unregister(FrameClient client) {
+            registrations.removeIf(r -> r.client == client);
+        }
 
-        public AnimationPanel() {
-            setDoubleBuffered(true);
+        public void setPriority(int prio) {
+            Thread t = clockThread;
+            if (t != null) {
+                t.setPriority(prio);
+            }
         }
 
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
+        private void tick() {
+            try {
+                long now = System.nanoTime();
+                for (Registration r : registrations) {
+                    long elapsed = now - r.last;
+                    r.last = now;
+                    if (r.client.isPaused()) {
+                        continue;
+                    }
+                    long dt = Math.max(1, r.client.stepMs()) * 1_000_000L;
+                    r.accumulated += elapsed;
+                    int steps = 0;
+                    while (r.accumulated >= dt && steps < MAX_STEPS_PER_FRAME) {
+                        r.client.step();
+                        r.accumulated -= dt;
+                        steps++;
+                    }
+                    // під навантаженням відставання відкидаємо, щоб не наздоганяти його вічно
+                    if (r.accumulated >= dt) {
+                        r.accumulated %= dt;
+                    }
+                    r.client.setAlpha(r.accumulated / (double) dt);
+                }
 
-            Graphics2D g2 = (Graphics2D) g.create();
-            int w = getWidth();
-            int h = getHeight();
+                if (registrations.isEmpty()) {
+                    return;
+                }
+                if (!framePending.compareAndSet(false, true)) {
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    try {
+                        for (Registration r : registrations) {
+                            JComponent v = r.client.view();
+                            v.paintImmediately(0, 0, v.getWidth(), v.getHeight());
+                        }
+                    } finally {
+                        framePending.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // виняток зупинив би scheduleAtFixedRate назавжди
+                e.printStackTrace();
+            }
+        }
+    }
 
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    // Один кадр симуляції: частинки як структура масивів і висоти хвилі шуму.
+    // Кадр читають і пишуть лише під його монітором.
+    private static class SimulationFrame {
+        float[] x = new float[0], y = new float[0];
+        float[] vx = new float[0], vy = new float[0];
+        float[] alpha = new float[0];
+        int count = 0;
+        double time = 0;
+        // висоти хвилі в цьому кадрі та в попередньому, для інтерполяції
+        float[] wave = new float[0];
+        float[] prevWave = new float[0];
+
+        void ensureCapacity(int capacity) {
+            if (x.length < capacity) {
+                x = java.util.Arrays.copyOf(x, capacity);
+                y = java.util.Arrays.copyOf(y, capacity);
+                vx = java.util.Arrays.copyOf(vx, capacity);
+                vy = java.util.Arrays.copyOf(vy, capacity);
+                alpha = java.util.Arrays.copyOf(alpha, capacity);
+            }
+        }
 
-            GradientPaint gp = new GradientPaint(
-                    0, 0, new Color(10, 10, 25),
-                    0, h, new Color(0, 40, 80)
-            );
-            g2.setPaint(gp);
-            g2.fillRect(0, 0, w, h);
+        void clear() {
+            count = 0;
+            time = 0;
+            java.util.Arrays.fill(wave, 0f);
+            java.util.Arrays.fill(prevWave, 0f);
+        }
+    }
 
-            //Фрактальні хвилі
-            for (int x = 0; x < w; x++) {
+    // Симуляція частинок і хвилі з подвійною буферизацією.
+    // Крок читає передній кадр і пише наступний у задній, частинки діляться на шматки,
+    // які рахуються паралельно в ForkJoinPool, після чого кадри міняються місцями.
+    // EDT малює лише передній, уже готовий кадр. Виживші частинки шматка стискаються
+    // до його початку, а потім шматки зсуваються впритул один до одного.
+    private static class ParticleSimulation {
+        static final double TIME_STEP = 0.05;
+        static final float FADE_PER_STEP = 0.01f;
+        private static final int CHUNK = 8192;
+
+        private volatile SimulationFrame front = new SimulationFrame();
+        private SimulationFrame back = new SimulationFrame();
+        private volatile int capacity;
+        private int[] kept = new int[1];
+
+        ParticleSimulation(int capacity) {
+            this.capacity = capacity;
+        }
 
-                double fx = x / 40.0;
+        SimulationFrame front() {
+            return front;
+        }
 
-                double noise =
-                        Math.sin(fx + time * 1.5) * 20 +
-                                Math.sin(fx * 1.3 + time * 0.9) * 15 +
-                                Math.sin(fx * 0.7 + time * 2.5) * 10;
+        int getCapacity() {
+            return capacity;
+        }
 
-                int y = (int)(h / 2 + noise);
+        // новий ліміт діє з наступного кроку
+        void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void clear() {
+            for (SimulationFrame f : new SimulationFrame[]{front, back}) {
+                synchronized (f) {
+                    f.clear();
+                }
+            }
+        }
+
+        synchronized void step(int w, int h) {
+            SimulationFrame src = front;
+            SimulationFrame dst = back;
+            synchronized (dst) {
+                int cap = capacity;
+                dst.ensureCapacity(cap);
+                dst.time = src.time + TIME_STEP;
+                double time = dst.time;
+
+                int n = Math.min(src.count, cap);
+                int chunks = (n + CHUNK - 1) / CHUNK;
+                if (kept.length < chunks) {
+                    kept = new int[chunks];
+                }
+                int[] kept = this.kept;
+                if (chunks > 1) {
+                    java.util.stream.IntStream.range(0, chunks).parallel().forEach(c ->
+                            kept[c] = update(src, dst, c * CHUNK, Math.min(n, (c + 1) * CHUNK), time));
+                } else if (chunks == 1) {
+                    kept[0] = update(src, dst, 0, n, time);
+                }
+                int count = chunks > 0 ? kept[0] : 0;
+                for (int c = 1; c < chunks; c++) {
+                    int from = c * CHUNK;
+                    System.arraycopy(dst.x, from, dst.x, count, kept[c]);
+                    System.arraycopy(dst.y, from, dst.y, count, kept[c]);
+                    System.arraycopy(dst.vx, from, dst.vx, count, kept[c]);
+                    System.arraycopy(dst.vy, from, dst.vy, count, kept[c]);
+                    System.arraycopy(dst.alpha, from, dst.alpha, count, kept[c]);
+                    count += kept[c];
+                }
+                dst.count = count;
+                spawn(dst, cap, w / 2f, h / 2f);
+
+                // поле шуму: висота хвилі для кожного стовпця
+                if (dst.prevWave.length != src.wave.length) {
+                    dst.prevWave = new float[src.wave.length];
+                }
+                System.arraycopy(src.wave, 0, dst.prevWave, 0, src.wave.length);
+                if (dst.wave.length != w) {
+                    dst.wave = new float[Math.max(0, w)];
+                }
+                for (int x = 0; x < w; x++) {
+                    double fx = x / 40.0;
+                    dst.wave[x] = (float) (Math.sin(fx + time * 1.5) * 20 +
+                            Math.sin(fx * 1.3 + time * 0.9) * 15 +
+                            Math.sin(fx * 0.7 + time * 2.5) * 10);
+                }
+            }
+            back = src;
+            front = dst;
+        }
 
-                g2.setColor(new Color(120, 160, 255, 160));
-                g2.fillOval(x, y, 2, 2);
+        // Оновлює src[from, to) у dst, виживші стискає до from; повертає їх кількість
+        private static int update(SimulationFrame src, SimulationFrame dst, int from, int to, double time) {
+            int out = from;
+            for (int i = from; i < to; i++) {
+                float a = src.alpha[i] - FADE_PER_STEP;
+                if (a <= 0) {
+                    continue;
+                }
+                // шум руху
+                float vx = src.vx[i] + (float) (Math.sin(time + src.x[i] * 0.01) * 0.05);
+                float vy = src.vy[i] + (float) (Math.cos(time * 0.7 + src.y[i] * 0.01) * 0.05);
+                dst.x[out] = src.x[i] + vx;
+                dst.y[out] = src.y[i] + vy;
+                dst.vx[out] = vx;
+                dst.vy[out] = vy;
+                dst.alpha[out] = a;
+                out++;
+            }
+            return out - from;
+        }
+
+        // Стільки нових за крок, щоб за час життя частинки набрався повний ліміт
+        private static void spawn(SimulationFrame f, int capacity, float cx, float cy) {
+            int n = Math.min(Math.max(1, Math.round(capacity * FADE_PER_STEP)), capacity - f.count);
+            for (int k = 0; k < n; k++) {
+                int i = f.count++;
+                double angle = Math.random() * Math.PI * 2;
+                double speed = 1 + Math.random() * 2;
+                f.x[i] = cx;
+                f.y[i] = cy;
+                f.vx[i] = (float) (Math.cos(angle) * speed);
+                f.vy[i] = (float) (Math.sin(angle) * speed);
+                f.alpha[i] = 1.0f;
             }
+        }
+    }
+
+    // Режими малювання панелі анімації
+    private enum RenderMode {
+        JAVA2D("Java2D"),
+        RASTER("Растр (DataBufferInt)");
+
+        private final String title;
 
-            spawnParticles(w, h);
-            updateParticles(w, h);
+        RenderMode(String title) {
+            this.title = title;
+        }
 
-            for (Particle p : particles) {
-                int size = 6;
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
 
-                g2.setColor(new Color(255, 200, 150, (int)(p.alpha * 255)));
-                g2.fillOval((int)p.x, (int)p.y, size, size);
+    // Растровий рендерер: пише пікселі кадру просто в DataBufferInt зображення
+    // з програмним альфа-змішуванням і копіює його на екран одним drawImage.
+    // Кружки беруться з масок покриття, порахованих заздалегідь з 4x4 підвибіркою,
+    // тож згладжування лишається, а Java2D на кожну точку не викликається. Лише EDT.
+    private static class RasterRenderer {
+        private static final int PARTICLE_RGB = 0xFFC896;   // 255, 200, 150
+        private static final int WAVE_RGB = 0x78A0FF;       // 120, 160, 255
+        private static final int WAVE_ALPHA = 160;
+        private static final int[] FIGURE_RGB = new int[AnimationPanel.FIGURE_POINTS];
+        private static final int[] FIGURE_ALPHA = new int[AnimationPanel.FIGURE_POINTS];
+        private static final int[] PARTICLE_MASK = discMask(6);
+        private static final int[] FIGURE_MASK = discMask(7);
+        static {
+            for (int i = 0; i < AnimationPanel.FIGURE_POINTS; i++) {
+                Color c = AnimationPanel.FIGURE_COLORS[i];
+                FIGURE_RGB[i] = c.getRGB() & 0xFFFFFF;
+                FIGURE_ALPHA[i] = c.getAlpha();
+            }
+        }
+
+        private BufferedImage image;
+        private int[] pixels;
+        private int[] background;
+        private int width, height;
+
+        void render(Graphics2D g2, SimulationFrame f, double back, double time, int w, int h) {
+            ensureImage(w, h);
+            System.arraycopy(background, 0, pixels, 0, background.length);
+
+            //Фрактальні хвилі: стрічка 2 px, сусідні стовпці з'єднані по вертикалі
+            int waveWidth = Math.min(w, f.wave.length);
+            boolean withPrev = f.prevWave.length >= waveWidth;
+            int prevY = 0;
+            for (int x = 0; x < waveWidth; x++) {
+                double noise = withPrev ? f.wave[x] - (f.wave[x] - f.prevWave[x]) * back : f.wave[x];
+                int y = (int)(h / 2 + noise);
+                int from = x == 0 ? y : Math.min(y, prevY + 1);
+                int to = x == 0 ? y + 1 : Math.max(y + 1, prevY);
+                for (int yy = Math.max(0, from); yy <= Math.min(h - 1, to); yy++) {
+                    int i = yy * w + x;
+                    pixels[i] = blend(pixels[i], WAVE_RGB, WAVE_ALPHA);
+                }
+                prevY = y;
+            }
+
+            for (int i = 0; i < f.count; i++) {
+                drawDisc((int)(f.x[i] - f.vx[i] * back), (int)(f.y[i] - f.vy[i] * back),
+                        PARTICLE_MASK, 6, PARTICLE_RGB, (int)(f.alpha[i] * 255));
             }
 
             //Світлова фігура
             int cx = w / 2;
             int cy = h / 2;
-
-            for (int i = 0; i < 200; i++) {
+            for (int i = 0; i < AnimationPanel.FIGURE_POINTS; i++) {
                 double t = time * 1.4 + i * 0.08;
-
                 int x = cx + (int)(Math.sin(t * 2) * 160);
                 int y = cy + (int)(Math.sin(t * 3 + 0.5) * 110);
+                drawDisc(x, y, FIGURE_MASK, 7, FIGURE_RGB[i], FIGURE_ALPHA[i]);
+            }
+
+            g2.drawImage(image, 0, 0, null);
+        }
 
-                float k = i / 200f;
-                g2.setColor(new Color(
+        // Кружок як fillOval(x0, y0, size, size): покриття маски, помножене на прозорість
+        private void drawDisc(int x0, int y0, int[] mask, int size, int rgb, int alpha) {
+            if (alpha <= 0 || x0 >= width || y0 >= height || x0 + size <= 0 || y0 + size <= 0) {
+                return;
+            }
+            int dxFrom = Math.max(0, -x0), dxTo = Math.min(size, width - x0);
+            int dyFrom = Math.max(0, -y0), dyTo = Math.min(size, height - y0);
+            for (int dy = dyFrom; dy < dyTo; dy++) {
+                int row = (y0 + dy) * width + x0;
+                for (int dx = dxFrom; dx < dxTo; dx++) {
+                    int a = mask[dy * size + dx] * alpha >> 8;
+                    if (a > 0) {
+                        pixels[row + dx] = blend(pixels[row + dx], rgb, a);
+                    }
+                }
+            }
+        }
+
+        // dst * (1 - a) + src * a для двох каналів разом (R і B) та окремо G; a у 0..256
+        private static int blend(int dst, int src, int a) {
+            int na = 256 - a;
+            int rb = ((src & 0xFF00FF) * a + (dst & 0xFF00FF) * na) >>> 8;
+            int g = ((src & 0x00FF00) * a + (dst & 0x00FF00) * na) >>> 8;
+            return (rb & 0xFF00FF) | (g & 0x00FF00);
+        }
+
+        // Частка кожного пікселя квадрата size x size, що лежить у вписаному колі, у 0..256
+        private static int[] discMask(int size) {
+            int[] mask = new int[size * size];
+            double r = size / 2.0;
+            for (int py = 0; py < size; py++) {
+                for (int px = 0; px < size; px++) {
+                    int inside = 0;
+                    for (int sy = 0; sy < 4; sy++) {
+                        for (int sx = 0; sx < 4; sx++) {
+                            double dx = px + (sx + 0.5) / 4 - r;
+                            double dy = py + (sy + 0.5) / 4 - r;
+                            if (dx * dx + dy * dy <= r * r) {
+                                inside++;
+                            }
+                        }
+                    }
+                    mask[py * size + px] = inside * 16;
+                }
+            }
+            return mask;
+        }
+
+        private void ensureImage(int w, int h) {
+            if (image != null && width == w && height == h) {
+                return;
+            }
+            width = w;
+            height = h;
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            pixels = ((java.awt.image.DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            Graphics2D bg = image.createGraphics();
+            bg.setPaint(new GradientPaint(
+                    0, 0, new Color(10, 10, 25),
+                    0, h, new Color(0, 40, 80)
+            ));
+            bg.fillRect(0, 0, w, h);
+            bg.dispose();
+            background = pixels.clone();
+        }
+    }
+
+    //Панель анімації
+    private static class AnimationPanel extends JPanel {
+
+        private volatile double alpha = 0;
+
+        private RenderMode renderMode = RenderMode.JAVA2D;
+        private final RasterRenderer raster = new RasterRenderer();
+
+        // Лічильник кадрів: рядок оновлюється раз на секунду (лише EDT)
+        private static final Font FPS_FONT = new Font(Font.MONOSPACED, Font.BOLD, 12);
+        private long fpsStart = System.nanoTime();
+        private int fpsFrames = 0;
+        private long fpsPaintNanos = 0;
+        private String fpsText = "";
+
+        // Частинки
+        private static final int DEFAULT_MAX_PARTICLES = 200;
+        private final ParticleSimulation simulation = new ParticleSimulation(DEFAULT_MAX_PARTICLES);
+
+        // Палітра: усі кольори кадру створюються один раз
+        private static final int FIGURE_POINTS = 200;
+        private static final Color WAVE_COLOR = new Color(120, 160, 255, 160);
+        private static final Color[] PARTICLE_COLORS = new Color[256];
+        private static final Color[] FIGURE_COLORS = new Color[FIGURE_POINTS];
+        static {
+            for (int a = 0; a < 256; a++) {
+                PARTICLE_COLORS[a] = new Color(255, 200, 150, a);
+            }
+            for (int i = 0; i < FIGURE_POINTS; i++) {
+                float k = i / (float) FIGURE_POINTS;
+                FIGURE_COLORS[i] = new Color(
                         (int)(200 + 55 * k),
                         (int)(120 + 135 * k),
                         255,
                         (int)(255 * k)
-                ));
-
-                g2.fillOval(x, y, 7, 7);
+                );
             }
+        }
+
+        // Кеш (лише EDT): фон перемальовується тільки при зміні розміру,
+        // крапки заздалегідь згладжені у спрайти, масиви хвилі ростуть лише зі шириною
+        private BufferedImage background;
+        private BufferedImage[] particleSprites;
+        private BufferedImage[] figureSprites;
+        private int[] waveYs = new int[0];
+        private final java.awt.geom.Path2D.Float wavePath = new java.awt.geom.Path2D.Float();
+
+        public AnimationPanel() {
+            setDoubleBuffered(true);
+        }
 
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            // готовий кадр; наступний тим часом рахується в задньому буфері
+            int w = getWidth();
+            int h = getHeight();
+            if (w <= 0 || h <= 0) {
+                return;
+            }
+            long start = System.nanoTime();
+            int count;
+            Graphics2D g2 = (Graphics2D) g.create();
+            SimulationFrame f = simulation.front();
+            synchronized (f) {
+                // інтерполяція між попереднім і поточним кроком
+                double back = 1 - alpha;
+                double time = f.time - ParticleSimulation.TIME_STEP * back;
+                count = f.count;
+                if (renderMode == RenderMode.RASTER) {
+                    raster.render(g2, f, back, time, w, h);
+                } else {
+                    paintJava2D(g2, f, back, time, w, h);
+                }
+            }
+            paintFps(g2, System.nanoTime() - start, count);
             g2.dispose();
         }
 
+        private void paintFps(Graphics2D g2, long paintNanos, int particles) {
+            fpsFrames++;
+            fpsPaintNanos += paintNanos;
+            long now = System.nanoTime();
+            if (now - fpsStart >= 1_000_000_000L) {
+                fpsText = String.format("%s  FPS: %.0f  кадр: %.1f мс  частинок: %d",
+                        renderMode, fpsFrames * 1e9 / (now - fpsStart),
+                        fpsPaintNanos / 1e6 / fpsFrames, particles);
+                fpsStart = now;
+                fpsFrames = 0;
+                fpsPaintNanos = 0;
+            }
+            Insets in = getInsets();
+            g2.setFont(FPS_FONT);
+            g2.setColor(Color.WHITE);
+            g2.drawString(fpsText, in.left + 6, in.top + 16);
+        }
 
-        // Логіка частинок
-        private void spawnParticles(int w, int h) {
-            if (particles.size() < MAX_PARTICLES) {
-                Particle p = new Particle();
-                p.x = w / 2;
-                p.y = h / 2;
+        private void paintJava2D(Graphics2D g2, SimulationFrame f, double back, double time, int w, int h) {
+            ensureCaches(w, h);
+            g2.drawImage(background, 0, 0, null);
 
-                double angle = Math.random() * Math.PI * 2;
-                double speed = 1 + Math.random() * 2;
+            //Фрактальні хвилі: один многокутник-стрічка завтовшки 2 px замість кружка на кожен стовпець
+            // (заливка обходиться без побудови контуру товстої лінії)
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            int waveWidth = Math.min(w, f.wave.length);
+            boolean withPrev = f.prevWave.length >= waveWidth;
+            for (int x = 0; x < waveWidth; x++) {
 
-                p.vx = Math.cos(angle) * speed;
-                p.vy = Math.sin(angle) * speed;
+                double noise = withPrev ? f.wave[x] - (f.wave[x] - f.prevWave[x]) * back : f.wave[x];
 
-                p.alpha = 1.0f;
-                particles.add(p);
+                waveYs[x] = (int)(h / 2 + noise);
             }
-        }
+            wavePath.reset();
+            if (waveWidth > 0) {
+                wavePath.moveTo(0, waveYs[0]);
+                for (int x = 1; x < waveWidth; x++) {
+                    wavePath.lineTo(x, waveYs[x]);
+                }
+                for (int x = waveWidth - 1; x >= 0; x--) {
+                    wavePath.lineTo(x, waveYs[x] + 2);
+                }
+                wavePath.closePath();
+            }
+            g2.setColor(WAVE_COLOR);
+            g2.fill(wavePath);
 
-        private void updateParticles(int w, int h) {
-            for (Particle p : particles) {
+            for (int i = 0; i < f.count; i++) {
+                g2.drawImage(particleSprites[(int)(f.alpha[i] * 255)],
+                        (int)(f.x[i] - f.vx[i] * back), (int)(f.y[i] - f.vy[i] * back), null);
+            }
 
-                // шум руху
-                p.vx += Math.sin(time + p.x * 0.01) * 0.05;
-                p.vy += Math.cos(time * 0.7 + p.y * 0.01) * 0.05;
+            //Світлова фігура
+            int cx = w / 2;
+            int cy = h / 2;
 
-                p.x += p.vx;
-                p.y += p.vy;
+            for (int i = 0; i < FIGURE_POINTS; i++) {
+                double t = time * 1.4 + i * 0.08;
+
+                int x = cx + (int)(Math.sin(t * 2) * 160);
+                int y = cy + (int)(Math.sin(t * 3 + 0.5) * 110);
 
-                // затухання
-                p.alpha -= 0.01f;
+                g2.drawImage(figureSprites[i], x, y, null);
+            }
+        }
+
+        private void ensureCaches(int w, int h) {
+            if (background == null || background.getWidth() != w || background.getHeight() != h) {
+                background = createCompatible(w, h, Transparency.OPAQUE);
+                Graphics2D bg = background.createGraphics();
+                bg.setPaint(new GradientPaint(
+                        0, 0, new Color(10, 10, 25),
+                        0, h, new Color(0, 40, 80)
+                ));
+                bg.fillRect(0, 0, w, h);
+                bg.dispose();
             }
+            if (waveYs.length < w) {
+                waveYs = new int[w];
+            }
+            if (particleSprites == null) {
+                particleSprites = new BufferedImage[PARTICLE_COLORS.length];
+                for (int a = 0; a < particleSprites.length; a++) {
+                    particleSprites[a] = createDot(PARTICLE_COLORS[a], 6);
+                }
+                figureSprites = new BufferedImage[FIGURE_POINTS];
+                for (int i = 0; i < FIGURE_POINTS; i++) {
+                    figureSprites[i] = createDot(FIGURE_COLORS[i], 7);
+                }
+            }
+        }
+
+        // Згладжений кружок, як fillOval(x, y, size, size), намальований один раз
+        private BufferedImage createDot(Color color, int size) {
+            BufferedImage img = createCompatible(size + 1, size + 1, Transparency.TRANSLUCENT);
+            Graphics2D dg = img.createGraphics();
+            dg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            dg.setColor(color);
+            dg.fillOval(0, 0, size, size);
+            dg.dispose();
+            return img;
+        }
 
-            particles.removeIf(p -> p.alpha <= 0);
+        // Сумісне з екраном зображення копіюється найшвидше; без екрана звичайне ARGB
+        private BufferedImage createCompatible(int w, int h, int transparency) {
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            if (gc != null) {
+                return gc.createCompatibleImage(w, h, transparency);
+            }
+            return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
         }
 
+
         public void step() {
-            time += 0.05;
+            simulation.step(getWidth(), getHeight());
+        }
+
+        public int getMaxParticles() {
+            return simulation.getCapacity();
+        }
+
+        public void setMaxParticles(int max) {
+            simulation.setCapacity(max);
+        }
+
+        public void setAlpha(double alpha) {
+            this.alpha = alpha;
+        }
+
+        public void setRenderMode(RenderMode mode) {
+            renderMode = mode;
+            fpsStart = System.nanoTime();
+            fpsFrames = 0;
+            fpsPaintNanos = 0;
             repaint();
         }
 
         public void reset() {
-            time = 0;
-            particles.clear();
+            alpha = 0;
+            simulation.clear();
             repaint();
         }
 
@@ -158,30 +669,42 @@ public class MultiThreadDemo extends JFrame {
     private static class MarqueePanel extends JPanel {
         private String text = "  Мультипотоковий застосунок – приклад біжучого рядка  ";
         private int xOffset = 0;
+        private int prevOffset = 0;
+        private volatile double alpha = 0;
 
-        public void step() {
+        public synchronized void step() {
+            prevOffset = xOffset;
             xOffset -= 3;
             int textWidth = getFontMetrics(getFont()).stringWidth(text);
             if (xOffset < -textWidth) {
                 xOffset = getWidth();
+                prevOffset = xOffset;
             }
         }
 
+        public void setAlpha(double alpha) {
+            this.alpha = alpha;
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
             Graphics2D g2 = (Graphics2D) g.create();
             g2.setColor(Color.BLACK);
             int y = getHeight() / 2 + getFontMetrics(getFont()).getAscent() / 2 - 2;
-            g2.drawString(text, xOffset, y);
+            int x;
+            synchronized (this) {
+                x = (int) Math.round(prevOffset + (xOffset - prevOffset) * alpha);
+            }
+            g2.drawString(text, x, y);
             g2.dispose();
         }
     }
 
-    //Воркер анімації
-    private class AnimationWorker implements Runnable, ControlledWorker {
+    //Воркер анімації: кроки виконує спільний годинник кадрів, затримка = тривалість кроку
+    private class AnimationWorker implements FrameClient, ControlledWorker {
         private final AnimationPanel panel;
-        private Thread thread;
+        private final FrameScheduler scheduler;
         private volatile boolean running = false;
         private volatile boolean paused = false;
         private volatile int delayMs = 40;
@@ -191,61 +714,63 @@ public class MultiThreadDemo extends JFrame {
         private final Flag frameFlag;
 
         public AnimationWorker(AnimationPanel panel,
+                               FrameScheduler scheduler,
                                ReentrantLock syncLock,
                                Condition frameCondition,
                                Flag frameFlag) {
             this.panel = panel;
+            this.scheduler = scheduler;
             this.syncLock = syncLock;
             this.frameCondition = frameCondition;
             this.frameFlag = frameFlag;
         }
 
         @Override
-        public void run() {
-            while (running) {
-                if (!paused) {
-                    panel.step();
-                    panel.repaint();
+        public void step() {
+            panel.step();
+
+            syncLock.lock();
+            try {
+                frameFlag.value = true;
+                frameCondition.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+        }
 
-                    syncLock.lock();
-                    try {
-                        frameFlag.value = true;
-                        frameCondition.signalAll();
-                    } finally {
-                        syncLock.unlock();
-                    }
-                }
+        @Override
+        public int stepMs() {
+            return delayMs;
+        }
 
-                try {
-                    Thread.sleep(delayMs);
-                } catch (InterruptedException e) {
-                }
-            }
+        @Override
+        public void setAlpha(double alpha) {
+            panel.setAlpha(alpha);
+        }
+
+        @Override
+        public JComponent view() {
+            return panel;
         }
 
         @Override
         public void requestStart() {
-            if (thread != null && thread.isAlive()) {
+            if (running) {
                 return;
             }
-            
+
             panel.reset();
 
             running = true;
             paused = false;
-
-            thread = new Thread(this, "AnimationThread");
-            thread.setDaemon(true);
-            thread.start();
+            scheduler.register(this);
         }
 
 
         @Override
         public void requestStop() {
             running = false;
-            if (thread != null) {
-                thread.interrupt();
-            }
+            scheduler.unregister(this);
         }
 
         @Override
@@ -259,11 +784,10 @@ public class MultiThreadDemo extends JFrame {
             this.delayMs = delayMs;
         }
 
+        // пріоритет має спільний потік годинника
         @Override
         public void setPriority(int prio) {
-            if (thread != null) {
-                thread.setPriority(prio);
-            }
+            scheduler.setPriority(prio);
         }
 
         @Override
@@ -425,50 +949,53 @@ public class MultiThreadDemo extends JFrame {
         }
     }
 
-    //Воркер біжучого рядка
-    private class MarqueeWorker implements Runnable, ControlledWorker {
+    //Воркер біжучого рядка: кроки виконує спільний годинник кадрів
+    private class MarqueeWorker implements FrameClient, ControlledWorker {
         private final MarqueePanel panel;
-        private Thread thread;
+        private final FrameScheduler scheduler;
         private volatile boolean running = false;
         private volatile boolean paused = false;
         private volatile int delayMs = 40;
 
-        public MarqueeWorker(MarqueePanel panel) {
+        public MarqueeWorker(MarqueePanel panel, FrameScheduler scheduler) {
             this.panel = panel;
+            this.scheduler = scheduler;
         }
 
         @Override
-        public void run() {
-            while (running) {
-                if (!paused) {
-                    panel.step();
-                    panel.repaint();
-                }
-                try {
-                    Thread.sleep(delayMs);
-                } catch (InterruptedException e) {
-                }
-            }
+        public void step() {
+            panel.step();
+        }
+
+        @Override
+        public int stepMs() {
+            return delayMs;
+        }
+
+        @Override
+        public void setAlpha(double alpha) {
+            panel.setAlpha(alpha);
+        }
+
+        @Override
+        public JComponent view() {
+            return panel;
         }
 
         @Override
         public void requestStart() {
-            if (thread != null && thread.isAlive()) {
+            if (running) {
                 return;
             }
             running = true;
             paused = false;
-            thread = new Thread(this, "MarqueeThread");
-            thread.setDaemon(true);
-            thread.start();
+            scheduler.register(this);
         }
 
         @Override
         public void requestStop() {
             running = false;
-            if (thread != null) {
-                thread.interrupt();
-            }
+            scheduler.unregister(this);
         }
 
         @Override
@@ -482,11 +1009,10 @@ public class MultiThreadDemo extends JFrame {
             this.delayMs = delayMs;
         }
 
+        // пріоритет має спільний потік годинника
         @Override
         public void setPriority(int prio) {
-            if (thread != null) {
-                thread.setPriority(prio);
-            }
+            scheduler.setPriority(prio);
         }
 
         @Override
@@ -512,12 +1038,14 @@ public class MultiThreadDemo extends JFrame {
     private final Condition frameCondition = syncLock.newCondition();
     private final Flag frameFlag = new Flag();
 
+    private final FrameScheduler frameScheduler = new FrameScheduler();
+
     private final AnimationWorker animationWorker =
-            new AnimationWorker(animationPanel, syncLock, frameCondition, frameFlag);
+            new AnimationWorker(animationPanel, frameScheduler, syncLock, frameCondition, frameFlag);
     private final ComputationWorker computationWorker =
             new ComputationWorker(computationArea, syncLock, frameCondition, frameFlag);
     private final MarqueeWorker marqueeWorker =
-            new MarqueeWorker(marqueePanel);
+            new MarqueeWorker(marqueePanel, frameScheduler);
 
     public MultiThreadDemo() {
         super("Демонстрація багатопотокового застосунку");
@@ -555,7 +1083,19 @@ public class MultiThreadDemo extends JFrame {
         panel.setLayout(new GridLayout(3, 1, 5, 5));
         panel.setBorder(BorderFactory.createTitledBorder("Керування потоками"));
 
-        panel.add(createControlsFor("Потік анімації", animationWorker));
+        JPanel animationControls = createControlsFor("Потік анімації", animationWorker);
+        JSpinner particlesSpinner = new JSpinner(new SpinnerNumberModel(
+                animationPanel.getMaxParticles(), 10, 500_000, 1000));
+        particlesSpinner.addChangeListener(e ->
+                animationPanel.setMaxParticles((Integer) particlesSpinner.getValue()));
+        animationControls.add(new JLabel("Частинок:"));
+        animationControls.add(particlesSpinner);
+        JComboBox<RenderMode> renderBox = new JComboBox<>(RenderMode.values());
+        renderBox.addActionListener(e ->
+                animationPanel.setRenderMode((RenderMode) renderBox.getSelectedItem()));
+        animationControls.add(new JLabel("Рендер:"));
+        animationControls.add(renderBox);
+        panel.add(animationControls);
         panel.add(createControlsFor("Потік обчислень", computationWorker));
         panel.add(createControlsFor("Біжучий рядок", marqueeWorker));
 
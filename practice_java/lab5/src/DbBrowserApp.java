@@ -6,8 +6,14 @@ import java.awt.*;
 import java.awt.event.*;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.awt.font.TextAttribute;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
@@ -121,6 +127,21 @@ public class DbBrowserApp {
         }
     }
 
+    // Foreign key metadata helper (one row of PRAGMA foreign_key_list)
+    static class ForeignKeyInfo {
+        String from;
+        String table;
+        String to;
+
+        ForeignKeyInfo(String from, String table, String to) {
+            this.from = from;
+            this.table = table;
+            this.to = to;
+        }
+
+        @Override public String toString() { return from + " → " + table + "(" + to + ")"; }
+    }
+
     // ======================== TREE RENDERER (ICONS) ============================
     static class SchemaTreeRenderer extends DefaultTreeCellRenderer {
         private final Icon dbIcon;
@@ -205,6 +226,361 @@ public class DbBrowserApp {
         }
     }
 
+    // ======================== ER GRAPH (SCHEMA VIEW) ============================
+    static class SchemaGraphPanel extends JPanel {
+        private static final int BOX_W = 200;
+        private static final int GAP_X = 90;
+        private static final int GAP_Y = 70;
+        private static final int LINE_H = 16;
+
+        private final Map<String, List<ForeignKeyInfo>> foreignKeys;
+        private final Map<String, Rectangle> boxes = new LinkedHashMap<>();
+
+        public SchemaGraphPanel(List<String> tables,
+                                Map<String, List<ForeignKeyInfo>> foreignKeys,
+                                Consumer<String> onTableClicked) {
+            this.foreignKeys = foreignKeys;
+            setBackground(Color.WHITE);
+
+            // таблиці розкладаємо сіткою, висота блоку залежить від кількості FK
+            int perRow = Math.max(1, (int) Math.ceil(Math.sqrt(tables.size())));
+            int x = GAP_X / 2, y = GAP_Y / 2, rowHeight = 0, i = 0;
+            for (String t : tables) {
+                int h = LINE_H * (2 + foreignKeys.getOrDefault(t, List.of()).size());
+                boxes.put(t, new Rectangle(x, y, BOX_W, h));
+                rowHeight = Math.max(rowHeight, h);
+                if (++i % perRow == 0) {
+                    x = GAP_X / 2;
+                    y += rowHeight + GAP_Y;
+                    rowHeight = 0;
+                } else {
+                    x += BOX_W + GAP_X;
+                }
+            }
+            int width = GAP_X / 2 + perRow * (BOX_W + GAP_X);
+            setPreferredSize(new Dimension(width, y + rowHeight + GAP_Y));
+
+            addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    for (Map.Entry<String, Rectangle> b : boxes.entrySet()) {
+                        if (b.getValue().contains(e.getPoint())) {
+                            onTableClicked.accept(b.getKey());
+                            return;
+                        }
+                    }
+                }
+            });
+            setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            // зв'язки
+            g2.setColor(new Color(231, 76, 60));
+            for (Map.Entry<String, Rectangle> b : boxes.entrySet()) {
+                for (ForeignKeyInfo fk : foreignKeys.getOrDefault(b.getKey(), List.of())) {
+                    Rectangle target = boxes.get(fk.table);
+                    if (target != null) drawArrow(g2, b.getValue(), target);
+                }
+            }
+
+            // блоки таблиць
+            FontMetrics fm = g2.getFontMetrics();
+            for (Map.Entry<String, Rectangle> b : boxes.entrySet()) {
+                Rectangle r = b.getValue();
+                g2.setColor(new Color(253, 235, 208));
+                g2.fillRoundRect(r.x, r.y, r.width, r.height, 8, 8);
+                g2.setColor(new Color(230, 126, 34));
+                g2.drawRoundRect(r.x, r.y, r.width, r.height, 8, 8);
+                g2.drawLine(r.x, r.y + LINE_H + 2, r.x + r.width, r.y + LINE_H + 2);
+
+                g2.setColor(Color.BLACK);
+                g2.drawString(b.getKey(), r.x + 6, r.y + fm.getAscent() + 1);
+                int ty = r.y + LINE_H + 2 + fm.getAscent() + 1;
+                for (ForeignKeyInfo fk : foreignKeys.getOrDefault(b.getKey(), List.of())) {
+                    g2.drawString(fk.toString(), r.x + 6, ty);
+                    ty += LINE_H;
+                }
+            }
+            g2.dispose();
+        }
+
+        private static void drawArrow(Graphics2D g2, Rectangle from, Rectangle to) {
+            if (from.equals(to)) {
+                // посилання таблиці на саму себе
+                g2.drawArc(from.x + from.width - 15, from.y - 15, 30, 30, -90, 270);
+                return;
+            }
+            Point a = edgePoint(from, to);
+            Point b = edgePoint(to, from);
+            g2.drawLine(a.x, a.y, b.x, b.y);
+
+            double angle = Math.atan2(b.y - a.y, b.x - a.x);
+            int len = 9;
+            int x1 = (int) (b.x - len * Math.cos(angle - Math.PI / 7));
+            int y1 = (int) (b.y - len * Math.sin(angle - Math.PI / 7));
+            int x2 = (int) (b.x - len * Math.cos(angle + Math.PI / 7));
+            int y2 = (int) (b.y - len * Math.sin(angle + Math.PI / 7));
+            g2.fillPolygon(new int[]{b.x, x1, x2}, new int[]{b.y, y1, y2}, 3);
+        }
+
+        // Point on the border of r in the direction of other's centre
+        private static Point edgePoint(Rectangle r, Rectangle other) {
+            double cx = r.getCenterX(), cy = r.getCenterY();
+            double dx = other.getCenterX() - cx, dy = other.getCenterY() - cy;
+            if (dx == 0 && dy == 0) return new Point((int) cx, (int) cy);
+            double sx = dx == 0 ? Double.MAX_VALUE : (r.width / 2.0) / Math.abs(dx);
+            double sy = dy == 0 ? Double.MAX_VALUE : (r.height / 2.0) / Math.abs(dy);
+            double s = Math.min(sx, sy);
+            return new Point((int) (cx + dx * s), (int) (cy + dy * s));
+        }
+    }
+
+    // ======================== LATENCY MONITOR ==============================
+    // Скорочена копія lab3/LatencyMonitor: це окремий однофайловий застосунок,
+    // тож без спільної залежності, а також без JFR, сторожового потоку й стеків.
+    // Гістограми затримок за назвою операції: мікросекунди в лог-лінійних
+    // кошиках (до 128 мкс точно, далі 64 на степінь двійки, похибка < 1.6%).
+    // Поки видно overlay, поверх системної черги подій стоїть своя, що міряє
+    // кожну подію EDT; подія довша за STALL_MS – зависання. Без overlay черги немає.
+    static class LatencyMonitor {
+        static final long STALL_MS = 100;
+        private static final long STALL_NANOS = STALL_MS * 1_000_000;
+        private static final int MAX_STALLS = 50;
+
+        private final Map<String, Histogram> histograms = new java.util.concurrent.ConcurrentSkipListMap<>();
+        private final java.util.Deque<Stall> stalls = new java.util.ArrayDeque<>(); // найновіші спереду
+        private int stallCount = 0;
+
+        private TimedEventQueue queue;   // лише на EDT; є, поки видно overlay
+
+        long start() { return System.nanoTime(); }
+
+        void record(String name, long startNanos) {
+            long micros = Math.max(0, (System.nanoTime() - startNanos) / 1000);
+            histograms.computeIfAbsent(name, n -> new Histogram()).record(micros);
+        }
+
+        void reset() {
+            histograms.clear();
+            synchronized (stalls) {
+                stalls.clear();
+                stallCount = 0;
+            }
+        }
+
+        static class Histogram {
+            private static final int SUB_BITS = 7;
+            private static final int SUB = 1 << SUB_BITS;
+            private static final int HALF = SUB / 2;
+
+            private final long[] counts = new long[SUB + (64 - SUB_BITS) * HALF];
+            private long count, max;
+
+            synchronized void record(long value) {
+                counts[index(value)]++;
+                count++;
+                max = Math.max(max, value);
+            }
+
+            synchronized long count() { return count; }
+            synchronized long max() { return max; }
+
+            // верхня межа кошика, в якому p-квантиль (0..1)
+            synchronized long percentile(double p) {
+                if (count == 0) return 0;
+                long rank = Math.max(1, (long) Math.ceil(p * count));
+                long seen = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    seen += counts[i];
+                    if (seen >= rank) return Math.min(max, highest(i));
+                }
+                return max;
+            }
+
+            private static int index(long v) {
+                if (v < SUB) return (int) v;
+                int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+                return SUB + (shift - 1) * HALF + (int) (v >>> shift) - HALF;
+            }
+
+            private static long highest(int index) {
+                if (index < SUB) return index;
+                int shift = (index - SUB) / HALF + 1;
+                long sub = (index - SUB) % HALF + HALF;
+                return ((sub + 1) << shift) - 1;
+            }
+        }
+
+        static class Stall {
+            final long time;
+            final long micros;
+            final String event;
+
+            Stall(long time, long micros, String event) {
+                this.time = time;
+                this.micros = micros;
+                this.event = event;
+            }
+        }
+
+        List<Stall> stalls() {
+            synchronized (stalls) {
+                return new ArrayList<>(stalls);
+            }
+        }
+
+        int stallCount() {
+            synchronized (stalls) {
+                return stallCount;
+            }
+        }
+
+        // EDT; своя черга подій стоїть, лише поки видно overlay
+        private void setTiming(boolean on) {
+            if (on && queue == null) {
+                queue = new TimedEventQueue();
+                Toolkit.getDefaultToolkit().getSystemEventQueue().push(queue);
+            } else if (!on && queue != null) {
+                queue.remove();
+                queue = null;
+            }
+        }
+
+        private class TimedEventQueue extends EventQueue {
+            // модальні діалоги крутять вкладений цикл подій усередині зовнішньої події – це не зависання
+            private int depth = 0;
+            private boolean pumped = false;
+
+            // події, що ще тут, переходять у чергу нижче
+            void remove() {
+                pop();
+            }
+
+            @Override
+            protected void dispatchEvent(AWTEvent event) {
+                boolean outerPumped = pumped || depth > 0;
+                pumped = false;
+                depth++;
+                long start = System.nanoTime();
+                try {
+                    super.dispatchEvent(event);
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    depth--;
+                    if (!pumped) {
+                        record(kind(event), start);
+                        if (nanos >= STALL_NANOS) stall(event, nanos);
+                    }
+                    pumped = outerPumped;
+                }
+            }
+        }
+
+        private void stall(AWTEvent event, long nanos) {
+            String name = event.getClass().getSimpleName();
+            if (event instanceof KeyEvent) name += " " + KeyEvent.getKeyText(((KeyEvent) event).getKeyCode());
+            synchronized (stalls) {
+                stallCount++;
+                stalls.addFirst(new Stall(System.currentTimeMillis(), nanos / 1000, name));
+                if (stalls.size() > MAX_STALLS) stalls.removeLast();
+            }
+        }
+
+        private static String kind(AWTEvent e) {
+            if (e instanceof KeyEvent) return "edt.key";
+            if (e instanceof MouseEvent) return "edt.mouse";
+            if (e instanceof PaintEvent) return "edt.paint";
+            if (e instanceof InvocationEvent) return "edt.invocation";
+            return "edt.other";
+        }
+
+        // звіт у JSON: зведення гістограм (мкс) і останні зависання
+        String toJson() {
+            StringBuilder sb = new StringBuilder("{\n  \"writtenAt\": ").append(System.currentTimeMillis())
+                    .append(",\n  \"unit\": \"us\",\n  \"stallThresholdMs\": ").append(STALL_MS).append(",\n  \"histograms\": {");
+            int n = 0;
+            for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+                Histogram h = e.getValue();
+                sb.append(n++ > 0 ? ",\n    " : "\n    ").append(jsonString(e.getKey()))
+                        .append(": {\"count\": ").append(h.count()).append(", \"p50\": ").append(h.percentile(0.5))
+                        .append(", \"p90\": ").append(h.percentile(0.9)).append(", \"p99\": ").append(h.percentile(0.99))
+                        .append(", \"max\": ").append(h.max()).append('}');
+            }
+            sb.append("\n  },\n  \"stallCount\": ").append(stallCount()).append(",\n  \"stalls\": [");
+            List<Stall> list = stalls();
+            for (int i = 0; i < list.size(); i++) {
+                Stall s = list.get(i);
+                sb.append(i > 0 ? ",\n    " : "\n    ").append("{\"time\": ").append(s.time).append(", \"us\": ").append(s.micros)
+                        .append(", \"event\": ").append(jsonString(s.event)).append('}');
+            }
+            return sb.append("\n  ]\n}\n").toString();
+        }
+
+        private static String jsonString(String s) {
+            StringBuilder sb = new StringBuilder("\"");
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') sb.append('\\').append(c);
+                else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                else sb.append(c);
+            }
+            return sb.append('"').toString();
+        }
+
+        // glass pane з цифрами поверх вікна; без слухачів миші, тож кліки проходять наскрізь
+        JComponent overlay() {
+            return new JComponent() {
+                private final javax.swing.Timer refresh = new javax.swing.Timer(500, e -> repaint());
+
+                @Override
+                public void setVisible(boolean visible) {
+                    super.setVisible(visible);
+                    setTiming(visible);
+                    if (visible) refresh.start();
+                    else refresh.stop();
+                }
+
+                @Override
+                protected void paintComponent(Graphics g) {
+                    List<String> lines = new ArrayList<>();
+                    lines.add(String.format("%-18s %7s %8s %8s %8s", "ms", "count", "p50", "p99", "max"));
+                    for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+                        Histogram h = e.getValue();
+                        lines.add(String.format("%-18s %7d %8.1f %8.1f %8.1f", e.getKey(), h.count(),
+                                h.percentile(0.5) / 1000.0, h.percentile(0.99) / 1000.0, h.max() / 1000.0));
+                    }
+                    lines.add("");
+                    lines.add("EDT stalls over " + STALL_MS + " ms: " + stallCount());
+                    List<Stall> recent = stalls();
+                    for (int i = 0; i < Math.min(3, recent.size()); i++) {
+                        Stall s = recent.get(i);
+                        lines.add(String.format("  %6.0f ms  %s", s.micros / 1000.0, s.event));
+                    }
+
+                    Graphics2D g2 = (Graphics2D) g.create();
+                    g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                    g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+                    FontMetrics fm = g2.getFontMetrics();
+                    int w = 0;
+                    for (String l : lines) w = Math.max(w, fm.stringWidth(l));
+                    int h = lines.size() * fm.getHeight();
+                    int x = Math.max(10, getWidth() - w - 20), y = 60;
+                    g2.setColor(new Color(0, 0, 0, 170));
+                    g2.fillRoundRect(x - 8, y - 6, w + 16, h + 12, 10, 10);
+                    g2.setColor(new Color(220, 255, 220));
+                    for (int i = 0; i < lines.size(); i++) g2.drawString(lines.get(i), x, y + fm.getAscent() + i * fm.getHeight());
+                    g2.dispose();
+                }
+            };
+        }
+    }
+
     // ============================== MAIN FRAME ===============================
     static class MainFrame extends JFrame {
         private final JTextField searchField;
@@ -219,6 +595,25 @@ public class DbBrowserApp {
 
         private String currentTableName = null;
 
+        // таблиця, дані якої зараз показані в dataTable (null – результат довільного SQL)
+        private String shownTableName = null;
+
+        // кеш метаданих FK: таблиця -> список зовнішніх ключів (скидається при loadTree)
+        private final Map<String, List<ForeignKeyInfo>> fkCache = new HashMap<>();
+        private final List<String> tableNames = new ArrayList<>();
+
+        // попередньо завантажені рядки, на які посилаються FK видимої сторінки:
+        // колонка FK -> ключ -> рядок таблиці, на яку посилаємось,
+        // FK_LOADING поки запит іде у фоні, FK_NOT_FOUND якщо такого рядка немає
+        private final Map<String, Map<Object, String>> fkRowCache = new HashMap<>();
+        private static final String FK_LOADING = new String("loading");
+        private static final String FK_NOT_FOUND = new String("not found");
+        // росте при кожному скиданні кешу, щоб відкинути відповіді запізнілих запитів
+        private int fkCacheGeneration = 0;
+
+        // затримки пошуку, завантаження таблиць і подій EDT (Help → Latency overlay)
+        private final LatencyMonitor monitor = new LatencyMonitor();
+
         public MainFrame() {
             super("DB Browser (SQLite, JDBC)");
 
@@ -237,9 +632,17 @@ public class DbBrowserApp {
             JScrollPane treeScroll = new JScrollPane(schemaTree);
 
             // right panel - data or text
-            dataTable = new JTable();
+            dataTable = new JTable() {
+                @Override
+                protected void paintComponent(Graphics g) {
+                    long start = monitor.start();
+                    super.paintComponent(g);
+                    monitor.record("table.paint", start);
+                }
+            };
             enableHighlighting();
             JScrollPane tableScroll = new JScrollPane(dataTable);
+            tableScroll.getViewport().addChangeListener(e -> prefetchVisibleReferences());
 
             textArea = new JTextArea();
             textArea.setEditable(false);
@@ -305,6 +708,8 @@ public class DbBrowserApp {
             // гаряча клавіша Cmd/Ctrl+S
             installSaveKeyBinding();
 
+            setGlassPane(monitor.overlay());
+
             // слухач закриття вікна
             addWindowListener(new WindowAdapter() {
                 @Override
@@ -323,12 +728,14 @@ public class DbBrowserApp {
             JMenuItem connect = new JMenuItem("Connect");
             JMenuItem disconnect = new JMenuItem("Disconnect");
             JMenuItem execSQL = new JMenuItem("Execute SQL...");
+            JMenuItem erGraph = new JMenuItem("Schema graph (ER)...");
             JMenuItem save = new JMenuItem("Save");
             JMenuItem exit = new JMenuItem("Exit");
 
             connect.addActionListener(e -> onConnect());
             disconnect.addActionListener(e -> onDisconnect());
             execSQL.addActionListener(e -> openSQLExecutor());
+            erGraph.addActionListener(e -> showSchemaGraph());
             save.addActionListener(e -> onSave());
             exit.addActionListener(e -> attemptExit());
 
@@ -339,6 +746,7 @@ public class DbBrowserApp {
             db.add(connect);
             db.add(disconnect);
             db.add(execSQL);
+            db.add(erGraph);
             db.add(save);
             db.addSeparator();
             db.add(exit);
@@ -374,9 +782,25 @@ public class DbBrowserApp {
             rsMeta.addActionListener(e -> showResultSetMetadata());
             about.addActionListener(e -> showAbout());
 
+            JCheckBoxMenuItem latencyOverlay = new JCheckBoxMenuItem("Latency overlay");
+            JMenuItem latencyReport = new JMenuItem("Export latency report...");
+            JMenuItem latencyReset = new JMenuItem("Reset latency figures");
+
+            latencyOverlay.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L, mask | InputEvent.SHIFT_DOWN_MASK));
+            latencyOverlay.addActionListener(e -> getGlassPane().setVisible(latencyOverlay.isSelected()));
+            latencyReport.addActionListener(e -> exportLatencyReport());
+            latencyReset.addActionListener(e -> {
+                monitor.reset();
+                getGlassPane().repaint();
+            });
+
             help.add(dbMeta);
             help.add(rsMeta);
             help.addSeparator();
+            help.add(latencyOverlay);
+            help.add(latencyReport);
+            help.add(latencyReset);
+            help.addSeparator();
             help.add(about);
 
             menuBar.add(db);
@@ -502,6 +926,11 @@ public class DbBrowserApp {
             rootNode.setUserObject("No connection");
             treeModel.reload();
             currentTableName = null;
+            shownTableName = null;
+            fkCache.clear();
+            fkRowCache.clear();
+            fkCacheGeneration++;
+            tableNames.clear();
             dataTable.setModel(new DefaultTableModel());
             textArea.setText("");
         }
@@ -517,6 +946,10 @@ public class DbBrowserApp {
             rootNode.add(tablesNode);
             rootNode.add(viewsNode);
 
+            // схема могла змінитися – метадані FK перечитаємо при потребі
+            fkCache.clear();
+            tableNames.clear();
+
             try {
                 DatabaseMetaData meta = dbManager.getConnection().getMetaData();
 
@@ -524,6 +957,7 @@ public class DbBrowserApp {
                 ResultSet rs = meta.getTables(null, null, "%", new String[]{"TABLE"});
                 while (rs.next()) {
                     String tableName = rs.getString("TABLE_NAME");
+                    tableNames.add(tableName);
                     DefaultMutableTreeNode t = new DefaultMutableTreeNode(new TableNode(tableName));
 
                     t.add(new DefaultMutableTreeNode(new InfoNode("Columns", tableName)));
@@ -591,18 +1025,27 @@ public class DbBrowserApp {
         private void loadTable(String table) {
             if (!dbManager.isConnected()) return;
 
+            long start = monitor.start();
             try {
                 String q = "SELECT * FROM " + table;
                 Statement st = dbManager.getConnection().createStatement();
                 ResultSet rs = st.executeQuery(q);
+                monitor.record("loadTable.query", start);
+
+                long read = monitor.start();
+                DefaultTableModel model = buildTableModel(rs);
+                monitor.record("loadTable.read", read);
 
-                dataTable.setModel(buildTableModel(rs));
+                long show = monitor.start();
+                showTableData(table, model);
+                monitor.record("loadTable.show", show);
 
                 rs.close();
                 st.close();
             } catch (Exception ex) {
                 textArea.setText(ex.getMessage());
             }
+            monitor.record("loadTable", start);
         }
 
         // Show text info (columns, indexes, triggers…)
@@ -626,14 +1069,12 @@ public class DbBrowserApp {
 
                     case "Constraints":
                         sb.append("CONSTRAINTS of ").append(table).append(":\n\n");
-                        ResultSet fk = dbManager.getConnection().createStatement()
-                                .executeQuery("PRAGMA foreign_key_list(" + table + ");");
-                        while (fk.next()) {
+                        for (ForeignKeyInfo fk : getForeignKeys(table)) {
                             sb.append("FOREIGN KEY ")
-                                    .append(fk.getString("from"))
+                                    .append(fk.from)
                                     .append(" REFERENCES ")
-                                    .append(fk.getString("table"))
-                                    .append("(").append(fk.getString("to")).append(")")
+                                    .append(fk.table)
+                                    .append("(").append(fk.to).append(")")
                                     .append("\n");
                         }
                         break;
@@ -689,6 +1130,15 @@ public class DbBrowserApp {
             if (!dbManager.isConnected() || currentTableName == null) {
                 return;
             }
+            long start = monitor.start();
+            try {
+                searchTable();
+            } finally {
+                monitor.record("search", start);
+            }
+        }
+
+        private void searchTable() {
 
             String pattern = searchField.getText().trim();
             if (pattern.isEmpty()) {
@@ -726,8 +1176,11 @@ public class DbBrowserApp {
                     ps.setString(idx++, "%" + pattern + "%");
                 }
 
+                long query = monitor.start();
                 ResultSet rs = ps.executeQuery();
-                dataTable.setModel(buildTableModel(rs));
+                DefaultTableModel model = buildTableModel(rs);
+                monitor.record("search.query", query);
+                showTableData(currentTableName, model);
 
             } catch (SQLException ex) {
                 JOptionPane.showMessageDialog(this, ex.getMessage());
@@ -757,11 +1210,276 @@ public class DbBrowserApp {
 
                     if (isSelected) c.setBackground(new Color(184, 207, 229));
 
+                    // клітинки FK показуємо як посилання з підказкою про рядок, на який вони вказують
+                    ForeignKeyInfo fk = foreignKeyForColumn(column);
+                    if (fk != null && value != null) {
+                        c.setForeground(new Color(41, 98, 255));
+                        c.setFont(c.getFont().deriveFont(Map.of(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON)));
+                        Map<Object, String> cached = fkRowCache.get(fk.from);
+                        String ref = cached == null ? null : cached.get(fkKey(value));
+                        String target = fk.table + "." + fk.to + " = " + value;
+                        if (ref == FK_NOT_FOUND) {
+                            ((JComponent) c).setToolTipText(target + " (not found)");
+                        } else if (ref == null || ref == FK_LOADING) {
+                            ((JComponent) c).setToolTipText(target + " (loading…)");
+                        } else {
+                            ((JComponent) c).setToolTipText(ref + "   — Ctrl+click to open");
+                        }
+                    } else {
+                        ((JComponent) c).setToolTipText(null);
+                    }
+
                     return c;
                 }
             });
         }
 
+        // ========================= FOREIGN KEY NAVIGATION ===========================
+        private void showTableData(String table, DefaultTableModel model) {
+            shownTableName = table;
+            fkRowCache.clear();
+            fkCacheGeneration++;
+            dataTable.setModel(model);
+            prefetchVisibleReferences();
+        }
+
+        private List<ForeignKeyInfo> getForeignKeys(String table) throws SQLException {
+            List<ForeignKeyInfo> cached = fkCache.get(table);
+            if (cached != null) return cached;
+
+            // id -> колонки; складені ключі (кілька колонок) не навігуємо
+            Map<Integer, List<ForeignKeyInfo>> byId = new LinkedHashMap<>();
+            try (Statement st = dbManager.getConnection().createStatement();
+                 ResultSet rs = st.executeQuery("PRAGMA foreign_key_list(" + table + ");")) {
+                while (rs.next()) {
+                    byId.computeIfAbsent(rs.getInt("id"), k -> new ArrayList<>())
+                            .add(new ForeignKeyInfo(rs.getString("from"), rs.getString("table"), rs.getString("to")));
+                }
+            }
+
+            List<ForeignKeyInfo> fks = new ArrayList<>();
+            for (List<ForeignKeyInfo> group : byId.values()) {
+                if (group.size() != 1) continue;
+                ForeignKeyInfo fk = group.get(0);
+                if (fk.to == null) {
+                    // REFERENCES t без колонки – посилання на первинний ключ
+                    for (ColumnInfo c : getColumns(fk.table)) {
+                        if (c.primaryKey) fk.to = c.name;
+                    }
+                }
+                if (fk.to != null) fks.add(fk);
+            }
+            fkCache.put(table, fks);
+            return fks;
+        }
+
+        private ForeignKeyInfo foreignKeyForColumn(int viewColumn) {
+            if (shownTableName == null || !dbManager.isConnected()) return null;
+            String name = dataTable.getColumnName(viewColumn);
+            try {
+                for (ForeignKeyInfo fk : getForeignKeys(shownTableName)) {
+                    if (fk.from.equalsIgnoreCase(name)) return fk;
+                }
+            } catch (SQLException ignored) {}
+            return null;
+        }
+
+        // SQLite повертає Integer або Long залежно від величини – зводимо до одного вигляду
+        private static Object fkKey(Object value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+                return ((Number) value).longValue();
+            }
+            return value == null ? null : value.toString();
+        }
+
+        // Одним запитом WHERE ... IN (...) на кожен FK підтягуємо рядки для видимої сторінки.
+        // Ключі збираємо на EDT, а SQL виконуємо у фоновому SwingWorker.
+        private void prefetchVisibleReferences() {
+            if (shownTableName == null || !dbManager.isConnected() || dataTable.getRowCount() == 0) return;
+
+            List<ForeignKeyInfo> fks;
+            try {
+                fks = getForeignKeys(shownTableName);
+            } catch (SQLException ex) {
+                return;
+            }
+            if (fks.isEmpty()) return;
+
+            Rectangle vis = dataTable.getVisibleRect();
+            int first = dataTable.rowAtPoint(vis.getLocation());
+            int last = dataTable.rowAtPoint(new Point(vis.x, vis.y + Math.max(vis.height, 1) - 1));
+            if (first < 0) first = 0;
+            if (last < 0) last = Math.min(dataTable.getRowCount(), first + 100) - 1;
+
+            DefaultTableModel model = (DefaultTableModel) dataTable.getModel();
+            Map<ForeignKeyInfo, List<Object>> requests = new LinkedHashMap<>();
+            for (ForeignKeyInfo fk : fks) {
+                int col = model.findColumn(fk.from);
+                if (col < 0) continue;
+
+                Map<Object, String> cached = fkRowCache.computeIfAbsent(fk.from, k -> new HashMap<>());
+                Map<Object, Object> missing = new LinkedHashMap<>();
+                for (int r = first; r <= last; r++) {
+                    Object v = model.getValueAt(dataTable.convertRowIndexToModel(r), col);
+                    if (v != null && !cached.containsKey(fkKey(v))) missing.putIfAbsent(fkKey(v), v);
+                }
+                if (missing.isEmpty()) continue;
+
+                // позначаємо як такі, що вантажаться, щоб наступна прокрутка не питала їх удруге
+                for (Object k : missing.keySet()) cached.put(k, FK_LOADING);
+                requests.put(fk, new ArrayList<>(missing.values()));
+            }
+            if (requests.isEmpty()) return;
+
+            int generation = fkCacheGeneration;
+            new SwingWorker<Map<ForeignKeyInfo, Map<Object, String>>, Void>() {
+                @Override
+                protected Map<ForeignKeyInfo, Map<Object, String>> doInBackground() throws SQLException {
+                    Map<ForeignKeyInfo, Map<Object, String>> found = new LinkedHashMap<>();
+                    for (Map.Entry<ForeignKeyInfo, List<Object>> e : requests.entrySet()) {
+                        found.put(e.getKey(), fetchReferencedRows(e.getKey(), e.getValue()));
+                    }
+                    return found;
+                }
+
+                @Override
+                protected void done() {
+                    if (generation != fkCacheGeneration) return;   // таблицю вже змінили
+                    Map<ForeignKeyInfo, Map<Object, String>> found;
+                    try {
+                        found = get();
+                    } catch (InterruptedException | ExecutionException ex) {
+                        found = Map.of();
+                    }
+                    for (Map.Entry<ForeignKeyInfo, List<Object>> e : requests.entrySet()) {
+                        Map<Object, String> cached = fkRowCache.computeIfAbsent(e.getKey().from, k -> new HashMap<>());
+                        Map<Object, String> rows = found.get(e.getKey());
+                        for (Object v : e.getValue()) {
+                            Object k = fkKey(v);
+                            // після помилки прибираємо позначку, щоб спробувати ще раз
+                            if (rows != null) cached.put(k, rows.get(k));
+                            else cached.remove(k);
+                        }
+                    }
+                    dataTable.repaint();
+                }
+            }.execute();
+        }
+
+        // Фоновий потік: ключ -> опис рядка, або FK_NOT_FOUND для ключів без рядка
+        private Map<Object, String> fetchReferencedRows(ForeignKeyInfo fk, List<Object> keys) throws SQLException {
+            Map<Object, String> into = new HashMap<>();
+            StringBuilder sb = new StringBuilder("SELECT * FROM ");
+            sb.append(fk.table).append(" WHERE ").append(fk.to).append(" IN (");
+            for (int i = 0; i < keys.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append("?");
+            }
+            sb.append(")");
+
+            try (PreparedStatement ps = dbManager.getConnection().prepareStatement(sb.toString())) {
+                for (int i = 0; i < keys.size(); i++) ps.setObject(i + 1, keys.get(i));
+                try (ResultSet rs = ps.executeQuery()) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    while (rs.next()) {
+                        StringBuilder row = new StringBuilder(fk.table).append(": ");
+                        for (int i = 1; i <= meta.getColumnCount(); i++) {
+                            if (i > 1) row.append(", ");
+                            row.append(meta.getColumnName(i)).append("=").append(rs.getObject(i));
+                        }
+                        into.put(fkKey(rs.getObject(fk.to)), row.toString());
+                    }
+                }
+            }
+            // ключі без відповідного рядка теж запам'ятовуємо, щоб не питати повторно
+            for (Object k : keys) into.putIfAbsent(fkKey(k), FK_NOT_FOUND);
+            return into;
+        }
+
+        private void followForeignKey(int viewRow, int viewColumn) {
+            ForeignKeyInfo fk = foreignKeyForColumn(viewColumn);
+            if (fk == null) return;
+            Object value = dataTable.getValueAt(viewRow, viewColumn);
+            if (value == null) return;
+            Object key = fkKey(value);
+
+            Map<Object, String> cached = fkRowCache.get(fk.from);
+            if (cached != null && cached.get(key) == FK_NOT_FOUND) {
+                JOptionPane.showMessageDialog(this,
+                        "No row in " + fk.table + " with " + fk.to + " = " + value);
+                return;
+            }
+
+            openTable(fk.table);
+
+            DefaultTableModel model = (DefaultTableModel) dataTable.getModel();
+            int col = model.findColumn(fk.to);
+            if (col < 0) return;
+            for (int r = 0; r < model.getRowCount(); r++) {
+                if (key.equals(fkKey(model.getValueAt(r, col)))) {
+                    int vr = dataTable.convertRowIndexToView(r);
+                    dataTable.setRowSelectionInterval(vr, vr);
+                    dataTable.scrollRectToVisible(dataTable.getCellRect(vr, 0, true));
+                    return;
+                }
+            }
+        }
+
+        // Відкриває таблицю через дерево, щоб вибір у дереві й дані лишались узгодженими
+        private void openTable(String table) {
+            TreePath path = findTablePath(table);
+            if (path != null && !path.equals(schemaTree.getSelectionPath())) {
+                schemaTree.setSelectionPath(path);
+                schemaTree.scrollPathToVisible(path);
+                return;
+            }
+            currentTableName = table;
+            if (!searchField.getText().isEmpty()) {
+                searchField.setText("");
+            } else {
+                loadTable(table);
+            }
+        }
+
+        private TreePath findTablePath(String table) {
+            for (int i = 0; i < rootNode.getChildCount(); i++) {
+                DefaultMutableTreeNode group = (DefaultMutableTreeNode) rootNode.getChildAt(i);
+                for (int j = 0; j < group.getChildCount(); j++) {
+                    DefaultMutableTreeNode n = (DefaultMutableTreeNode) group.getChildAt(j);
+                    if (n.getUserObject() instanceof TableNode
+                            && ((TableNode) n.getUserObject()).getName().equalsIgnoreCase(table)) {
+                        return new TreePath(n.getPath());
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void showSchemaGraph() {
+            if (!dbManager.isConnected()) {
+                JOptionPane.showMessageDialog(this, "Connect to database first!");
+                return;
+            }
+
+            Map<String, List<ForeignKeyInfo>> fks = new LinkedHashMap<>();
+            try {
+                for (String t : tableNames) fks.put(t, getForeignKeys(t));
+            } catch (SQLException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            JDialog dlg = new JDialog(this, "Schema graph", false);
+            SchemaGraphPanel graph = new SchemaGraphPanel(new ArrayList<>(tableNames), fks, t -> {
+                openTable(t);
+                toFront();
+            });
+            dlg.getContentPane().add(new JScrollPane(graph));
+            dlg.setSize(900, 600);
+            dlg.setLocationRelativeTo(this);
+            dlg.setVisible(true);
+        }
+
         // ============================= SQL EXECUTOR ================================
         private void openSQLExecutor() {
             if (!dbManager.isConnected()) {
@@ -789,7 +1507,7 @@ public class DbBrowserApp {
 
                     if (hasResult) {
                         ResultSet rs = st.getResultSet();
-                        dataTable.setModel(buildTableModel(rs));
+                        showTableData(null, buildTableModel(rs));
                     } else {
                         // DDL/UPDATE/INSERT/DELETE → вважаємо, що є незбережені зміни
                         dbManager.markDirty();
@@ -1203,24 +1921,47 @@ public class DbBrowserApp {
             JMenuItem insertRow = new JMenuItem("Insert row");
             JMenuItem editRow = new JMenuItem("Edit row");
             JMenuItem deleteRow = new JMenuItem("Delete row");
+            JMenuItem followFk = new JMenuItem("Go to referenced row");
 
             insertRow.addActionListener(e -> onInsert());
             editRow.addActionListener(e -> onEdit());
             deleteRow.addActionListener(e -> onDelete());
+            followFk.addActionListener(e -> {
+                int row = dataTable.getSelectedRow();
+                int col = dataTable.getSelectedColumn();
+                if (row != -1 && col != -1) followForeignKey(row, col);
+            });
 
             rowMenu.add(insertRow);
             rowMenu.add(editRow);
             rowMenu.add(deleteRow);
+            rowMenu.addSeparator();
+            rowMenu.add(followFk);
 
             dataTable.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    // Ctrl/Cmd+клік по клітинці FK – перехід до рядка, на який вона посилається
+                    int mask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+                    if (!SwingUtilities.isLeftMouseButton(e) || (e.getModifiersEx() & mask) == 0) return;
+                    int row = dataTable.rowAtPoint(e.getPoint());
+                    int col = dataTable.columnAtPoint(e.getPoint());
+                    if (row != -1 && col != -1) followForeignKey(row, col);
+                }
+
                 private void showMenu(MouseEvent e) {
                     if (!e.isPopupTrigger()) return;
                     if (!dbManager.isConnected() || currentTableName == null) return;
 
                     int row = dataTable.rowAtPoint(e.getPoint());
+                    int col = dataTable.columnAtPoint(e.getPoint());
                     if (row != -1) {
                         dataTable.setRowSelectionInterval(row, row);
                     }
+                    if (col != -1) {
+                        dataTable.setColumnSelectionInterval(col, col);
+                    }
+                    followFk.setEnabled(row != -1 && col != -1 && foreignKeyForColumn(col) != null);
 
                     rowMenu.show(dataTable, e.getX(), e.getY());
                 }
@@ -1293,7 +2034,20 @@ public class DbBrowserApp {
             }
         }
 
-        private void showAbout() {
+        private void exportLatencyReport() {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new java.io.File("latency-report.json"));
+            chooser.setFileFilter(new FileNameExtensionFilter("JSON report (*.json)", "json"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            try {
+                java.nio.file.Files.writeString(chooser.getSelectedFile().toPath(), monitor.toJson(),
+                        java.nio.charset.StandardCharsets.UTF_8);
+            } catch (java.io.IOException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+
+                private void showAbout() {
             JOptionPane.showMessageDialog(this,
                     "<html><h3>DB Browser</h3>" +
                             "<p>Автор: Вероніка Пелещак</p>" +